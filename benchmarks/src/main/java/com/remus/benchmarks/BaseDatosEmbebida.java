@@ -0,0 +1,163 @@
+package com.remus.benchmarks;
+
+import com.remus.connection.ConexionBD;
+import com.remus.dao.ResumenVentasDiarias;
+import com.remus.modelo.Dinero;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Base H2 en memoria (modo MySQL) que sustituye a MySQL en los benchmarks.
+ * Se crea con las tablas y datos de AC202.sql y se completa con ventas sintéticas generadas
+ * siempre con la misma semilla, para que los resultados sean comparables entre ejecuciones.
+ */
+public final class BaseDatosEmbebida {
+
+    private static final String URL = "jdbc:h2:mem:ac202bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+            + "CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1";
+    private static final String INICIO_ESQUEMA = "-- Tabla `CLIENTES`";
+    private static final int LINEAS_POR_VENTA = 3;
+    private static final int LOTE = 1000;
+    private static final long SEMILLA = 42;
+
+    private static int ventasCargadas = -1;
+
+    private BaseDatosEmbebida() {
+    }
+
+    /**
+     * Crea la base (una vez por JVM) con {@code ventasSinteticas} ventas además de las del script.
+     * Debe llamarse antes de cualquier otro uso de ConexionBD, que lee la URL al iniciarse.
+     */
+    public static synchronized void iniciar(int ventasSinteticas) throws SQLException, IOException {
+        if (ventasCargadas == ventasSinteticas) {
+            return;
+        }
+        if (ventasCargadas >= 0) {
+            throw new IllegalStateException("La base ya se creó con " + ventasCargadas + " ventas en esta JVM");
+        }
+        System.setProperty("remus.db.driver", "org.h2.Driver");
+        System.setProperty("remus.db.url", URL);
+        System.setProperty("remus.db.usuario", "sa");
+        System.setProperty("remus.db.contrasena", "");
+
+        try (Connection conn = ConexionBD.getConexion()) {
+            ejecutarScript(conn, leerScript());
+            generarVentas(conn, ventasSinteticas);
+            new ResumenVentasDiarias().reconstruir(conn);
+        }
+        ventasCargadas = ventasSinteticas;
+    }
+
+    /**
+     * AC202.sql sin la parte de base de datos/usuario (no aplica a H2) ni la sentencia final incompleta
+     */
+    private static String leerScript() throws IOException {
+        String ruta = System.getProperty("remus.bench.sql");
+        Path script = ruta != null ? Paths.get(ruta) : null;
+        if (script == null) {
+            for (String candidata : new String[]{"../src/main/java/com/remus/sql/AC202.sql", "src/main/java/com/remus/sql/AC202.sql"}) {
+                if (Files.exists(Paths.get(candidata))) {
+                    script = Paths.get(candidata);
+                    break;
+                }
+            }
+        }
+        if (script == null) {
+            throw new IOException("No se encuentra AC202.sql; indicar la ruta con -Dremus.bench.sql=...");
+        }
+        String sql = new String(Files.readAllBytes(script), StandardCharsets.UTF_8);
+        int inicio = sql.indexOf(INICIO_ESQUEMA);
+        int fin = sql.lastIndexOf(';');
+        return sql.substring(inicio, fin + 1);
+    }
+
+    private static void ejecutarScript(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String sentencia : sql.split(";\\s*\\n")) {
+                String limpia = sentencia.replaceAll("(?m)^--.*$", "").trim();
+                if (limpia.endsWith(";")) {
+                    limpia = limpia.substring(0, limpia.length() - 1);
+                }
+                if (!limpia.isEmpty()) {
+                    stmt.execute(limpia);
+                }
+            }
+        }
+    }
+
+    /**
+     * Ventas con fechas crecientes a lo largo de tres años, clientes y productos del script al azar
+     */
+    private static void generarVentas(Connection conn, int numVentas) throws SQLException {
+        int numClientes = contar(conn, "SELECT MAX(id_cliente) FROM CLIENTES");
+        int numProductos = contar(conn, "SELECT MAX(id_producto) FROM PRODUCTOS");
+        int primerId = contar(conn, "SELECT COALESCE(MAX(id_venta), 0) FROM VENTAS") + 1;
+        LocalDate base = LocalDate.of(2023, 1, 1);
+        Random random = new Random(SEMILLA);
+
+        String sqlVenta = "INSERT INTO VENTAS (id_venta, id_cliente, fecha_venta, descuento_global, importe_total, observaciones, estado) "
+                + "VALUES (?, ?, ?, ?, ?, ?, 'COMPLETADA')";
+        String sqlLinea = "INSERT INTO LINEAS_VENTA (id_venta, id_producto, cantidad, precio_venta, descuento_linea, importe_linea) "
+                + "VALUES (?, ?, ?, ?, ?, ?)";
+
+        conn.setAutoCommit(false);
+        try (PreparedStatement venta = conn.prepareStatement(sqlVenta);
+             PreparedStatement linea = conn.prepareStatement(sqlLinea)) {
+            for (int i = 0; i < numVentas; i++) {
+                int idVenta = primerId + i;
+                long total = 0; // céntimos, como lo calcularía VentaDAOImpl
+                for (int l = 0; l < LINEAS_POR_VENTA; l++) {
+                    int cantidad = 1 + random.nextInt(5);
+                    long precio = 500 + random.nextInt(50_000);
+                    int descuento = random.nextInt(4) * 5;
+                    long importe = Dinero.aplicarDescuento(Dinero.multiplicar(precio, cantidad), descuento);
+                    total += importe;
+                    linea.setInt(1, idVenta);
+                    linea.setInt(2, 1 + random.nextInt(numProductos));
+                    linea.setInt(3, cantidad);
+                    Dinero.fijar(linea, 4, precio);
+                    linea.setInt(5, descuento);
+                    Dinero.fijar(linea, 6, importe);
+                    linea.addBatch();
+                }
+                venta.setInt(1, idVenta);
+                venta.setInt(2, 1 + random.nextInt(numClientes));
+                venta.setDate(3, Date.valueOf(base.plusDays((long) i * 3 * 365 / Math.max(numVentas, 1))));
+                venta.setDouble(4, 0.0);
+                Dinero.fijar(venta, 5, total);
+                venta.setString(6, "Venta sintética " + idVenta);
+                venta.addBatch();
+
+                if ((i + 1) % LOTE == 0) {
+                    venta.executeBatch();
+                    linea.executeBatch();
+                }
+            }
+            venta.executeBatch();
+            linea.executeBatch();
+            conn.commit();
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static int contar(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
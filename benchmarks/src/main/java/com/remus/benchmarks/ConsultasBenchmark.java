@@ -0,0 +1,42 @@
+package com.remus.benchmarks;
+
+import com.remus.dao.ConsultasDAOImpl;
+import com.remus.modelo.VentaDetallada;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Montaje de ventas con sus líneas en ConsultasDAOImpl: lista completa frente a recorrido por callback
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConsultasBenchmark {
+
+    @Param({"10000"})
+    public int ventas;
+
+    private ConsultasDAOImpl consultasDAO;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        BaseDatosEmbebida.iniciar(ventas);
+        consultasDAO = new ConsultasDAOImpl();
+    }
+
+    @Benchmark
+    public List<VentaDetallada> obtenerVentasConLineas() {
+        return consultasDAO.obtenerVentasConLineas();
+    }
+
+    @Benchmark
+    public void recorrerVentasConLineas(Blackhole bh) {
+        consultasDAO.recorrerVentasConLineas(bh::consume);
+    }
+}
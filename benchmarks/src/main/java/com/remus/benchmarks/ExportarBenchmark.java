@@ -0,0 +1,63 @@
+package com.remus.benchmarks;
+
+import com.remus.dao.VentaDAOImpl;
+import com.remus.modelo.Venta;
+import com.remus.utility.UtilidadExportar;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización de ventas a JSON con UtilidadExportar (lista completa, streaming y NDJSON).
+ * Las ventas se cargan una vez en el setup, así que solo se mide la serialización y la escritura al disco.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExportarBenchmark {
+
+    @Param({"10000"})
+    public int ventas;
+
+    private List<Venta> datos;
+    private File directorio;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        BaseDatosEmbebida.iniciar(ventas);
+        datos = new VentaDAOImpl().obtenerTodas();
+        directorio = Files.createTempDirectory("bench-exportar").toFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void limpiar() {
+        File[] ficheros = directorio.listFiles();
+        if (ficheros != null) {
+            for (File f : ficheros) {
+                f.delete();
+            }
+        }
+        directorio.delete();
+    }
+
+    @Benchmark
+    public boolean exportarAJson() {
+        return UtilidadExportar.exportarAJson(datos, new File(directorio, "ventas.json").getPath());
+    }
+
+    @Benchmark
+    public boolean exportarEnStreaming() {
+        return UtilidadExportar.exportarEnStreaming(datos.stream(), new File(directorio, "ventas-stream.json").getPath());
+    }
+
+    @Benchmark
+    public boolean exportarNdjson() {
+        return UtilidadExportar.exportarEnStreaming(datos.stream(), new File(directorio, "ventas.ndjson").getPath());
+    }
+}
@@ -0,0 +1,286 @@
+package com.remus.benchmarks;
+
+import com.remus.connection.ConexionBD;
+import com.remus.dao.ColaVentasAgrupadas;
+import com.remus.dao.ClienteDAOImpl;
+import com.remus.dao.ProductoDAOCache;
+import com.remus.dao.ProductoDAOImpl;
+import com.remus.dao.StockInsuficienteException;
+import com.remus.modelo.Cliente;
+import com.remus.modelo.LineaVenta;
+import com.remus.modelo.Producto;
+import com.remus.modelo.Venta;
+import com.remus.service.VentaService;
+import com.remus.utility.Histograma;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generador de carga de punto de venta: N cajas (hilos) registran ventas sin pausa con
+ * VentaService.insertarVentaConTransaccion contra la base H2 embebida y al final se informa del
+ * rendimiento (ventas/s), la latencia (p50/p99/p99.9), las transacciones revertidas y los conflictos de stock.
+ * <p>
+ * Uso (desde benchmarks/, tras {@code mvn package}):
+ * <pre>
+ *   java -cp target/benchmarks.jar com.remus.benchmarks.GeneradorCargaTPV --cajas 8 --duracion 30
+ * </pre>
+ * Opciones (todas opcionales):
+ * <ul>
+ *   <li>{@code --cajas N}: hilos concurrentes (8)</li>
+ *   <li>{@code --duracion S}: segundos medidos (30), tras {@code --calentamiento S} sin medir (5)</li>
+ *   <li>{@code --lineas 1:50,3:35,10:15}: mezcla de número de líneas por venta con su peso</li>
+ *   <li>{@code --productos K}: solo se venden los K primeros productos; pocos = más contención (todos)</li>
+ *   <li>{@code --clientes K}: clientes que compran, los K primeros (todos)</li>
+ *   <li>{@code --stock U}: stock inicial de cada producto; bajo = conflictos de stock (1000000)</li>
+ *   <li>{@code --ventas-base N}: ventas sintéticas previas en la base (0)</li>
+ * </ul>
+ * Con {@code -Dremus.ventas.agrupadas=true} las ventas se confirman por lotes (ColaVentasAgrupadas, ver allí
+ * el resto de propiedades) y se informa también del tamaño medio de lote.
+ */
+public final class GeneradorCargaTPV {
+
+    private final int cajas;
+    private final int duracionS;
+    private final int calentamientoS;
+    private final int[] mezclaLineas;   // número de líneas, repetido según su peso
+    private final List<Producto> productos;
+    private final List<Cliente> clientes;
+    private final VentaService ventaService = new VentaService();
+
+    private final Histograma latenciaOk = new Histograma();
+    private final Histograma latenciaFallo = new Histograma();
+    private final LongAdder ventasOk = new LongAdder();
+    private final LongAdder lineasOk = new LongAdder();
+    private final LongAdder revertidas = new LongAdder();
+    private final LongAdder conflictosStock = new LongAdder();
+    private final LongAdder rechazosStock = new LongAdder();
+    private final LongAdder otrosErrores = new LongAdder();
+
+    private volatile boolean midiendo = false;
+    private volatile boolean parar = false;
+
+    private GeneradorCargaTPV(int cajas, int duracionS, int calentamientoS, int[] mezclaLineas,
+                              List<Producto> productos, List<Cliente> clientes) {
+        this.cajas = cajas;
+        this.duracionS = duracionS;
+        this.calentamientoS = calentamientoS;
+        this.mezclaLineas = mezclaLineas;
+        this.productos = productos;
+        this.clientes = clientes;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opciones = leerOpciones(args);
+        int cajas = Integer.parseInt(opciones.getOrDefault("cajas", "8"));
+        int duracion = Integer.parseInt(opciones.getOrDefault("duracion", "30"));
+        int calentamiento = Integer.parseInt(opciones.getOrDefault("calentamiento", "5"));
+        int[] mezcla = leerMezcla(opciones.getOrDefault("lineas", "1:50,3:35,10:15"));
+        int stock = Integer.parseInt(opciones.getOrDefault("stock", "1000000"));
+
+        BaseDatosEmbebida.iniciar(Integer.parseInt(opciones.getOrDefault("ventas-base", "0")));
+
+        List<Producto> productos = new ProductoDAOImpl().obtenerTodos();
+        productos = productos.subList(0, Math.min(productos.size(),
+                Integer.parseInt(opciones.getOrDefault("productos", String.valueOf(productos.size())))));
+        List<Cliente> clientes = new ClienteDAOImpl().obtenerTodos();
+        clientes = clientes.subList(0, Math.min(clientes.size(),
+                Integer.parseInt(opciones.getOrDefault("clientes", String.valueOf(clientes.size())))));
+        fijarStock(stock);
+
+        GeneradorCargaTPV generador = new GeneradorCargaTPV(cajas, duracion, calentamiento, mezcla, productos, clientes);
+        generador.ejecutar();
+    }
+
+    private void ejecutar() throws InterruptedException {
+        PrintStream salida = System.out;
+        salida.printf("Cajas: %d | calentamiento %d s + medición %d s | %d productos, %d clientes%n",
+                cajas, calentamientoS, duracionS, productos.size(), clientes.size());
+        // Los DAO escriben una línea por venta: fuera de la consola para no medir la escritura
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        CountDownLatch fin = new CountDownLatch(cajas);
+        for (int i = 0; i < cajas; i++) {
+            Thread caja = new Thread(() -> {
+                try {
+                    while (!parar) {
+                        venderUna();
+                    }
+                } finally {
+                    fin.countDown();
+                }
+            }, "caja-" + (i + 1));
+            caja.setDaemon(true);
+            caja.start();
+        }
+
+        Thread.sleep(calentamientoS * 1000L);
+        midiendo = true;
+        long inicio = System.nanoTime();
+        Thread.sleep(duracionS * 1000L);
+        midiendo = false;
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        parar = true;
+        fin.await();
+        System.setOut(salida);
+
+        informar(salida, segundos);
+        ColaVentasAgrupadas.cerrarCompartida();
+        ConexionBD.cerrarPool();
+    }
+
+    private void venderUna() {
+        Venta venta = nuevaVenta();
+        long t0 = System.nanoTime();
+        try {
+            ventaService.insertarVentaConTransaccion(venta);
+            anotar(latenciaOk, t0);
+            if (midiendo) {
+                ventasOk.increment();
+                lineasOk.add(venta.getLineasVenta().size());
+            }
+        } catch (IllegalArgumentException e) {
+            // Rechazada por la validación del servicio, antes de abrir la transacción
+            anotar(latenciaFallo, t0);
+            if (midiendo) {
+                if (e.getMessage() != null && e.getMessage().startsWith("Stock insuficiente")) {
+                    rechazosStock.increment();
+                } else {
+                    otrosErrores.increment();
+                }
+            }
+        } catch (Exception e) {
+            // El DAO revirtió la transacción
+            anotar(latenciaFallo, t0);
+            if (midiendo) {
+                revertidas.increment();
+                if (esConflictoStock(e)) {
+                    conflictosStock.increment();
+                }
+            }
+        }
+    }
+
+    private void anotar(Histograma histograma, long t0) {
+        if (midiendo) {
+            histograma.registrar((System.nanoTime() - t0) / 1_000);
+        }
+    }
+
+    private Venta nuevaVenta() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Venta venta = new Venta(clientes.get(random.nextInt(clientes.size())), LocalDate.now());
+        venta.setDescuentoGlobal(0.0);
+        int numLineas = Math.min(mezclaLineas[random.nextInt(mezclaLineas.length)], productos.size());
+
+        // Productos distintos en cada línea, elegidos al azar dentro del conjunto configurado
+        Set<Integer> elegidos = new LinkedHashSet<>();
+        while (elegidos.size() < numLineas) {
+            elegidos.add(random.nextInt(productos.size()));
+        }
+        List<LineaVenta> lineas = new ArrayList<>(numLineas);
+        for (int indice : elegidos) {
+            Producto p = productos.get(indice);
+            LineaVenta linea = new LineaVenta();
+            linea.setIdProducto(p.getIdProducto());
+            linea.setCantidad(1 + random.nextInt(3));
+            linea.setPrecioVenta(p.getPrecioRecomendado());
+            linea.setDescuento(0);
+            lineas.add(linea);
+        }
+        venta.setLineasVenta(lineas);
+        return venta;
+    }
+
+    private static boolean esConflictoStock(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof StockInsuficienteException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void informar(PrintStream salida, double segundos) {
+        long ok = ventasOk.sum();
+        long intentos = ok + revertidas.sum() + rechazosStock.sum() + otrosErrores.sum();
+        salida.println("──────────────────────────────────────────────");
+        salida.printf("Ventas registradas: %d (%d líneas) en %.1f s%n", ok, lineasOk.sum(), segundos);
+        salida.printf("Rendimiento:        %.1f ventas/s (%.1f intentos/s)%n", ok / segundos, intentos / segundos);
+        salida.printf("Latencia OK (ms):   p50 %.2f | p99 %.2f | p99.9 %.2f | máx %.2f%n",
+                ms(latenciaOk.percentil(50)), ms(latenciaOk.percentil(99)),
+                ms(latenciaOk.percentil(99.9)), ms(latenciaOk.getMaximo()));
+        if (latenciaFallo.getTotal() > 0) {
+            salida.printf("Latencia fallo (ms): p50 %.2f | p99 %.2f%n",
+                    ms(latenciaFallo.percentil(50)), ms(latenciaFallo.percentil(99)));
+        }
+        salida.printf("Revertidas:         %d (conflicto de stock al reservar: %d)%n", revertidas.sum(), conflictosStock.sum());
+        salida.printf("Rechazadas stock:   %d (validación previa)%n", rechazosStock.sum());
+        salida.printf("Otros errores:      %d%n", otrosErrores.sum());
+        if (ColaVentasAgrupadas.activada()) {
+            ColaVentasAgrupadas cola = ColaVentasAgrupadas.compartida();
+            salida.printf("Escritura agrupada: %d lotes, %.1f ventas por lote (calentamiento incluido)%n",
+                    cola.getLotesEscritos(), cola.getVentasEscritas() / (double) Math.max(1, cola.getLotesEscritos()));
+        }
+    }
+
+    private static double ms(long microsegundos) {
+        return microsegundos / 1000.0;
+    }
+
+    // ==================== OPCIONES ====================
+
+    private static Map<String, String> leerOpciones(String[] args) {
+        Map<String, String> opciones = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Opción no válida: " + args[i] + " (se espera --clave valor)");
+            }
+            opciones.put(args[i].substring(2), args[++i]);
+        }
+        return opciones;
+    }
+
+    /**
+     * "1:50,3:35,10:15" → array con cada número de líneas repetido tantas veces como su peso
+     */
+    private static int[] leerMezcla(String texto) {
+        List<Integer> mezcla = new ArrayList<>();
+        for (String parte : texto.split(",")) {
+            String[] par = parte.trim().split(":");
+            int lineas = Integer.parseInt(par[0]);
+            int peso = par.length > 1 ? Integer.parseInt(par[1]) : 1;
+            if (lineas <= 0 || peso < 0) {
+                throw new IllegalArgumentException("Mezcla de líneas no válida: " + parte);
+            }
+            for (int i = 0; i < peso; i++) {
+                mezcla.add(lineas);
+            }
+        }
+        if (mezcla.isEmpty()) {
+            throw new IllegalArgumentException("La mezcla de líneas está vacía");
+        }
+        return mezcla.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static void fijarStock(int stock) throws Exception {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement("UPDATE PRODUCTOS SET stock = ?")) {
+            pstmt.setInt(1, stock);
+            pstmt.executeUpdate();
+        }
+        ProductoDAOCache.compartido().invalidarTodo();
+    }
+}
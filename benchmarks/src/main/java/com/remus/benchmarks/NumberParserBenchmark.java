@@ -0,0 +1,111 @@
+package com.remus.benchmarks;
+
+import com.remus.utility.NumberParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de NumberParser.parsePrecio con los formatos que acepta, comparado con la versión anterior basada en
+ * expresiones regulares ({@link #parsePrecioRegex}), y de la lectura en bloque de una columna de importación.
+ * Para ver también las reservas de memoria: {@code -prof gc}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NumberParserBenchmark {
+
+    @Param({"1234.56", "1.234,56", "1 234,56 €", "12,34", "$1,234.56"})
+    public String entrada;
+
+    @Benchmark
+    public double parsePrecio() {
+        return NumberParser.parsePrecio(entrada);
+    }
+
+    @Benchmark
+    public double parsePrecioRegex() {
+        return parsePrecioAnterior(entrada);
+    }
+
+    @Benchmark
+    public long parseCentimos() {
+        return NumberParser.parseCentimos(entrada);
+    }
+
+    /**
+     * Columna de 10 000 precios con formatos mezclados, como la de un CSV exportado de otro sistema
+     */
+    @State(Scope.Thread)
+    public static class Columna {
+        private static final String[] FORMATOS = {"%d.%02d", "%,d.%02d €", "$%d.%02d"};
+
+        List<String> valores;
+        double[] destino;
+
+        @Setup
+        public void preparar() {
+            Random random = new Random(42);
+            valores = new ArrayList<>(10_000);
+            for (int i = 0; i < 10_000; i++) {
+                int euros = random.nextInt(100_000);
+                int centimos = random.nextInt(100);
+                String valor = i % 4 == 3
+                        ? String.format(Locale.GERMANY, "%,d,%02d", euros, centimos)
+                        : String.format(Locale.US, FORMATOS[i % 4], euros, centimos);
+                valores.add(valor);
+            }
+            destino = new double[valores.size()];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(10_000)
+    public double[] columna(Columna columna) {
+        NumberParser.parsePrecios(columna.valores, columna.destino);
+        return columna.destino;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(10_000)
+    public double[] columnaRegex(Columna columna) {
+        List<String> valores = columna.valores;
+        for (int i = 0; i < valores.size(); i++) {
+            columna.destino[i] = parsePrecioAnterior(valores.get(i));
+        }
+        return columna.destino;
+    }
+
+    /**
+     * Implementación anterior de NumberParser.parsePrecio, como referencia
+     */
+    static double parsePrecioAnterior(String input) {
+        String s = input.trim();
+        s = s.replaceAll("[€$\\s]", "");
+        s = s.replaceAll("[^0-9,.-]", "");
+        if (s.isEmpty()) throw new NumberFormatException("Precio vacío");
+
+        int lastDot = s.lastIndexOf('.');
+        int lastComma = s.lastIndexOf(',');
+        if (lastComma > -1 && lastDot > -1) {
+            if (lastComma > lastDot) {
+                s = s.replace(".", "");
+                s = s.replace(',', '.');
+            } else {
+                s = s.replace(",", "");
+            }
+        } else if (lastComma > -1) {
+            s = s.replace(',', '.');
+        } else {
+            s = s.replace(",", "");
+        }
+        return Double.parseDouble(s);
+    }
+}
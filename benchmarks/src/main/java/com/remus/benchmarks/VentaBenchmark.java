@@ -0,0 +1,41 @@
+package com.remus.benchmarks;
+
+import com.remus.modelo.LineaVenta;
+import com.remus.modelo.Venta;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Venta.calcularTotal (suma en céntimos, sin reservar memoria) según el número de líneas
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VentaBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int lineas;
+
+    private Venta venta;
+
+    @Setup
+    public void preparar() {
+        List<LineaVenta> lista = new ArrayList<>(lineas);
+        for (int i = 0; i < lineas; i++) {
+            lista.add(new LineaVenta(i + 1, 1, 1 + i % 15, 1 + i % 5, 10.0 + i, 0, 10.0 + i));
+        }
+        venta = new Venta();
+        venta.setLineasVenta(lista);
+    }
+
+    @Benchmark
+    public long calcularTotal() {
+        return venta.calcularTotalCentimos();
+    }
+}
@@ -0,0 +1,52 @@
+package com.remus.benchmarks;
+
+import com.remus.dao.VentaDAOImpl;
+import com.remus.modelo.Venta;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Lectura y mapeo de filas de VENTAS a objetos Venta (cabecera + cliente) en VentaDAOImpl
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VentaDAOBenchmark {
+
+    @Param({"10000"})
+    public int ventas;
+
+    @Param({"500"})
+    public int tamanioPagina;
+
+    private VentaDAOImpl ventaDAO;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        BaseDatosEmbebida.iniciar(ventas);
+        ventaDAO = new VentaDAOImpl();
+    }
+
+    @Benchmark
+    public List<Venta> obtenerPagina() {
+        return ventaDAO.obtenerPagina(null, null, tamanioPagina);
+    }
+
+    @Benchmark
+    public List<Venta> obtenerTodas() {
+        return ventaDAO.obtenerTodas();
+    }
+
+    @Benchmark
+    public long streamTodas() {
+        try (Stream<Venta> stream = ventaDAO.streamTodas()) {
+            return stream.count();
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.remus.connection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché LRU de PreparedStatement asociada a una conexión física del pool.
+ * La clave es el texto SQL (más el modo de claves generadas). Al cerrar la sentencia
+ * el usuario no la destruye: se limpian sus parámetros y queda disponible para la
+ * siguiente llamada con el mismo SQL, reutilizando la sentencia preparada en el servidor.
+ */
+public class CacheSentencias {
+
+    // Contadores globales de todas las conexiones del pool
+    private static final AtomicLong ACIERTOS_TOTALES = new AtomicLong();
+    private static final AtomicLong FALLOS_TOTALES = new AtomicLong();
+
+    private final int capacidad;
+    private final LinkedHashMap<String, Entrada> entradas;
+    private long aciertos = 0;
+    private long fallos = 0;
+
+    public CacheSentencias(int capacidad) {
+        this.capacidad = capacidad;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Devuelve una sentencia preparada para el SQL indicado, reutilizando la cacheada si está libre.
+     * @param conexionVisible conexión que verá el usuario en {@code getConnection()}
+     * @param real conexión física sobre la que se prepara
+     * @param clavesGeneradas {@link Statement#RETURN_GENERATED_KEYS} o {@link Statement#NO_GENERATED_KEYS}
+     */
+    public synchronized PreparedStatement preparar(Connection conexionVisible, Connection real,
+                                                   String sql, int clavesGeneradas) throws SQLException {
+        String clave = clavesGeneradas + "|" + sql;
+        Entrada entrada = entradas.get(clave);
+
+        if (entrada != null && entrada.usoActual == null) {
+            aciertos++;
+            ACIERTOS_TOTALES.incrementAndGet();
+            return entrada.prestar(conexionVisible);
+        }
+
+        fallos++;
+        FALLOS_TOTALES.incrementAndGet();
+        PreparedStatement nueva = real.prepareStatement(sql, clavesGeneradas);
+
+        if (entrada != null) {
+            // Misma sentencia ya en uso en esta conexión (llamadas anidadas): se entrega sin cachear
+            return nueva;
+        }
+
+        entrada = new Entrada(clave, nueva);
+        entradas.put(clave, entrada);
+        desalojarSobrantes();
+        return entrada.prestar(conexionVisible);
+    }
+
+    /**
+     * Libera las sentencias que el usuario no cerró antes de devolver la conexión al pool
+     */
+    public void liberarTodas() {
+        List<Uso> pendientes = new ArrayList<>();
+        synchronized (this) {
+            for (Entrada entrada : entradas.values()) {
+                if (entrada.usoActual != null) {
+                    pendientes.add(entrada.usoActual);
+                }
+            }
+        }
+        pendientes.forEach(Uso::cerrar);
+    }
+
+    /**
+     * Cierra físicamente todas las sentencias cacheadas
+     */
+    public synchronized void cerrarTodas() {
+        for (Entrada entrada : entradas.values()) {
+            entrada.cerrarFisica();
+        }
+        entradas.clear();
+    }
+
+    public synchronized long getAciertos() {
+        return aciertos;
+    }
+
+    public synchronized long getFallos() {
+        return fallos;
+    }
+
+    public synchronized int getTamanio() {
+        return entradas.size();
+    }
+
+    public static long getAciertosTotales() {
+        return ACIERTOS_TOTALES.get();
+    }
+
+    public static long getFallosTotales() {
+        return FALLOS_TOTALES.get();
+    }
+
+    /**
+     * Porcentaje de aciertos global (0-100)
+     */
+    public static double getRatioAciertos() {
+        long a = ACIERTOS_TOTALES.get();
+        long total = a + FALLOS_TOTALES.get();
+        return total == 0 ? 0.0 : a * 100.0 / total;
+    }
+
+    // ==================== INTERNOS ====================
+
+    private void desalojarSobrantes() {
+        Iterator<Map.Entry<String, Entrada>> it = entradas.entrySet().iterator();
+        while (entradas.size() > capacidad && it.hasNext()) {
+            Entrada eldest = it.next().getValue();
+            it.remove();
+            eldest.desalojada = true;
+            if (eldest.usoActual == null) {
+                eldest.cerrarFisica();
+            }
+        }
+    }
+
+    private synchronized void devolver(Entrada entrada, boolean descartar) {
+        entrada.usoActual = null;
+        if (descartar && !entrada.desalojada) {
+            entradas.remove(entrada.clave);
+            entrada.desalojada = true;
+        }
+        if (entrada.desalojada) {
+            entrada.cerrarFisica();
+        }
+    }
+
+    /**
+     * Sentencia física cacheada
+     */
+    private final class Entrada {
+        final String clave;
+        final PreparedStatement real;
+        Uso usoActual;
+        boolean desalojada = false;
+
+        Entrada(String clave, PreparedStatement real) {
+            this.clave = clave;
+            this.real = real;
+        }
+
+        PreparedStatement prestar(Connection conexionVisible) {
+            usoActual = new Uso(this, conexionVisible);
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    usoActual);
+        }
+
+        void cerrarFisica() {
+            try {
+                real.close();
+            } catch (SQLException e) {
+                System.err.println("✗ Error al cerrar PreparedStatement cacheado: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Préstamo de una sentencia cacheada: close() la limpia y la devuelve a la caché
+     */
+    private final class Uso implements InvocationHandler {
+        private final Entrada entrada;
+        private final Connection conexionVisible;
+        private final List<ResultSet> abiertos = new ArrayList<>(1);
+        private boolean cerrado = false;
+        // Si se cambia la configuración de la sentencia no se reutiliza (no hay forma fiable de restaurarla)
+        private boolean modificada = false;
+        private boolean conLotes = false;
+
+        Uso(Entrada entrada, Connection conexionVisible) {
+            this.entrada = entrada;
+            this.conexionVisible = conexionVisible;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String nombre = method.getName();
+            switch (nombre) {
+                case "close":
+                    cerrar();
+                    return null;
+                case "isClosed":
+                    return cerrado;
+                case "getConnection":
+                    return conexionVisible;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "SentenciaCacheada[" + entrada.real + "]";
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) return proxy;
+                    break;
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(proxy)) return true;
+                    break;
+                case "setFetchSize":
+                case "setFetchDirection":
+                case "setMaxRows":
+                case "setLargeMaxRows":
+                case "setMaxFieldSize":
+                case "setQueryTimeout":
+                case "setEscapeProcessing":
+                case "setPoolable":
+                case "setCursorName":
+                case "closeOnCompletion":
+                    modificada = true;
+                    break;
+                case "addBatch":
+                    conLotes = true;
+                    break;
+                default:
+                    break;
+            }
+            if (cerrado) {
+                throw new SQLException("La sentencia ya está cerrada");
+            }
+            Object resultado;
+            try {
+                resultado = method.invoke(entrada.real, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (resultado instanceof ResultSet) {
+                abiertos.add((ResultSet) resultado);
+            }
+            return resultado;
+        }
+
+        synchronized void cerrar() {
+            if (cerrado) {
+                return;
+            }
+            cerrado = true;
+            boolean descartar = modificada;
+            for (ResultSet rs : abiertos) {
+                try {
+                    rs.close();
+                } catch (SQLException ignored) {
+                }
+            }
+            abiertos.clear();
+            try {
+                entrada.real.clearParameters();
+                if (conLotes) {
+                    entrada.real.clearBatch();
+                }
+                entrada.real.clearWarnings();
+            } catch (SQLException e) {
+                descartar = true;
+            }
+            devolver(entrada, descartar);
+        }
+    }
+}
@@ -7,40 +7,79 @@ import java.sql.*;
  */
 public class ConexionBD {
 
-    // Configuración de conexión a MySQL
-    private static final String DRIVER = "com.mysql.cj.jdbc.Driver";
-    private static final String URL = "jdbc:mysql://localhost:3306/AC202";
-    private static final String USUARIO = "alumno";
-    private static final String CONTRASEÑA = "alumno"; // Cambiar según tu configuración
-
-    // Pool simple de conexión (singleton)
-    private static Connection conexionActual = null;
+    // Configuración de conexión a MySQL. Cada valor se puede sustituir con una propiedad del sistema
+    // (-Dremus.db.url=..., etc.), p. ej. para ejecutar los benchmarks contra una base H2 embebida
+    private static final String DRIVER = System.getProperty("remus.db.driver", "com.mysql.cj.jdbc.Driver");
+    // useServerPrepStmts: las sentencias cacheadas por conexión se preparan una sola vez en el servidor
+    // useCursorFetch: respetar setFetchSize() con cursores de servidor en los recorridos por streaming
+    // rewriteBatchedStatements: los lotes de INSERT viajan como un único INSERT multi-fila
+    private static final String URL = System.getProperty("remus.db.url",
+            "jdbc:mysql://localhost:3306/AC202?useServerPrepStmts=true&useCursorFetch=true&rewriteBatchedStatements=true");
+    private static final String USUARIO = System.getProperty("remus.db.usuario", "alumno");
+    private static final String CONTRASEÑA = System.getProperty("remus.db.contrasena", "alumno"); // Cambiar según tu configuración
+
+    // Configuración del pool de conexiones
+    private static final int POOL_MINIMO = 2;
+    private static final int POOL_MAXIMO = 10;
+    private static final long POOL_ESPERA_MAX_MS = 10_000;     // tiempo máximo esperando una conexión libre
+    private static final long POOL_OCIOSO_MAX_MS = 5 * 60_000;  // se retiran conexiones ociosas por encima del mínimo
+    private static final long POOL_VIDA_MAX_MS = 30 * 60_000;   // vida máxima de una conexión física
+    private static final long POOL_VALIDAR_TRAS_MS = 1_000;     // validar al prestar si lleva más de esto sin usarse
+    private static final int SENTENCIAS_POR_CONEXION = 64;      // tamaño de la caché LRU de PreparedStatement
+
+    // Pool compartido (se crea en el primer uso)
+    private static volatile PoolConexiones pool = null;
 
     /**
-     * Obtiene una conexión a la base de datos MySQL
+     * Obtiene una conexión del pool. Al cerrarla ({@code close()} o {@link #cerrarConexion})
+     * se devuelve al pool en lugar de cerrar la conexión física.
+     * Si la instrumentación está activa, sus sentencias quedan medidas en {@link MetricasSQL}.
      * @return Connection objeto de conexión
-     * @throws SQLException si hay error en la conexión
+     * @throws SQLException si hay error en la conexión o se agota la espera del pool
      */
     public static Connection getConexion() throws SQLException {
-        try {
-            // Cargar el driver de MySQL
-            Class.forName(DRIVER);
+        return MetricasSQL.instrumentar(getPool().obtener());
+    }
 
-            // Si no hay conexión o está cerrada, crear nueva
-            if (conexionActual == null || conexionActual.isClosed()) {
-                conexionActual = DriverManager.getConnection(URL, USUARIO, CONTRASEÑA);
-                System.out.println("✓ Conexión establecida a MySQL: gestion_ventas");
+    /**
+     * Obtiene el pool compartido, creándolo si todavía no existe
+     */
+    public static PoolConexiones getPool() throws SQLException {
+        PoolConexiones actual = pool;
+        if (actual == null) {
+            synchronized (ConexionBD.class) {
+                actual = pool;
+                if (actual == null) {
+                    try {
+                        // Cargar el driver de MySQL
+                        Class.forName(DRIVER);
+                    } catch (ClassNotFoundException e) {
+                        throw new SQLException("Driver JDBC no encontrado: " + e.getMessage(), e);
+                    }
+                    actual = new PoolConexiones(URL, USUARIO, CONTRASEÑA,
+                            POOL_MINIMO, POOL_MAXIMO, POOL_ESPERA_MAX_MS,
+                            POOL_OCIOSO_MAX_MS, POOL_VIDA_MAX_MS, POOL_VALIDAR_TRAS_MS,
+                            SENTENCIAS_POR_CONEXION);
+                    pool = actual;
+                }
             }
+        }
+        return actual;
+    }
 
-            return conexionActual;
-
-        } catch (ClassNotFoundException e) {
-            throw new SQLException("Driver MySQL no encontrado: " + e.getMessage(), e);
+    /**
+     * Cierra el pool y todas sus conexiones físicas (al salir de la aplicación)
+     */
+    public static synchronized void cerrarPool() {
+        if (pool != null) {
+            pool.cerrar();
+            pool = null;
+            System.out.println("✓ Pool de conexiones cerrado");
         }
     }
 
     /**
-     * Cierra una conexión de forma segura
+     * Cierra una conexión de forma segura (si viene del pool, la devuelve al pool)
      * @param conn Conexión a cerrar
      */
     public static void cerrarConexion(Connection conn) {
@@ -48,7 +87,6 @@ public class ConexionBD {
             try {
                 if (!conn.isClosed()) {
                     conn.close();
-                    System.out.println("✓ Conexión cerrada");
                 }
             } catch (SQLException e) {
                 System.err.println("✗ Error al cerrar conexión: " + e.getMessage());
@@ -99,15 +137,12 @@ public class ConexionBD {
     }
 
     /**
-     * Verifica si la conexión está activa
-     * @return true si está activa, false en caso contrario
+     * Verifica si el pool está activo y tiene conexiones abiertas
+     * @return true si está activo, false en caso contrario
      */
     public static boolean isConexionActiva() {
-        try {
-            return conexionActual != null && !conexionActual.isClosed();
-        } catch (SQLException e) {
-            return false;
-        }
+        PoolConexiones actual = pool;
+        return actual != null && actual.totales() > 0;
     }
 
     /**
@@ -123,6 +158,14 @@ public class ConexionBD {
             System.out.println("Driver: " + metaData.getDriverName());
             System.out.println("Versión: " + metaData.getDriverVersion());
             System.out.println("URL: " + URL);
+            System.out.printf("Pool: %d en uso, %d libres, %d abiertas (máx. %d)%n",
+                    pool.enUso(), pool.libres(), pool.totales(), POOL_MAXIMO);
+            System.out.printf("Caché de sentencias: %d aciertos, %d fallos (%.1f%%)%n",
+                    CacheSentencias.getAciertosTotales(), CacheSentencias.getFallosTotales(),
+                    CacheSentencias.getRatioAciertos());
+            if (MetricasSQL.isActivo()) {
+                System.out.print(MetricasSQL.resumen(10));
+            }
 
             // Contar registros en las tablas principales
             String[] tablas = {"empresa", "clientes", "productos", "ventas", "lineas_venta"};
@@ -157,6 +200,7 @@ public class ConexionBD {
                 // Cerrar
                 cerrarConexion(conn);
             }
+            cerrarPool();
 
         } catch (SQLException e) {
             System.err.println("✗ Error de conexión: " + e.getMessage());
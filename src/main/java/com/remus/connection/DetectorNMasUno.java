@@ -0,0 +1,215 @@
+package com.remus.connection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Detector de consultas N+1 para desarrollo y pruebas. Los servicios y paneles abren una unidad de trabajo
+ * por operación lógica ({@link #abrir(String)}) y, mientras está abierta, {@link MetricasSQL} anota en ella
+ * cada sentencia que ejecuta el hilo. Al cerrarla se informa de cada SQL normalizado que se ha ejecutado con
+ * más de {@code umbral} juegos de parámetros distintos, junto con la pila de llamadas que lo lanzó.
+ * <p>
+ * Desactivado por defecto. Configuración con propiedades del sistema (o con los setters, p. ej. desde pruebas):
+ * <ul>
+ *   <li>{@code remus.sql.nmas1=true}: activa la detección (necesita también {@code remus.sql.metricas=true})</li>
+ *   <li>{@code remus.sql.nmas1.umbral}: juegos de parámetros distintos permitidos por SQL y unidad (10)</li>
+ *   <li>{@code remus.sql.nmas1.estricto=true}: además de avisar, el cierre de la unidad lanza IllegalStateException</li>
+ * </ul>
+ */
+public final class DetectorNMasUno {
+
+    private static final int MAX_MARCOS_PILA = 12;
+
+    private static volatile boolean activo = Boolean.getBoolean("remus.sql.nmas1");
+    private static volatile int umbral = Integer.getInteger("remus.sql.nmas1.umbral", 10);
+    private static volatile boolean estricto = Boolean.getBoolean("remus.sql.nmas1.estricto");
+    private static volatile Consumer<Informe> notificador = informe -> System.err.println(informe);
+
+    private static final ThreadLocal<UnidadTrabajo> ACTUAL = new ThreadLocal<>();
+    private static final UnidadTrabajo INACTIVA = new UnidadTrabajo(null);
+
+    private DetectorNMasUno() {
+    }
+
+    public static boolean isActivo() {
+        return activo;
+    }
+
+    public static void setActivo(boolean valor) {
+        activo = valor;
+    }
+
+    public static int getUmbral() {
+        return umbral;
+    }
+
+    public static void setUmbral(int valor) {
+        if (valor < 1) {
+            throw new IllegalArgumentException("El umbral debe ser al menos 1");
+        }
+        umbral = valor;
+    }
+
+    public static void setEstricto(boolean valor) {
+        estricto = valor;
+    }
+
+    /**
+     * Destino de los informes (por defecto System.err)
+     */
+    public static void setNotificador(Consumer<Informe> destino) {
+        notificador = destino;
+    }
+
+    /**
+     * Abre una unidad de trabajo en el hilo actual; usar con try-with-resources.
+     * Si ya hay una abierta, la nueva se integra en ella y solo informa la más externa.
+     */
+    public static UnidadTrabajo abrir(String nombre) {
+        if (!activo) {
+            return INACTIVA;
+        }
+        UnidadTrabajo actual = ACTUAL.get();
+        if (actual != null) {
+            actual.profundidad++;
+            return actual;
+        }
+        UnidadTrabajo nueva = new UnidadTrabajo(nombre);
+        ACTUAL.set(nueva);
+        return nueva;
+    }
+
+    /**
+     * true si el hilo actual tiene una unidad abierta (solo entonces merece la pena calcular huellas de parámetros)
+     */
+    static boolean enUnidad() {
+        return activo && ACTUAL.get() != null;
+    }
+
+    /**
+     * Anota una ejecución del SQL normalizado con la huella de sus parámetros
+     */
+    static void anotar(String sqlNormalizado, long huellaParametros) {
+        UnidadTrabajo unidad = ACTUAL.get();
+        if (unidad != null) {
+            unidad.anotar(sqlNormalizado, huellaParametros);
+        }
+    }
+
+    /**
+     * Pila de la aplicación (sin este paquete) en formato Clase.metodo:línea
+     */
+    private static List<String> pilaAplicacion() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(f -> f.getClassName().startsWith("com.remus.")
+                        && !f.getClassName().startsWith("com.remus.connection."))
+                .limit(MAX_MARCOS_PILA)
+                .map(f -> f.getClassName().substring(f.getClassName().lastIndexOf('.') + 1)
+                        + "." + f.getMethodName() + ":" + f.getLineNumber())
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Operación lógica (un reporte, una venta...) cuyas sentencias se vigilan
+     */
+    public static final class UnidadTrabajo implements AutoCloseable {
+        private final String nombre;
+        private final Map<String, Contador> porSql = new LinkedHashMap<>();
+        private int profundidad = 1;
+
+        private UnidadTrabajo(String nombre) {
+            this.nombre = nombre;
+        }
+
+        private void anotar(String sql, long huella) {
+            Contador contador = porSql.computeIfAbsent(sql, clave -> new Contador());
+            contador.ejecuciones++;
+            // Basta con saber si se supera el umbral: no se guardan más huellas de las necesarias
+            if (contador.pila == null && contador.huellas.add(huella) && contador.huellas.size() > umbral) {
+                contador.pila = pilaAplicacion();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (this == INACTIVA || --profundidad > 0) {
+                return;
+            }
+            ACTUAL.remove();
+            List<Informe> informes = new ArrayList<>();
+            for (Map.Entry<String, Contador> e : porSql.entrySet()) {
+                Contador contador = e.getValue();
+                if (contador.pila != null) {
+                    informes.add(new Informe(nombre, e.getKey(), contador.ejecuciones, contador.pila));
+                }
+            }
+            if (informes.isEmpty()) {
+                return;
+            }
+            informes.forEach(notificador);
+            if (estricto) {
+                throw new IllegalStateException("Consultas N+1 detectadas en '" + nombre + "': " + informes.get(0).getSql());
+            }
+        }
+    }
+
+    private static final class Contador {
+        int ejecuciones = 0;
+        final Set<Long> huellas = new HashSet<>();
+        List<String> pila = null;   // se captura al superar el umbral
+    }
+
+    /**
+     * SQL repetido con parámetros distintos dentro de una unidad de trabajo
+     */
+    public static final class Informe {
+        private final String unidad;
+        private final String sql;
+        private final int ejecuciones;
+        private final List<String> pila;
+
+        Informe(String unidad, String sql, int ejecuciones, List<String> pila) {
+            this.unidad = unidad;
+            this.sql = sql;
+            this.ejecuciones = ejecuciones;
+            this.pila = Collections.unmodifiableList(pila);
+        }
+
+        public String getUnidad() {
+            return unidad;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public int getEjecuciones() {
+            return ejecuciones;
+        }
+
+        /**
+         * Pila de llamadas en el momento de superar el umbral, del método que ejecuta el SQL hacia fuera
+         */
+        public List<String> getPila() {
+            return pila;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("⚠ Posible N+1 en '").append(unidad).append("': ").append(ejecuciones)
+                    .append(" ejecuciones de\n    ").append(sql);
+            for (String marco : pila) {
+                sb.append("\n      en ").append(marco);
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,693 @@
+package com.remus.connection;
+
+import com.remus.utility.Histograma;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Instrumentación JDBC: {@link ConexionBD#getConexion()} entrega las conexiones envueltas con
+ * {@link #instrumentar(Connection)} y cada ejecución de sentencia anota, agrupando por SQL normalizado
+ * (literales y listas IN sustituidos por ?), el tiempo de ejecución, las filas devueltas o afectadas
+ * y las idas y vueltas al servidor en histogramas {@link Histograma}. Si hay una unidad de trabajo de
+ * {@link DetectorNMasUno} abierta en el hilo, cada ejecución se anota también en ella.
+ * <p>
+ * Desactivada por defecto: cada llamada a través de los proxies pasa por reflexión. Configuración con
+ * propiedades del sistema:
+ * <ul>
+ *   <li>{@code remus.sql.metricas=true}: activa la instrumentación</li>
+ *   <li>{@code remus.sql.lento.ms}: umbral para avisar de sentencias lentas por System.err (500 ms; 0 = nunca)</li>
+ *   <li>{@code remus.sql.volcado.s}: si es mayor que 0, vuelca {@link #resumen(int)} por consola cada N segundos</li>
+ * </ul>
+ */
+public final class MetricasSQL {
+
+    private static final boolean ACTIVO = Boolean.getBoolean("remus.sql.metricas");
+    private static volatile long umbralLentoMs = Long.getLong("remus.sql.lento.ms", 500L);
+
+    // Máximo de textos SQL distintos recordados sin normalizar (el SQL dinámico no debe llenar la memoria)
+    private static final int MAX_SQL_DISTINTOS = 10_000;
+    private static final int MAX_LONGITUD_AVISO = 300;
+    private static final Pattern LISTA_PARAMETROS = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+
+    // SQL normalizado → acumulador
+    private static final ConcurrentHashMap<String, Acumulador> ESTADISTICAS = new ConcurrentHashMap<>();
+    // Atajo: SQL tal cual lo ejecuta el DAO → acumulador, para no normalizar en cada llamada
+    private static final ConcurrentHashMap<String, Acumulador> POR_SQL_ORIGINAL = new ConcurrentHashMap<>();
+
+    private static ScheduledExecutorService volcado = null;
+
+    static {
+        long segundos = Long.getLong("remus.sql.volcado.s", 0L);
+        if (ACTIVO && segundos > 0) {
+            iniciarVolcado(segundos, TimeUnit.SECONDS);
+        }
+    }
+
+    private MetricasSQL() {
+    }
+
+    public static boolean isActivo() {
+        return ACTIVO;
+    }
+
+    public static long getUmbralLentoMs() {
+        return umbralLentoMs;
+    }
+
+    /**
+     * Cambia el umbral a partir del cual se avisa de una sentencia lenta (0 o negativo = no avisar)
+     */
+    public static void setUmbralLentoMs(long ms) {
+        umbralLentoMs = ms;
+    }
+
+    /**
+     * Envuelve una conexión para que sus sentencias queden medidas. close() y el resto de métodos
+     * se delegan tal cual, así que la conexión sigue volviendo al pool al cerrarla.
+     */
+    public static Connection instrumentar(Connection conexion) {
+        if (!ACTIVO || conexion == null) {
+            return conexion;
+        }
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ConexionMedida(conexion));
+    }
+
+    // ==================== CONSULTA DE MÉTRICAS ====================
+
+    /**
+     * Instantánea de todas las sentencias registradas, de mayor a menor tiempo total
+     */
+    public static List<Estadistica> instantanea() {
+        List<Estadistica> lista = new ArrayList<>(ESTADISTICAS.size());
+        for (Acumulador acumulador : ESTADISTICAS.values()) {
+            lista.add(acumulador.instantanea());
+        }
+        lista.sort(Comparator.comparingLong(Estadistica::getTiempoTotalUs).reversed());
+        return lista;
+    }
+
+    /**
+     * Instantánea de una sentencia concreta (el SQL se normaliza antes de buscarlo); null si no se ha ejecutado
+     */
+    public static Estadistica instantanea(String sql) {
+        Acumulador acumulador = ESTADISTICAS.get(normalizar(sql));
+        return acumulador == null ? null : acumulador.instantanea();
+    }
+
+    /**
+     * Borra todas las métricas (p. ej. antes de medir una operación concreta)
+     */
+    public static void reiniciar() {
+        ESTADISTICAS.clear();
+        POR_SQL_ORIGINAL.clear();
+    }
+
+    /**
+     * Tabla de texto con las {@code maximo} sentencias que más tiempo acumulan
+     */
+    public static String resumen(int maximo) {
+        List<Estadistica> lista = instantanea();
+        StringBuilder sb = new StringBuilder();
+        sb.append("\n=== SENTENCIAS SQL (").append(lista.size()).append(" distintas) ===\n");
+        sb.append(String.format("%10s %9s %10s %9s %9s %9s %9s %10s  %s%n",
+                "Llamadas", "Errores", "Total ms", "p50 ms", "p99 ms", "p99.9 ms", "Máx ms", "Filas", "SQL (origen)"));
+        for (int i = 0; i < Math.min(maximo, lista.size()); i++) {
+            Estadistica e = lista.get(i);
+            sb.append(String.format("%10d %9d %10.1f %9.2f %9.2f %9.2f %9.2f %10d  %s (%s)%n",
+                    e.getLlamadas(), e.getErrores(), e.getTiempoTotalUs() / 1000.0,
+                    e.getP50Us() / 1000.0, e.getP99Us() / 1000.0, e.getP999Us() / 1000.0, e.getMaximoUs() / 1000.0,
+                    e.getFilasTotales(), recortar(e.getSql(), 120), e.getOrigen()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Vuelca {@link #resumen(int)} por consola periódicamente en un hilo demonio
+     */
+    public static synchronized void iniciarVolcado(long periodo, TimeUnit unidad) {
+        detenerVolcado();
+        volcado = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metricas-sql-volcado");
+            t.setDaemon(true);
+            return t;
+        });
+        volcado.scheduleAtFixedRate(() -> System.out.print(resumen(20)), periodo, periodo, unidad);
+    }
+
+    public static synchronized void detenerVolcado() {
+        if (volcado != null) {
+            volcado.shutdownNow();
+            volcado = null;
+        }
+    }
+
+    // ==================== NORMALIZACIÓN ====================
+
+    /**
+     * Normaliza un SQL en una pasada: quita comentarios, colapsa espacios, sustituye literales de cadena
+     * y numéricos por ? y reduce las listas de parámetros {@code (?, ?, ?)} a {@code (?...)}
+     */
+    static String normalizar(String sql) {
+        if (sql == null) {
+            return "(sin SQL)";
+        }
+        StringBuilder sb = new StringBuilder(sql.length());
+        int n = sql.length();
+        int i = 0;
+        while (i < n) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                // Literal de cadena: hasta la comilla de cierre (comilla doblada o \ escapan)
+                i++;
+                while (i < n) {
+                    char d = sql.charAt(i);
+                    if (d == '\\') {
+                        i += 2;
+                    } else if (d == c) {
+                        if (i + 1 < n && sql.charAt(i + 1) == c) {
+                            i += 2;
+                        } else {
+                            i++;
+                            break;
+                        }
+                    } else {
+                        i++;
+                    }
+                }
+                sb.append('?');
+            } else if (c == '-' && i + 1 < n && sql.charAt(i + 1) == '-') {
+                while (i < n && sql.charAt(i) != '\n') {
+                    i++;
+                }
+            } else if (c == '/' && i + 1 < n && sql.charAt(i + 1) == '*') {
+                int fin = sql.indexOf("*/", i + 2);
+                i = fin < 0 ? n : fin + 2;
+            } else if (Character.isWhitespace(c)) {
+                while (i < n && Character.isWhitespace(sql.charAt(i))) {
+                    i++;
+                }
+                if (sb.length() > 0) {
+                    sb.append(' ');
+                }
+            } else if (Character.isDigit(c) && !finDeIdentificador(sb)) {
+                while (i < n && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                sb.append('?');
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        int fin = sb.length();
+        while (fin > 0 && (sb.charAt(fin - 1) == ' ' || sb.charAt(fin - 1) == ';')) {
+            fin--;
+        }
+        sb.setLength(fin);
+        String normalizado = sb.toString();
+        return normalizado.indexOf(',') >= 0 ? LISTA_PARAMETROS.matcher(normalizado).replaceAll("(?...)") : normalizado;
+    }
+
+    private static boolean finDeIdentificador(StringBuilder sb) {
+        if (sb.length() == 0) {
+            return false;
+        }
+        char anterior = sb.charAt(sb.length() - 1);
+        return Character.isLetterOrDigit(anterior) || anterior == '_' || anterior == '`';
+    }
+
+    private static String recortar(String texto, int maximo) {
+        return texto.length() <= maximo ? texto : texto.substring(0, maximo - 3) + "...";
+    }
+
+    // ==================== REGISTRO ====================
+
+    private static Acumulador acumulador(String sql) {
+        Acumulador acumulador = sql != null ? POR_SQL_ORIGINAL.get(sql) : null;
+        if (acumulador != null) {
+            return acumulador;
+        }
+        String normalizado = normalizar(sql);
+        acumulador = ESTADISTICAS.computeIfAbsent(normalizado, clave -> new Acumulador(clave, origen()));
+        if (sql != null && POR_SQL_ORIGINAL.size() < MAX_SQL_DISTINTOS) {
+            POR_SQL_ORIGINAL.put(sql, acumulador);
+        }
+        return acumulador;
+    }
+
+    /**
+     * Primer método de la aplicación (fuera de este paquete) en la pila: el DAO que lanza la sentencia.
+     * Solo se calcula la primera vez que aparece cada SQL.
+     */
+    private static String origen() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(f -> f.getClassName().startsWith("com.remus.")
+                        && !f.getClassName().startsWith("com.remus.connection."))
+                .map(f -> f.getClassName().substring(f.getClassName().lastIndexOf('.') + 1) + "." + f.getMethodName())
+                .findFirst()
+                .orElse("?"));
+    }
+
+    private static void registrarEjecucion(String sql, long nanos, long filas, boolean error, long huellaParametros) {
+        Acumulador acumulador = acumulador(sql);
+        if (DetectorNMasUno.enUnidad()) {
+            DetectorNMasUno.anotar(acumulador.sql, huellaParametros);
+        }
+        long micros = nanos / 1_000;
+        acumulador.tiempoUs.registrar(micros);
+        acumulador.idasVueltas.increment();
+        if (error) {
+            acumulador.errores.increment();
+        }
+        if (filas >= 0) {
+            acumulador.filas.registrar(filas);
+        }
+        long umbral = umbralLentoMs;
+        if (umbral > 0 && micros >= umbral * 1000) {
+            System.err.printf("⚠ SQL lento (%.1f ms, %s): %s%n", micros / 1000.0, acumulador.origen,
+                    recortar(sql != null ? sql.replaceAll("\\s+", " ") : acumulador.sql, MAX_LONGITUD_AVISO));
+        }
+    }
+
+    private static void registrarLectura(String sql, long filas, int tamanioBloque) {
+        Acumulador acumulador = acumulador(sql);
+        acumulador.filas.registrar(filas);
+        // Con cursor de servidor cada bloque de fetchSize filas es una ida y vuelta más
+        if (tamanioBloque > 0 && filas > tamanioBloque) {
+            acumulador.idasVueltas.add((filas - 1) / tamanioBloque);
+        }
+    }
+
+    /**
+     * Métricas acumuladas de un SQL normalizado
+     */
+    private static final class Acumulador {
+        final String sql;
+        final String origen;
+        final Histograma tiempoUs = new Histograma();
+        final Histograma filas = new Histograma();
+        final LongAdder idasVueltas = new LongAdder();
+        final LongAdder errores = new LongAdder();
+
+        Acumulador(String sql, String origen) {
+            this.sql = sql;
+            this.origen = origen;
+        }
+
+        Estadistica instantanea() {
+            Histograma t = tiempoUs.copiar();
+            Histograma f = filas.copiar();
+            return new Estadistica(sql, origen, t.getTotal(), errores.sum(), idasVueltas.sum(),
+                    t.getSuma(), t.percentil(50), t.percentil(99), t.percentil(99.9), t.getMaximo(),
+                    f.getSuma(), f.percentil(99));
+        }
+    }
+
+    /**
+     * Instantánea inmutable de las métricas de un SQL normalizado (tiempos en microsegundos)
+     */
+    public static final class Estadistica {
+        private final String sql;
+        private final String origen;
+        private final long llamadas;
+        private final long errores;
+        private final long idasVueltas;
+        private final long tiempoTotalUs;
+        private final long p50Us;
+        private final long p99Us;
+        private final long p999Us;
+        private final long maximoUs;
+        private final long filasTotales;
+        private final long filasP99;
+
+        Estadistica(String sql, String origen, long llamadas, long errores, long idasVueltas,
+                    long tiempoTotalUs, long p50Us, long p99Us, long p999Us, long maximoUs,
+                    long filasTotales, long filasP99) {
+            this.sql = sql;
+            this.origen = origen;
+            this.llamadas = llamadas;
+            this.errores = errores;
+            this.idasVueltas = idasVueltas;
+            this.tiempoTotalUs = tiempoTotalUs;
+            this.p50Us = p50Us;
+            this.p99Us = p99Us;
+            this.p999Us = p999Us;
+            this.maximoUs = maximoUs;
+            this.filasTotales = filasTotales;
+            this.filasP99 = filasP99;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * Método que lanzó el SQL la primera vez (Clase.metodo)
+         */
+        public String getOrigen() {
+            return origen;
+        }
+
+        public long getLlamadas() {
+            return llamadas;
+        }
+
+        public long getErrores() {
+            return errores;
+        }
+
+        /**
+         * Ejecuciones más bloques extra leídos con cursor de servidor (estimado por fetchSize)
+         */
+        public long getIdasVueltas() {
+            return idasVueltas;
+        }
+
+        public long getTiempoTotalUs() {
+            return tiempoTotalUs;
+        }
+
+        public double getTiempoMedioUs() {
+            return llamadas == 0 ? 0.0 : (double) tiempoTotalUs / llamadas;
+        }
+
+        public long getP50Us() {
+            return p50Us;
+        }
+
+        public long getP99Us() {
+            return p99Us;
+        }
+
+        public long getP999Us() {
+            return p999Us;
+        }
+
+        public long getMaximoUs() {
+            return maximoUs;
+        }
+
+        /**
+         * Filas leídas de los ResultSet o afectadas por las actualizaciones
+         */
+        public long getFilasTotales() {
+            return filasTotales;
+        }
+
+        public long getFilasP99() {
+            return filasP99;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s [%s] llamadas=%d, total=%.1f ms, p99=%.2f ms, filas=%d",
+                    sql, origen, llamadas, tiempoTotalUs / 1000.0, p99Us / 1000.0, filasTotales);
+        }
+    }
+
+    // ==================== PROXIES ====================
+
+    private static Object delegar(Object destino, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Conexión medida: las sentencias que crea se envuelven con {@link SentenciaMedida}
+     */
+    private static final class ConexionMedida implements InvocationHandler {
+        private final Connection real;
+
+        ConexionMedida(Connection real) {
+            this.real = real;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    return envolver(PreparedStatement.class, delegar(real, method, args), (String) args[0], proxy);
+                case "prepareCall":
+                    return envolver(CallableStatement.class, delegar(real, method, args), (String) args[0], proxy);
+                case "createStatement":
+                    return envolver(Statement.class, delegar(real, method, args), null, proxy);
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) return proxy;
+                    break;
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(proxy)) return true;
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "ConexionMedida[" + real + "]";
+                default:
+                    break;
+            }
+            return delegar(real, method, args);
+        }
+
+        private static Object envolver(Class<? extends Statement> tipo, Object sentencia, String sql, Object conexion) {
+            return Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo},
+                    new SentenciaMedida((Statement) sentencia, sql, (Connection) conexion));
+        }
+    }
+
+    /**
+     * Sentencia medida: cronometra cada execute* y cuenta las filas de sus ResultSet
+     */
+    private static final class SentenciaMedida implements InvocationHandler {
+        private final Statement real;
+        private final String sql;            // null en Statement: el SQL llega en cada execute
+        private final Connection conexion;
+        private String sqlLote = null;       // último SQL añadido con addBatch(sql) en un Statement
+        private int tamanioBloque = 0;
+        private LecturaMedida lecturaAbierta = null;
+        // Parámetros fijados con set*(índice, valor), solo mientras DetectorNMasUno tiene una unidad abierta
+        private Map<Integer, Object> parametros = null;
+
+        SentenciaMedida(Statement real, String sql, Connection conexion) {
+            this.real = real;
+            this.sql = sql;
+            this.conexion = conexion;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String nombre = method.getName();
+            switch (nombre) {
+                case "executeQuery":
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                case "execute":
+                case "executeBatch":
+                case "executeLargeBatch":
+                    return ejecutar(proxy, method, args, nombre);
+                case "getResultSet": {
+                    Object rs = delegar(real, method, args);
+                    return rs == null ? null : leer(proxy, (ResultSet) rs, sqlDe(args));
+                }
+                case "addBatch":
+                    if (args != null && args.length == 1) {
+                        sqlLote = (String) args[0];
+                    }
+                    break;
+                case "setFetchSize":
+                    tamanioBloque = (Integer) args[0];
+                    break;
+                case "clearParameters":
+                    parametros = null;
+                    break;
+                case "close":
+                    cerrarLectura();
+                    break;
+                case "getConnection":
+                    return conexion;
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) return proxy;
+                    break;
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(proxy)) return true;
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "SentenciaMedida[" + real + "]";
+                default:
+                    if (sql != null && args != null && args.length >= 2 && args[0] instanceof Integer
+                            && nombre.startsWith("set") && DetectorNMasUno.enUnidad()) {
+                        if (parametros == null) {
+                            parametros = new HashMap<>();
+                        }
+                        parametros.put((Integer) args[0], args[1]);
+                    }
+                    break;
+            }
+            return delegar(real, method, args);
+        }
+
+        /**
+         * Identifica el juego de parámetros de una ejecución (en un Statement, el propio SQL con sus literales)
+         */
+        private long huellaParametros(String sqlEjecutado) {
+            if (!DetectorNMasUno.enUnidad()) {
+                return 0;
+            }
+            long huella = sqlEjecutado != null ? sqlEjecutado.hashCode() : 0;
+            return parametros == null ? huella : huella * 31 + parametros.hashCode();
+        }
+
+        private Object ejecutar(Object proxy, Method method, Object[] args, String nombre) throws Throwable {
+            cerrarLectura();
+            String sqlEjecutado = nombre.endsWith("Batch") && sql == null ? sqlLote : sqlDe(args);
+            long huella = huellaParametros(sqlEjecutado);
+            long inicio = System.nanoTime();
+            Object resultado;
+            try {
+                resultado = delegar(real, method, args);
+            } catch (Throwable e) {
+                registrarEjecucion(sqlEjecutado, System.nanoTime() - inicio, -1, true, huella);
+                throw e;
+            }
+            long nanos = System.nanoTime() - inicio;
+
+            if (resultado instanceof ResultSet) {
+                // Las filas se anotan al terminar de leer el ResultSet
+                registrarEjecucion(sqlEjecutado, nanos, -1, false, huella);
+                return leer(proxy, (ResultSet) resultado, sqlEjecutado);
+            }
+            registrarEjecucion(sqlEjecutado, nanos, filasAfectadas(resultado), false, huella);
+            return resultado;
+        }
+
+        private String sqlDe(Object[] args) {
+            return args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+        }
+
+        private Object leer(Object sentencia, ResultSet rs, String sqlLeido) {
+            cerrarLectura();
+            lecturaAbierta = new LecturaMedida(rs, sqlLeido, tamanioBloque, sentencia);
+            return Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                    lecturaAbierta);
+        }
+
+        private void cerrarLectura() {
+            if (lecturaAbierta != null) {
+                lecturaAbierta.terminar();
+                lecturaAbierta = null;
+            }
+        }
+
+        private static long filasAfectadas(Object resultado) {
+            if (resultado instanceof Integer || resultado instanceof Long) {
+                return Math.max(0, ((Number) resultado).longValue());
+            }
+            if (resultado instanceof int[]) {
+                long total = 0;
+                for (int filas : (int[]) resultado) {
+                    total += Math.max(0, filas);
+                }
+                return total;
+            }
+            if (resultado instanceof long[]) {
+                long total = 0;
+                for (long filas : (long[]) resultado) {
+                    total += Math.max(0, filas);
+                }
+                return total;
+            }
+            return -1; // execute() devuelve boolean: las filas se cuentan en getResultSet
+        }
+    }
+
+    /**
+     * ResultSet medido: cuenta las filas leídas y las anota al agotarlo o cerrarlo
+     */
+    private static final class LecturaMedida implements InvocationHandler {
+        private final ResultSet real;
+        private final String sql;
+        private final Object sentencia;
+        private int tamanioBloque;
+        private long filas = 0;
+        private boolean terminada = false;
+
+        LecturaMedida(ResultSet real, String sql, int tamanioBloque, Object sentencia) {
+            this.real = real;
+            this.sql = sql;
+            this.tamanioBloque = tamanioBloque;
+            this.sentencia = sentencia;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next": {
+                    Object hay = delegar(real, method, args);
+                    if ((Boolean) hay) {
+                        filas++;
+                    } else {
+                        terminar();
+                    }
+                    return hay;
+                }
+                case "setFetchSize":
+                    tamanioBloque = (Integer) args[0];
+                    break;
+                case "close":
+                    terminar();
+                    break;
+                case "getStatement":
+                    return sentencia;
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) return proxy;
+                    break;
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(proxy)) return true;
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            return delegar(real, method, args);
+        }
+
+        void terminar() {
+            if (!terminada) {
+                terminada = true;
+                registrarLectura(sql, filas, tamanioBloque);
+            }
+        }
+    }
+}
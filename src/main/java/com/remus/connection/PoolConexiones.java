@@ -0,0 +1,308 @@
+package com.remus.connection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool acotado de conexiones JDBC.
+ * Mantiene entre {@code minimo} y {@code maximo} conexiones físicas, espera como mucho
+ * {@code esperaMaxMs} para obtener una, valida las conexiones al prestarlas y retira
+ * las que llevan demasiado tiempo ociosas o han superado su vida máxima.
+ * Las conexiones entregadas son proxies: {@code close()} las devuelve al pool.
+ * Cada conexión física lleva su propia {@link CacheSentencias}.
+ */
+public class PoolConexiones {
+
+    private final String url;
+    private final String usuario;
+    private final String contrasena;
+    private final int minimo;
+    private final int maximo;
+    private final long esperaMaxMs;
+    private final long ociosoMaxMs;
+    private final long vidaMaxMs;
+    private final long validarTrasMs;
+    private final int sentenciasPorConexion;
+
+    // Conexiones libres (LIFO: la más reciente es la que menos probabilidad tiene de estar caída)
+    private final LinkedBlockingDeque<ConexionFisica> libres = new LinkedBlockingDeque<>();
+    // Limita el número total de conexiones prestadas + libres
+    private final Semaphore permisos;
+    private final AtomicInteger totales = new AtomicInteger();
+    private final ScheduledExecutorService mantenimiento;
+    private volatile boolean cerrado = false;
+
+    public PoolConexiones(String url, String usuario, String contrasena,
+                          int minimo, int maximo, long esperaMaxMs,
+                          long ociosoMaxMs, long vidaMaxMs, long validarTrasMs,
+                          int sentenciasPorConexion) {
+        if (minimo < 0 || maximo <= 0 || minimo > maximo) {
+            throw new IllegalArgumentException("Tamaño de pool inválido: min=" + minimo + ", max=" + maximo);
+        }
+        this.url = url;
+        this.usuario = usuario;
+        this.contrasena = contrasena;
+        this.minimo = minimo;
+        this.maximo = maximo;
+        this.esperaMaxMs = esperaMaxMs;
+        this.ociosoMaxMs = ociosoMaxMs;
+        this.vidaMaxMs = vidaMaxMs;
+        this.validarTrasMs = validarTrasMs;
+        this.sentenciasPorConexion = sentenciasPorConexion;
+        this.permisos = new Semaphore(maximo, true);
+
+        this.mantenimiento = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pool-conexiones-mantenimiento");
+            t.setDaemon(true);
+            return t;
+        });
+        long periodo = Math.max(1000, Math.min(ociosoMaxMs, vidaMaxMs) / 2);
+        mantenimiento.scheduleWithFixedDelay(this::mantener, periodo, periodo, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Presta una conexión del pool, creando una nueva si no hay libres y no se ha alcanzado el máximo.
+     * @throws SQLException si se agota el tiempo de espera o no se puede conectar
+     */
+    public Connection obtener() throws SQLException {
+        if (cerrado) {
+            throw new SQLException("El pool de conexiones está cerrado");
+        }
+        try {
+            if (!permisos.tryAcquire(esperaMaxMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("Tiempo de espera agotado (" + esperaMaxMs
+                        + " ms) obteniendo conexión del pool. En uso: " + enUso() + "/" + maximo);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido esperando una conexión del pool", e);
+        }
+
+        try {
+            ConexionFisica fisica;
+            while ((fisica = libres.pollFirst()) != null) {
+                if (esUtilizable(fisica)) {
+                    return fisica.prestar();
+                }
+                descartar(fisica);
+            }
+            return crear().prestar();
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Número de conexiones actualmente prestadas
+     */
+    public int enUso() {
+        return maximo - permisos.availablePermits();
+    }
+
+    /**
+     * Número de conexiones físicas abiertas (prestadas + libres)
+     */
+    public int totales() {
+        return totales.get();
+    }
+
+    public int libres() {
+        return libres.size();
+    }
+
+    /**
+     * Cierra el pool y todas las conexiones libres. Las prestadas se cerrarán al devolverse.
+     */
+    public void cerrar() {
+        cerrado = true;
+        mantenimiento.shutdownNow();
+        ConexionFisica fisica;
+        while ((fisica = libres.pollFirst()) != null) {
+            descartar(fisica);
+        }
+    }
+
+    // ==================== INTERNOS ====================
+
+    private ConexionFisica crear() throws SQLException {
+        Connection real = DriverManager.getConnection(url, usuario, contrasena);
+        totales.incrementAndGet();
+        System.out.println("✓ Conexión establecida a MySQL: gestion_ventas (pool " + totales.get() + "/" + maximo + ")");
+        return new ConexionFisica(real);
+    }
+
+    private boolean esUtilizable(ConexionFisica fisica) {
+        long ahora = System.currentTimeMillis();
+        if (ahora - fisica.creada > vidaMaxMs) {
+            return false;
+        }
+        // Validar al prestar solo si lleva un rato parada, para no añadir un ping a cada llamada DAO
+        if (ahora - fisica.ultimoUso < validarTrasMs) {
+            return true;
+        }
+        try {
+            return fisica.real.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void devolver(ConexionFisica fisica) {
+        try {
+            boolean reutilizable = !cerrado && !fisica.real.isClosed()
+                    && System.currentTimeMillis() - fisica.creada <= vidaMaxMs;
+            if (reutilizable) {
+                fisica.sentencias.liberarTodas();
+                // No dejar transacciones a medias en conexiones compartidas
+                if (!fisica.real.getAutoCommit()) {
+                    fisica.real.rollback();
+                    fisica.real.setAutoCommit(true);
+                }
+                fisica.ultimoUso = System.currentTimeMillis();
+                libres.offerFirst(fisica);
+            } else {
+                descartar(fisica);
+            }
+        } catch (SQLException e) {
+            descartar(fisica);
+        } finally {
+            permisos.release();
+        }
+    }
+
+    private void descartar(ConexionFisica fisica) {
+        totales.decrementAndGet();
+        fisica.sentencias.cerrarTodas();
+        try {
+            fisica.real.close();
+        } catch (SQLException e) {
+            System.err.println("✗ Error al cerrar conexión física: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Retira conexiones ociosas o caducadas respetando el mínimo, y repone hasta el mínimo.
+     */
+    private void mantener() {
+        long ahora = System.currentTimeMillis();
+        List<ConexionFisica> retiradas = new ArrayList<>();
+        Iterator<ConexionFisica> it = libres.descendingIterator(); // de más antigua a más reciente
+        while (it.hasNext()) {
+            ConexionFisica fisica = it.next();
+            boolean caducada = ahora - fisica.creada > vidaMaxMs;
+            boolean ociosa = ahora - fisica.ultimoUso > ociosoMaxMs && totales.get() - retiradas.size() > minimo;
+            if ((caducada || ociosa) && libres.remove(fisica)) {
+                retiradas.add(fisica);
+            }
+        }
+        retiradas.forEach(this::descartar);
+
+        while (!cerrado && totales.get() < minimo && permisos.tryAcquire()) {
+            try {
+                ConexionFisica nueva = crear();
+                nueva.ultimoUso = System.currentTimeMillis();
+                libres.offerLast(nueva);
+            } catch (SQLException e) {
+                System.err.println("✗ No se pudo reponer conexión del pool: " + e.getMessage());
+                break;
+            } finally {
+                permisos.release();
+            }
+        }
+    }
+
+    /**
+     * Conexión física real y sus datos de ciclo de vida
+     */
+    private final class ConexionFisica {
+        final Connection real;
+        final CacheSentencias sentencias = new CacheSentencias(sentenciasPorConexion);
+        final long creada = System.currentTimeMillis();
+        volatile long ultimoUso = creada;
+
+        ConexionFisica(Connection real) {
+            this.real = real;
+        }
+
+        Connection prestar() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new ConexionPrestada(this));
+        }
+    }
+
+    /**
+     * Proxy de una conexión prestada: close() la devuelve al pool y la invalida para quien la tenía.
+     */
+    private final class ConexionPrestada implements InvocationHandler {
+        private ConexionFisica fisica;
+
+        ConexionPrestada(ConexionFisica fisica) {
+            this.fisica = fisica;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (fisica != null) {
+                        ConexionFisica f = fisica;
+                        fisica = null;
+                        devolver(f);
+                    }
+                    return null;
+                case "isClosed":
+                    return fisica == null || fisica.real.isClosed();
+                case "prepareStatement":
+                    if (fisica != null && esCacheable(args)) {
+                        int claves = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                        return fisica.sentencias.preparar((Connection) proxy, fisica.real, (String) args[0], claves);
+                    }
+                    break;
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) return proxy;
+                    break;
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(proxy)) return true;
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "ConexionPool[" + (fisica != null ? fisica.real : "devuelta") + "]";
+                default:
+                    break;
+            }
+            if (fisica == null) {
+                throw new SQLException("La conexión ya fue devuelta al pool");
+            }
+            try {
+                return method.invoke(fisica.real, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        /**
+         * Solo se cachean prepareStatement(sql) y prepareStatement(sql, clavesGeneradas)
+         */
+        private boolean esCacheable(Object[] args) {
+            return args.length == 1 || (args.length == 2 && args[1] instanceof Integer);
+        }
+    }
+}
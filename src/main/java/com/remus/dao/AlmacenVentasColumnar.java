@@ -0,0 +1,688 @@
+package com.remus.dao;
+
+import com.remus.connection.ConexionBD;
+import com.remus.dao.interfaces.IClienteDAO;
+import com.remus.modelo.Cliente;
+import com.remus.modelo.Dinero;
+import com.remus.modelo.TablaResultados;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Copia en memoria, por columnas, de VENTAS y LINEAS_VENTA para responder reportes agregados sin ir a MySQL.
+ * Cada atributo es un array primitivo (fecha como día epoch, cliente, producto, cantidad, precio, importe)
+ * y los operadores son bucles sin ramas sobre esos arrays: filtrar devuelve un vector de selección
+ * (índices de fila) y agrupar o sumar recorre solo esas filas. Las columnas de fecha guardan además el
+ * mínimo y el máximo de cada bloque de {@value #TAMANIO_ZONA} filas, así un filtro por rango salta los
+ * bloques que quedan fuera (las ventas se añaden en orden de id, que suele ser también el de fecha).
+ * <p>
+ * Se carga con {@link #cargar()} y se mantiene al día añadiendo las ventas nuevas ({@link #refrescar()}, o
+ * periódicamente con {@link #iniciarSondeo}). El id_venta se asigna al insertar, no al confirmar: una venta
+ * con id menor que el último leído puede confirmarse después. Por eso cada refresco vuelve a leer las últimas
+ * {@code remus.columnar.ventana} ids por debajo de la marca (1000) y descarta las que ya tenía; una venta que
+ * tarde en confirmarse más que eso no se verá hasta la siguiente carga. Cada refresco lee ventas y líneas en
+ * una misma transacción de solo lectura, así que una venta entra junto con sus líneas (se insertan juntas).
+ * Las modificaciones y bajas de ventas ya cargadas tampoco se detectan: para verlas hay que volver a llamar
+ * a {@link #cargar()}.
+ * <p>
+ * Las consultas no bloquean: cada una trabaja sobre la instantánea publicada al empezar, y los refrescos
+ * solo escriben en posiciones que esa instantánea no ve.
+ * <p>
+ * Configuración de {@link #compartido()} con propiedades del sistema:
+ * <ul>
+ *   <li>{@code remus.columnar=true}: ConsultasService responde los reportes agregados desde este almacén (desactivado)</li>
+ *   <li>{@code remus.columnar.sondeo.s}: segundos entre refrescos (5)</li>
+ *   <li>{@code remus.columnar.ventana}: ids por debajo de la marca que se vuelven a leer en cada refresco (1000)</li>
+ * </ul>
+ */
+public class AlmacenVentasColumnar implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(AlmacenVentasColumnar.class.getName());
+
+    private static final int BITS_ZONA = 10;
+    private static final int TAMANIO_ZONA = 1 << BITS_ZONA;
+    private static final int CAPACIDAD_INICIAL = TAMANIO_ZONA;
+    private static final int TAMANIO_BLOQUE = 5000;
+    private static final int VENTANA_RELECTURA = Integer.getInteger("remus.columnar.ventana", 1000);
+
+    private static volatile AlmacenVentasColumnar compartido = null;
+
+    private static final String SQL_MARCA = "SELECT MAX(id_venta) FROM VENTAS";
+    private static final String SQL_VENTAS =
+            "SELECT id_venta, fecha_venta, id_cliente, importe_total FROM VENTAS " +
+            "WHERE id_venta > ? AND id_venta <= ? AND fecha_venta IS NOT NULL ORDER BY id_venta";
+    private static final String SQL_LINEAS =
+            "SELECT lv.id_venta, v.fecha_venta, v.id_cliente, lv.id_producto, lv.cantidad, lv.precio_venta, lv.importe_linea " +
+            "FROM LINEAS_VENTA lv JOIN VENTAS v ON v.id_venta = lv.id_venta " +
+            "WHERE lv.id_venta > ? AND lv.id_venta <= ? AND v.fecha_venta IS NOT NULL ORDER BY lv.id_venta";
+
+    private final IClienteDAO clienteDAO = ClienteDAOCache.compartido();
+
+    // Columnas en construcción (solo las escribe el hilo que tiene el monitor)
+    private int numVentas;
+    private int[] ventaFecha;
+    private int[] ventaCliente;
+    private long[] ventaImporte;       // céntimos
+    private final Zonas ventaZonas = new Zonas();
+
+    private int numLineas;
+    private int[] lineaFecha;
+    private int[] lineaCliente;
+    private int[] lineaProducto;
+    private int[] lineaCantidad;
+    private long[] lineaPrecio;        // céntimos
+    private long[] lineaImporte;       // céntimos
+    private final Zonas lineaZonas = new Zonas();
+
+    private int maxCliente;
+    private int maxProducto;
+    private int marcaIdVenta;
+    // Ids ya cargados dentro de la ventana de relectura (mayores que marcaIdVenta - VENTANA_RELECTURA)
+    private final Set<Integer> idsRecientes = new HashSet<>();
+
+    // Última instantánea publicada; null mientras no se haya cargado
+    private volatile Instantanea actual;
+    private ScheduledExecutorService sondeo;
+
+    /**
+     * Si los reportes deben salir del almacén columnar ({@code -Dremus.columnar=true})
+     */
+    public static boolean activado() {
+        return Boolean.getBoolean("remus.columnar");
+    }
+
+    /**
+     * Almacén común del proceso. Se crea en el primer uso y se carga y refresca en segundo plano
+     * cada {@code remus.columnar.sondeo.s}; hasta que termina la primera carga no está {@link #isCargado()}.
+     */
+    public static AlmacenVentasColumnar compartido() {
+        AlmacenVentasColumnar actual = compartido;
+        if (actual == null) {
+            synchronized (AlmacenVentasColumnar.class) {
+                actual = compartido;
+                if (actual == null) {
+                    actual = new AlmacenVentasColumnar();
+                    actual.iniciarSondeo(Long.getLong("remus.columnar.sondeo.s", 5L), TimeUnit.SECONDS);
+                    compartido = actual;
+                }
+            }
+        }
+        return actual;
+    }
+
+    /**
+     * Número de ventas (o unidades), suma, mínimo y máximo de un importe. Se acumula en céntimos, así que
+     * la suma es exacta y no depende del orden en que se recorran las filas.
+     */
+    public static final class Agregado {
+        private final long num;
+        private final long suma;
+        private final long minimo;
+        private final long maximo;
+
+        Agregado(long num, long suma, long minimo, long maximo) {
+            this.num = num;
+            this.suma = suma;
+            this.minimo = minimo;
+            this.maximo = maximo;
+        }
+
+        public long getNum() {
+            return num;
+        }
+
+        public double getSuma() {
+            return Dinero.aEuros(suma);
+        }
+
+        public long getSumaCentimos() {
+            return suma;
+        }
+
+        public double getMinimo() {
+            return Dinero.aEuros(minimo);
+        }
+
+        public double getMaximo() {
+            return Dinero.aEuros(maximo);
+        }
+
+        public double getPromedio() {
+            return num > 0 ? getSuma() / num : 0.0;
+        }
+    }
+
+    /**
+     * Vista inmutable de las columnas: solo son válidas las primeras numVentas / numLineas posiciones
+     */
+    private static final class Instantanea {
+        final int numVentas;
+        final int[] ventaFecha;
+        final int[] ventaCliente;
+        final long[] ventaImporte;
+        final int[] ventaZonaMin;
+        final int[] ventaZonaMax;
+        final int numLineas;
+        final int[] lineaFecha;
+        final int[] lineaCliente;
+        final int[] lineaProducto;
+        final int[] lineaCantidad;
+        final long[] lineaPrecio;
+        final long[] lineaImporte;
+        final int[] lineaZonaMin;
+        final int[] lineaZonaMax;
+        final int maxCliente;
+        final int maxProducto;
+        final int marcaIdVenta;
+
+        Instantanea(AlmacenVentasColumnar a) {
+            numVentas = a.numVentas;
+            ventaFecha = a.ventaFecha;
+            ventaCliente = a.ventaCliente;
+            ventaImporte = a.ventaImporte;
+            ventaZonaMin = a.ventaZonas.min;
+            ventaZonaMax = a.ventaZonas.max;
+            numLineas = a.numLineas;
+            lineaFecha = a.lineaFecha;
+            lineaCliente = a.lineaCliente;
+            lineaProducto = a.lineaProducto;
+            lineaCantidad = a.lineaCantidad;
+            lineaPrecio = a.lineaPrecio;
+            lineaImporte = a.lineaImporte;
+            lineaZonaMin = a.lineaZonas.min;
+            lineaZonaMax = a.lineaZonas.max;
+            maxCliente = a.maxCliente;
+            maxProducto = a.maxProducto;
+            marcaIdVenta = a.marcaIdVenta;
+        }
+    }
+
+    /**
+     * Mínimo y máximo de una columna de fecha por bloque de filas. Solo se amplían al añadir filas,
+     * así que una instantánea anterior que lea un bloque a medio llenar ve un rango que sigue cubriendo sus filas.
+     */
+    private static final class Zonas {
+        int[] min = new int[0];
+        int[] max = new int[0];
+
+        void reiniciar(int capacidad) {
+            min = new int[capacidad >> BITS_ZONA];
+            max = new int[capacidad >> BITS_ZONA];
+        }
+
+        void ampliar(int capacidad) {
+            min = Arrays.copyOf(min, capacidad >> BITS_ZONA);
+            max = Arrays.copyOf(max, capacidad >> BITS_ZONA);
+        }
+
+        void anotar(int fila, int valor) {
+            int b = fila >> BITS_ZONA;
+            if ((fila & (TAMANIO_ZONA - 1)) == 0) {
+                min[b] = valor;
+                max[b] = valor;
+            } else {
+                min[b] = Math.min(min[b], valor);
+                max[b] = Math.max(max[b], valor);
+            }
+        }
+    }
+
+    // ==================== CARGA Y REFRESCO ====================
+
+    /**
+     * Carga (o recarga) todas las ventas. Las consultas en curso siguen con la instantánea anterior.
+     */
+    public synchronized void cargar() {
+        long inicio = System.nanoTime();
+        // Arrays nuevos: las instantáneas ya publicadas conservan los suyos
+        numVentas = 0;
+        ventaFecha = new int[CAPACIDAD_INICIAL];
+        ventaCliente = new int[CAPACIDAD_INICIAL];
+        ventaImporte = new long[CAPACIDAD_INICIAL];
+        ventaZonas.reiniciar(CAPACIDAD_INICIAL);
+        numLineas = 0;
+        lineaFecha = new int[CAPACIDAD_INICIAL];
+        lineaCliente = new int[CAPACIDAD_INICIAL];
+        lineaProducto = new int[CAPACIDAD_INICIAL];
+        lineaCantidad = new int[CAPACIDAD_INICIAL];
+        lineaPrecio = new long[CAPACIDAD_INICIAL];
+        lineaImporte = new long[CAPACIDAD_INICIAL];
+        lineaZonas.reiniciar(CAPACIDAD_INICIAL);
+        maxCliente = 0;
+        maxProducto = 0;
+        marcaIdVenta = 0;
+        idsRecientes.clear();
+
+        anadirNuevas();
+        actual = new Instantanea(this);
+        LOGGER.log(Level.INFO, "Almacén columnar cargado: {0} ventas, {1} líneas en {2} ms",
+                new Object[]{numVentas, numLineas, (System.nanoTime() - inicio) / 1_000_000});
+    }
+
+    /**
+     * Añade las ventas confirmadas desde el último refresco (carga completa si aún no se cargó)
+     *
+     * @return número de ventas añadidas
+     */
+    public synchronized int refrescar() {
+        if (actual == null) {
+            cargar();
+            return numVentas;
+        }
+        int antes = numVentas;
+        if (anadirNuevas()) {
+            actual = new Instantanea(this);
+        }
+        return numVentas - antes;
+    }
+
+    /**
+     * Refresca en segundo plano cada {@code periodo}; si aún no está cargado, la carga completa se lanza ya.
+     * Se detiene con {@link #close()}.
+     */
+    public synchronized void iniciarSondeo(long periodo, TimeUnit unidad) {
+        if (sondeo != null) {
+            return;
+        }
+        sondeo = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "almacen-columnar");
+            t.setDaemon(true);
+            return t;
+        });
+        sondeo.scheduleWithFixedDelay(() -> {
+            try {
+                refrescar();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "No se pudo refrescar el almacén columnar", e);
+            }
+        }, actual == null ? 0 : periodo, periodo, unidad);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (sondeo != null) {
+            sondeo.shutdownNow();
+            sondeo = null;
+        }
+    }
+
+    public boolean isCargado() {
+        return actual != null;
+    }
+
+    public int getNumVentas() {
+        Instantanea i = actual;
+        return i == null ? 0 : i.numVentas;
+    }
+
+    public int getNumLineas() {
+        Instantanea i = actual;
+        return i == null ? 0 : i.numLineas;
+    }
+
+    public int getMarcaIdVenta() {
+        Instantanea i = actual;
+        return i == null ? 0 : i.marcaIdVenta;
+    }
+
+    // ==================== REPORTES ====================
+
+    /**
+     * Mismo resultado que {@link ConsultasDAOImpl#obtenerResumenVentas}
+     */
+    public TablaResultados obtenerResumenVentas(LocalDate fechaInicio, LocalDate fechaFin) {
+        Agregado a = resumir(fechaInicio, fechaFin);
+        TablaResultados resumen = ConsultasDAOImpl.nuevaTablaResumen();
+        resumen.anadirFila(fechaInicio + " a " + fechaFin,
+                a.getNum(), a.getSuma(), a.getPromedio(), a.getMaximo(), a.getMinimo());
+        return resumen;
+    }
+
+    /**
+     * Mismo resultado que {@link ConsultasDAOImpl#obtenerVentasPorCliente}: clientes activos con ventas en el
+     * rango, de mayor a menor volumen. Nombre y DNI se resuelven con la caché de clientes.
+     */
+    public TablaResultados obtenerVentasPorCliente(LocalDate fechaInicio, LocalDate fechaFin) {
+        Map<Integer, Agregado> porCliente = resumirPorCliente(fechaInicio, fechaFin);
+        Map<Integer, Cliente> clientes = clienteDAO.obtenerPorIds(porCliente.keySet());
+
+        List<Map.Entry<Integer, Agregado>> filas = new ArrayList<>(porCliente.entrySet());
+        filas.sort((x, y) -> Long.compare(y.getValue().getSumaCentimos(), x.getValue().getSumaCentimos()));
+
+        TablaResultados resultados = ConsultasDAOImpl.nuevaTablaVentasPorCliente();
+        for (Map.Entry<Integer, Agregado> fila : filas) {
+            Cliente c = clientes.get(fila.getKey());
+            if (c == null || !Boolean.TRUE.equals(c.getActivo())) {
+                continue;
+            }
+            Agregado a = fila.getValue();
+            resultados.anadirFila(c.getNombre() + " " + c.getApellidos(), c.getDni(),
+                    a.getNum(), a.getSuma(), a.getPromedio(), a.getMaximo(), a.getMinimo());
+        }
+        return resultados;
+    }
+
+    // ==================== CONSULTAS ====================
+
+    public Agregado resumir(LocalDate fechaInicio, LocalDate fechaFin) {
+        Instantanea s = instantanea();
+        int[] sel = filtrarRango(s.ventaFecha, s.ventaZonaMin, s.ventaZonaMax, s.numVentas,
+                diaEpoch(fechaInicio), diaEpoch(fechaFin));
+        return agregar(s.ventaImporte, sel);
+    }
+
+    public Map<Integer, Agregado> resumirPorCliente(LocalDate fechaInicio, LocalDate fechaFin) {
+        Instantanea s = instantanea();
+        int[] sel = filtrarRango(s.ventaFecha, s.ventaZonaMin, s.ventaZonaMax, s.numVentas,
+                diaEpoch(fechaInicio), diaEpoch(fechaFin));
+        return agruparPorClave(s.ventaCliente, s.maxCliente, s.ventaImporte, sel);
+    }
+
+    /**
+     * Importe vendido por producto (suma de importe_linea) en el rango
+     */
+    public Map<Integer, Agregado> resumirLineasPorProducto(LocalDate fechaInicio, LocalDate fechaFin) {
+        Instantanea s = instantanea();
+        int[] sel = filtrarRango(s.lineaFecha, s.lineaZonaMin, s.lineaZonaMax, s.numLineas,
+                diaEpoch(fechaInicio), diaEpoch(fechaFin));
+        return agruparPorClave(s.lineaProducto, s.maxProducto, s.lineaImporte, sel);
+    }
+
+    /**
+     * Unidades vendidas por producto en el rango
+     */
+    public Map<Integer, Long> unidadesPorProducto(LocalDate fechaInicio, LocalDate fechaFin) {
+        Instantanea s = instantanea();
+        int[] sel = filtrarRango(s.lineaFecha, s.lineaZonaMin, s.lineaZonaMax, s.numLineas,
+                diaEpoch(fechaInicio), diaEpoch(fechaFin));
+        long[] unidades = sumarPorClave(s.lineaProducto, s.maxProducto, s.lineaCantidad, sel);
+        Map<Integer, Long> resultado = new LinkedHashMap<>();
+        for (int p = 0; p < unidades.length; p++) {
+            if (unidades[p] != 0) {
+                resultado.put(p, unidades[p]);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Importe de las líneas de un cliente en el rango (precio × cantidad antes de descuentos)
+     */
+    public double importeBrutoCliente(int idCliente, LocalDate fechaInicio, LocalDate fechaFin) {
+        Instantanea s = instantanea();
+        int[] sel = filtrarRango(s.lineaFecha, s.lineaZonaMin, s.lineaZonaMax, s.numLineas,
+                diaEpoch(fechaInicio), diaEpoch(fechaFin));
+        sel = filtrarIgual(s.lineaCliente, sel, idCliente);
+        long total = 0;
+        for (int i : sel) {
+            total += s.lineaPrecio[i] * s.lineaCantidad[i];
+        }
+        return Dinero.aEuros(total);
+    }
+
+    // ==================== OPERADORES SOBRE COLUMNAS ====================
+
+    /**
+     * Vector de selección con las filas cuyo valor está en [desde, hasta]. Los bloques cuyo rango queda
+     * fuera se saltan y los que caen dentro entero se toman sin mirar fila a fila; en el resto la condición
+     * se suma en lugar de usarse en un if, así el bucle no tiene saltos que predecir.
+     */
+    static int[] filtrarRango(int[] columna, int[] zonaMin, int[] zonaMax, int numFilas, int desde, int hasta) {
+        int numZonas = (numFilas + TAMANIO_ZONA - 1) >> BITS_ZONA;
+        int candidatas = 0;
+        for (int b = 0; b < numZonas; b++) {
+            if (zonaMax[b] >= desde && zonaMin[b] <= hasta) {
+                candidatas += Math.min(TAMANIO_ZONA, numFilas - (b << BITS_ZONA));
+            }
+        }
+
+        int[] sel = new int[candidatas];
+        int n = 0;
+        for (int b = 0; b < numZonas; b++) {
+            if (zonaMax[b] < desde || zonaMin[b] > hasta) {
+                continue;
+            }
+            int inicio = b << BITS_ZONA;
+            int fin = Math.min(inicio + TAMANIO_ZONA, numFilas);
+            if (zonaMin[b] >= desde && zonaMax[b] <= hasta) {
+                for (int i = inicio; i < fin; i++) {
+                    sel[n++] = i;
+                }
+                continue;
+            }
+            for (int i = inicio; i < fin; i++) {
+                int v = columna[i];
+                sel[n] = i; // n nunca pasa de las filas candidatas ya vistas: la escritura cae dentro de sel
+                n += (v >= desde & v <= hasta) ? 1 : 0;
+            }
+        }
+        return n == sel.length ? sel : Arrays.copyOf(sel, n);
+    }
+
+    /**
+     * Restringe una selección a las filas cuyo valor es {@code valor}
+     */
+    static int[] filtrarIgual(int[] columna, int[] sel, int valor) {
+        int[] resultado = new int[sel.length];
+        int n = 0;
+        for (int i : sel) {
+            resultado[n] = i;
+            n += columna[i] == valor ? 1 : 0;
+        }
+        return Arrays.copyOf(resultado, n);
+    }
+
+    static Agregado agregar(long[] columna, int[] sel) {
+        if (sel.length == 0) {
+            return new Agregado(0, 0, 0, 0);
+        }
+        long suma = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i : sel) {
+            long v = columna[i];
+            suma += v;
+            min = v < min ? v : min;
+            max = v > max ? v : max;
+        }
+        return new Agregado(sel.length, suma, min, max);
+    }
+
+    /**
+     * Agrupa por una clave entera pequeña (id de cliente o producto) con acumuladores densos indexados
+     * por la propia clave, sin tabla hash.
+     */
+    static Map<Integer, Agregado> agruparPorClave(int[] clave, int maxClave, long[] valor, int[] sel) {
+        long[] num = new long[maxClave + 1];
+        long[] suma = new long[maxClave + 1];
+        long[] min = new long[maxClave + 1];
+        long[] max = new long[maxClave + 1];
+        Arrays.fill(min, Long.MAX_VALUE);
+        Arrays.fill(max, Long.MIN_VALUE);
+        for (int i : sel) {
+            int k = clave[i];
+            long v = valor[i];
+            num[k]++;
+            suma[k] += v;
+            min[k] = v < min[k] ? v : min[k];
+            max[k] = v > max[k] ? v : max[k];
+        }
+        Map<Integer, Agregado> resultado = new HashMap<>();
+        for (int k = 0; k <= maxClave; k++) {
+            if (num[k] > 0) {
+                resultado.put(k, new Agregado(num[k], suma[k], min[k], max[k]));
+            }
+        }
+        return resultado;
+    }
+
+    static long[] sumarPorClave(int[] clave, int maxClave, int[] valor, int[] sel) {
+        long[] suma = new long[maxClave + 1];
+        for (int i : sel) {
+            suma[clave[i]] += valor[i];
+        }
+        return suma;
+    }
+
+    // ==================== INTERNOS ====================
+
+    private Instantanea instantanea() {
+        Instantanea i = actual;
+        if (i == null) {
+            throw new IllegalStateException("El almacén columnar no está cargado");
+        }
+        return i;
+    }
+
+    private static int diaEpoch(LocalDate fecha) {
+        return (int) fecha.toEpochDay();
+    }
+
+    /**
+     * Lee de la BD las ventas (y sus líneas) desde la ventana de relectura bajo la marca hasta el id_venta
+     * máximo de ahora, saltando las que ya estaban cargadas
+     *
+     * @return true si se añadió algo
+     */
+    private boolean anadirNuevas() {
+        int ventasAntes = numVentas;
+        int lineasAntes = numLineas;
+        int maxClienteAntes = maxCliente;
+        int maxProductoAntes = maxProducto;
+        int desde = Math.max(0, marcaIdVenta - VENTANA_RELECTURA);
+        Set<Integer> nuevas = new HashSet<>();
+        Connection conn = null;
+        try {
+            conn = ConexionBD.getConexion();
+            // Marca, ventas y líneas de la misma instantánea: una venta confirmada entre dos lecturas no
+            // puede entrar sin sus líneas ni con ellas repetidas en el refresco siguiente
+            conn.setAutoCommit(false);
+            int hasta;
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(SQL_MARCA)) {
+                hasta = rs.next() ? rs.getInt(1) : 0;
+            }
+            if (hasta <= desde) {
+                conn.commit();
+                return false;
+            }
+
+            try (PreparedStatement pstmt = conn.prepareStatement(SQL_VENTAS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                pstmt.setFetchSize(TAMANIO_BLOQUE);
+                pstmt.setInt(1, desde);
+                pstmt.setInt(2, hasta);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        int idVenta = rs.getInt(1);
+                        if (idsRecientes.contains(idVenta)) {
+                            continue;
+                        }
+                        anadirVenta((int) rs.getDate(2).toLocalDate().toEpochDay(), rs.getInt(3), Dinero.leer(rs, 4));
+                        if (idVenta > hasta - VENTANA_RELECTURA) {
+                            nuevas.add(idVenta);
+                        }
+                    }
+                }
+            }
+
+            try (PreparedStatement pstmt = conn.prepareStatement(SQL_LINEAS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                pstmt.setFetchSize(TAMANIO_BLOQUE);
+                pstmt.setInt(1, desde);
+                pstmt.setInt(2, hasta);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        if (idsRecientes.contains(rs.getInt(1))) {
+                            continue;
+                        }
+                        anadirLinea((int) rs.getDate(2).toLocalDate().toEpochDay(), rs.getInt(3), rs.getInt(4),
+                                rs.getInt(5), Dinero.leer(rs, 6), Dinero.leer(rs, 7));
+                    }
+                }
+            }
+            conn.commit();
+
+            int limite = hasta - VENTANA_RELECTURA;
+            idsRecientes.removeIf(id -> id <= limite);
+            idsRecientes.addAll(nuevas);
+            marcaIdVenta = hasta;
+            return numVentas > ventasAntes || numLineas > lineasAntes;
+        } catch (SQLException e) {
+            // Descartar lo añadido a medias para que el siguiente refresco no lo duplique
+            numVentas = ventasAntes;
+            numLineas = lineasAntes;
+            maxCliente = maxClienteAntes;
+            maxProducto = maxProductoAntes;
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ignored) {
+                }
+            }
+            throw new RuntimeException("Error al cargar el almacén columnar: " + e.getMessage(), e);
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                } catch (SQLException ignored) {
+                }
+            }
+            ConexionBD.cerrarConexion(conn);
+        }
+    }
+
+    private void anadirVenta(int fecha, int idCliente, long importe) {
+        if (numVentas == ventaFecha.length) {
+            int nueva = numVentas * 2;
+            ventaFecha = Arrays.copyOf(ventaFecha, nueva);
+            ventaCliente = Arrays.copyOf(ventaCliente, nueva);
+            ventaImporte = Arrays.copyOf(ventaImporte, nueva);
+            ventaZonas.ampliar(nueva);
+        }
+        ventaFecha[numVentas] = fecha;
+        ventaCliente[numVentas] = idCliente;
+        ventaImporte[numVentas] = importe;
+        ventaZonas.anotar(numVentas, fecha);
+        numVentas++;
+        maxCliente = Math.max(maxCliente, idCliente);
+    }
+
+    private void anadirLinea(int fecha, int idCliente, int idProducto, int cantidad, long precio, long importe) {
+        if (numLineas == lineaFecha.length) {
+            int nueva = numLineas * 2;
+            lineaFecha = Arrays.copyOf(lineaFecha, nueva);
+            lineaCliente = Arrays.copyOf(lineaCliente, nueva);
+            lineaProducto = Arrays.copyOf(lineaProducto, nueva);
+            lineaCantidad = Arrays.copyOf(lineaCantidad, nueva);
+            lineaPrecio = Arrays.copyOf(lineaPrecio, nueva);
+            lineaImporte = Arrays.copyOf(lineaImporte, nueva);
+            lineaZonas.ampliar(nueva);
+        }
+        lineaFecha[numLineas] = fecha;
+        lineaCliente[numLineas] = idCliente;
+        lineaProducto[numLineas] = idProducto;
+        lineaCantidad[numLineas] = cantidad;
+        lineaPrecio[numLineas] = precio;
+        lineaImporte[numLineas] = importe;
+        lineaZonas.anotar(numLineas, fecha);
+        numLineas++;
+        maxProducto = Math.max(maxProducto, idProducto);
+    }
+}
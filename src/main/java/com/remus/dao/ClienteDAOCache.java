@@ -0,0 +1,320 @@
+package com.remus.dao;
+
+import com.remus.dao.interfaces.IClienteDAO;
+import com.remus.modelo.Cliente;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Caché de clientes por id y por DNI delante de otro {@link IClienteDAO}.
+ * Recuerda también los ids que no existen (caché negativa, con caducidad más corta) para que
+ * las comprobaciones repetidas de un id libre no vuelvan a la BD. Acotada por LRU y TTL;
+ * las escrituras a través de este DAO invalidan lo afectado. Se devuelven copias.
+ */
+public class ClienteDAOCache implements IClienteDAO {
+
+    private static final int CAPACIDAD_POR_DEFECTO = 2000;
+    private static final long TTL_POR_DEFECTO_MS = TimeUnit.MINUTES.toMillis(10);
+    private static final long TTL_AUSENTES_POR_DEFECTO_MS = TimeUnit.SECONDS.toMillis(30);
+    private static final ClienteDAOCache COMPARTIDO = new ClienteDAOCache(new ClienteDAOImpl(),
+            CAPACIDAD_POR_DEFECTO, TTL_POR_DEFECTO_MS, TTL_AUSENTES_POR_DEFECTO_MS);
+
+    private final IClienteDAO origen;
+    private final int capacidad;
+    private final long ttlMs;
+    private final long ttlAusentesMs;
+
+    // Entrada con cliente == null: el id no existe
+    private final LinkedHashMap<Integer, Entrada> porId = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Integer> idPorDni = new HashMap<>();
+    // Cambia en cada invalidación: una carga iniciada antes no debe volver a meter datos viejos
+    private long version = 0;
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+
+    public ClienteDAOCache(IClienteDAO origen, int capacidad, long ttlMs, long ttlAusentesMs) {
+        this.origen = origen;
+        this.capacidad = capacidad;
+        this.ttlMs = ttlMs;
+        this.ttlAusentesMs = ttlAusentesMs;
+    }
+
+    /**
+     * Instancia común a DAOs, servicios y vistas, para que las escrituras de uno invaliden lo que leen los demás
+     */
+    public static ClienteDAOCache compartido() {
+        return COMPARTIDO;
+    }
+
+    @Override
+    public Cliente obtenerPorCod(int idCod) {
+        long versionLeida;
+        synchronized (this) {
+            Entrada entrada = vigente(idCod);
+            if (entrada != null) {
+                aciertos.incrementAndGet();
+                return copiar(entrada.cliente);
+            }
+            versionLeida = version;
+        }
+        fallos.incrementAndGet();
+        Cliente cliente = origen.obtenerPorCod(idCod);
+        guardar(idCod, cliente, versionLeida);
+        return copiar(cliente);
+    }
+
+    /**
+     * Sirve de memoria los ids conocidos y solo consulta (por lotes) los que faltan
+     */
+    @Override
+    public Map<Integer, Cliente> obtenerPorIds(Collection<Integer> idsCli) {
+        return obtenerPorIds(idsCli, origen::obtenerPorIds);
+    }
+
+    /**
+     * Como {@link #obtenerPorIds(Collection)}; los que faltan se consultan con la conexión del llamador
+     */
+    @Override
+    public Map<Integer, Cliente> obtenerPorIds(Connection conn, Collection<Integer> idsCli) {
+        return obtenerPorIds(idsCli, pendientes -> origen.obtenerPorIds(conn, pendientes));
+    }
+
+    private Map<Integer, Cliente> obtenerPorIds(Collection<Integer> idsCli,
+                                                Function<List<Integer>, Map<Integer, Cliente>> cargar) {
+        Map<Integer, Cliente> clientes = new HashMap<>();
+        if (idsCli == null || idsCli.isEmpty()) {
+            return clientes;
+        }
+
+        List<Integer> pendientes = new ArrayList<>();
+        long versionLeida;
+        synchronized (this) {
+            for (Integer id : idsCli) {
+                Entrada entrada = vigente(id);
+                if (entrada == null) {
+                    pendientes.add(id);
+                } else if (entrada.cliente != null) {
+                    clientes.put(id, copiar(entrada.cliente));
+                }
+            }
+            versionLeida = version;
+        }
+        aciertos.addAndGet(idsCli.size() - pendientes.size());
+        fallos.addAndGet(pendientes.size());
+
+        if (!pendientes.isEmpty()) {
+            Map<Integer, Cliente> cargados = cargar.apply(pendientes);
+            for (Integer id : pendientes) {
+                Cliente cliente = cargados.get(id);
+                guardar(id, cliente, versionLeida);
+                if (cliente != null) {
+                    clientes.put(id, copiar(cliente));
+                }
+            }
+        }
+        return clientes;
+    }
+
+    @Override
+    public Cliente obtenerPorDNI(String dniCli) {
+        long versionLeida;
+        synchronized (this) {
+            Integer id = idPorDni.get(dniCli);
+            Entrada entrada = id != null ? vigente(id) : null;
+            if (entrada != null && entrada.cliente != null) {
+                aciertos.incrementAndGet();
+                return copiar(entrada.cliente);
+            }
+            versionLeida = version;
+        }
+        fallos.incrementAndGet();
+        Cliente cliente = origen.obtenerPorDNI(dniCli);
+        if (cliente != null) {
+            guardar(cliente.getIdCliente(), cliente, versionLeida);
+        }
+        return copiar(cliente);
+    }
+
+    @Override
+    public List<Cliente> obtenerTodos() {
+        return origen.obtenerTodos();
+    }
+
+    @Override
+    public boolean insertar(Cliente cliente) {
+        try {
+            return origen.insertar(cliente);
+        } finally {
+            invalidarAusentes();
+        }
+    }
+
+    @Override
+    public boolean actualizar(Cliente cliente) {
+        try {
+            return origen.actualizar(cliente);
+        } finally {
+            invalidar(cliente.getIdCliente());
+        }
+    }
+
+    @Override
+    public boolean eliminar(int idCli) {
+        try {
+            return origen.eliminar(idCli);
+        } finally {
+            invalidar(idCli);
+        }
+    }
+
+    @Override
+    public Cliente obtenerPorNombre(String nombreCli) {
+        return origen.obtenerPorNombre(nombreCli);
+    }
+
+    @Override
+    public List<Cliente> obtenerPorApellidos(String apellidos) {
+        return origen.obtenerPorApellidos(apellidos);
+    }
+
+    /**
+     * Actualiza por nombre, que puede afectar a varios clientes: se invalidan los que coinciden
+     */
+    @Override
+    public boolean actualizarApellidos(String nombreCli, String nuevoApellido) {
+        try {
+            return origen.actualizarApellidos(nombreCli, nuevoApellido);
+        } finally {
+            invalidarPorNombre(nombreCli);
+        }
+    }
+
+    @Override
+    public int contarClientes(int idCli) {
+        return origen.contarClientes(idCli);
+    }
+
+    public synchronized void invalidar(Integer idCli) {
+        version++;
+        Entrada entrada = porId.remove(idCli);
+        if (entrada != null && entrada.cliente != null) {
+            idPorDni.remove(entrada.cliente.getDni());
+        }
+    }
+
+    public synchronized void invalidarTodo() {
+        version++;
+        porId.clear();
+        idPorDni.clear();
+    }
+
+    public long getAciertos() {
+        return aciertos.get();
+    }
+
+    public long getFallos() {
+        return fallos.get();
+    }
+
+    /**
+     * Porcentaje de aciertos (0-100)
+     */
+    public double getRatioAciertos() {
+        long a = aciertos.get();
+        long total = a + fallos.get();
+        return total == 0 ? 0.0 : a * 100.0 / total;
+    }
+
+    public synchronized int getTamanio() {
+        return porId.size();
+    }
+
+    // ==================== INTERNOS ====================
+
+    private synchronized void invalidarAusentes() {
+        version++;
+        porId.values().removeIf(entrada -> entrada.cliente == null);
+    }
+
+    private synchronized void invalidarPorNombre(String nombreCli) {
+        version++;
+        Iterator<Entrada> it = porId.values().iterator();
+        while (it.hasNext()) {
+            Entrada entrada = it.next();
+            if (entrada.cliente != null && Objects.equals(entrada.cliente.getNombre(), nombreCli)) {
+                it.remove();
+                idPorDni.remove(entrada.cliente.getDni());
+            }
+        }
+    }
+
+    /**
+     * Entrada cacheada (positiva o negativa) si existe y no ha caducado (debe llamarse con el monitor tomado)
+     */
+    private Entrada vigente(int idCli) {
+        Entrada entrada = porId.get(idCli);
+        if (entrada == null) {
+            return null;
+        }
+        long ttl = entrada.cliente != null ? ttlMs : ttlAusentesMs;
+        if (System.currentTimeMillis() - entrada.cargada > ttl) {
+            porId.remove(idCli);
+            if (entrada.cliente != null) {
+                idPorDni.remove(entrada.cliente.getDni());
+            }
+            return null;
+        }
+        return entrada;
+    }
+
+    private synchronized void guardar(int idCli, Cliente cliente, long versionLeida) {
+        if (versionLeida != version) {
+            return;
+        }
+        Entrada anterior = porId.put(idCli, new Entrada(copiar(cliente)));
+        if (anterior != null && anterior.cliente != null) {
+            idPorDni.remove(anterior.cliente.getDni());
+        }
+        if (cliente != null && cliente.getDni() != null) {
+            idPorDni.put(cliente.getDni(), idCli);
+        }
+
+        Iterator<Entrada> it = porId.values().iterator();
+        while (porId.size() > capacidad && it.hasNext()) {
+            Entrada eldest = it.next();
+            it.remove();
+            if (eldest.cliente != null) {
+                idPorDni.remove(eldest.cliente.getDni());
+            }
+        }
+    }
+
+    private static Cliente copiar(Cliente c) {
+        if (c == null) {
+            return null;
+        }
+        return new Cliente(c.getIdCliente(), c.getNombre(), c.getApellidos(), c.getDni(), c.getTelefono(),
+                c.getDireccionHabitual(), c.getDireccionEnvio(), c.getFechaRegistro(), c.getActivo());
+    }
+
+    private static final class Entrada {
+        final Cliente cliente;
+        final long cargada = System.currentTimeMillis();
+
+        Entrada(Cliente cliente) {
+            this.cliente = cliente;
+        }
+    }
+}
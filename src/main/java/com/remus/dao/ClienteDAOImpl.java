@@ -5,8 +5,7 @@ import com.remus.dao.interfaces.IClienteDAO;
 import com.remus.modelo.Cliente;
 
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 public class ClienteDAOImpl implements IClienteDAO {
 
@@ -16,7 +15,8 @@ public class ClienteDAOImpl implements IClienteDAO {
     public Cliente obtenerPorCod(int idCli) {
         String sql = "SELECT " + SELECT_FIELDS + " FROM CLIENTES WHERE id_cliente = ?";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, idCli);
             ResultSet rs = pstmt.executeQuery();
 
@@ -29,13 +29,55 @@ public class ClienteDAOImpl implements IClienteDAO {
         }
     }
 
+    @Override
+    public Map<Integer, Cliente> obtenerPorIds(Collection<Integer> idsCli) {
+        if (idsCli == null || idsCli.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        try (Connection conn = ConexionBD.getConexion()) {
+            return obtenerPorIds(conn, idsCli);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al buscar Clientes por lotes: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<Integer, Cliente> obtenerPorIds(Connection conn, Collection<Integer> idsCli) {
+        Map<Integer, Cliente> clientes = new HashMap<>();
+        if (idsCli == null || idsCli.isEmpty()) {
+            return clientes;
+        }
+
+        try {
+            for (List<Integer> lote : ConsultaPorLotes.partir(idsCli)) {
+                int marcadores = ConsultaPorLotes.marcadoresPara(lote.size());
+                String sql = "SELECT " + SELECT_FIELDS + " FROM CLIENTES WHERE id_cliente IN (" + ConsultaPorLotes.marcadores(marcadores) + ")";
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    ConsultaPorLotes.asignar(pstmt, 1, lote, marcadores);
+                    ResultSet rs = pstmt.executeQuery();
+
+                    while (rs.next()) {
+                        Cliente cliente = mapearCliente(rs);
+                        clientes.put(cliente.getIdCliente(), cliente);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al buscar Clientes por lotes: " + e.getMessage(), e);
+        }
+        return clientes;
+    }
+
     @Override
     public List<Cliente> obtenerTodos() {
         List<Cliente> Clientes = new ArrayList<>();
         String sql = "SELECT " + SELECT_FIELDS + " FROM CLIENTES ORDER BY id_cliente";
 
-        try (Statement stmt = ConexionBD.getConexion().createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
 
             while (rs.next()) {
                 Clientes.add(mapearCliente(rs));
@@ -51,7 +93,8 @@ public class ClienteDAOImpl implements IClienteDAO {
         // Se añaden 'activo' y 'fecha_registro' a la inserción.
         String sql = "INSERT INTO CLIENTES (dni, nombre, apellidos, telefono, direccion_habitual, direccion_envio, activo, fecha_registro) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, Cliente.getDni());
             pstmt.setString(2, Cliente.getNombre());
             pstmt.setString(3, Cliente.getApellidos());
@@ -78,7 +121,8 @@ public class ClienteDAOImpl implements IClienteDAO {
         // Se añaden 'activo' y 'fecha_registro' a la actualización (aunque fecha_registro no se modifica, se debe considerar si fuera editable)
         String sql = "UPDATE CLIENTES SET NOMBRE = ?, APELLIDOS = ?, DNI = ?, TELEFONO = ?, DIRECCION_HABITUAL = ?, DIRECCION_ENVIO = ?, ACTIVO = ? WHERE ID_CLIENTE = ?";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, cliente.getNombre());
             pstmt.setString(2, cliente.getApellidos());
             pstmt.setString(3, cliente.getDni());
@@ -105,7 +149,8 @@ public class ClienteDAOImpl implements IClienteDAO {
     public boolean eliminar(int idCli) {
         String sql = "DELETE FROM CLIENTES WHERE ID_CLIENTE = ?";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, idCli);
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
@@ -119,7 +164,8 @@ public class ClienteDAOImpl implements IClienteDAO {
     public Cliente obtenerPorNombre(String nombreCli) {
         String sql = "SELECT " + SELECT_FIELDS + " FROM CLIENTES WHERE NOMBRE = ?";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, nombreCli);
             ResultSet rs = pstmt.executeQuery();
 
@@ -136,7 +182,8 @@ public class ClienteDAOImpl implements IClienteDAO {
     public Cliente obtenerPorDNI(String dniCli) {
         String sql = "SELECT " + SELECT_FIELDS + " FROM CLIENTES WHERE DNI = ?";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, dniCli);
             ResultSet rs = pstmt.executeQuery();
 
@@ -154,7 +201,8 @@ public class ClienteDAOImpl implements IClienteDAO {
         List<Cliente> clientes = new ArrayList<>();
         String sql = "SELECT " + SELECT_FIELDS + " FROM CLIENTES WHERE APELLIDOS = ?";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, apellidos);
             ResultSet rs = pstmt.executeQuery();
 
@@ -171,7 +219,8 @@ public class ClienteDAOImpl implements IClienteDAO {
     public boolean actualizarApellidos(String nombreCli, String nuevaApellidos) {
         String sql = "UPDATE CLIENTES SET APELLIDOS = ? WHERE NOMBRE = ?";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, nuevaApellidos);
             pstmt.setString(2, nombreCli);
             return pstmt.executeUpdate() > 0;
@@ -184,7 +233,8 @@ public class ClienteDAOImpl implements IClienteDAO {
     public int contarClientes(int idCli) {
         String sql = "SELECT COUNT(*) as total FROM CLIENTES WHERE ID_CLIENTE = ?";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, idCli);
             ResultSet rs = pstmt.executeQuery();
 
@@ -202,17 +252,18 @@ public class ClienteDAOImpl implements IClienteDAO {
      */
     private Cliente mapearCliente(ResultSet rs) throws SQLException {
         // CORRECCIÓN: Se añaden los campos fecha_registro y activo.
-        return new Cliente(
-                rs.getInt("id_cliente"),
-                rs.getString("dni"),
-                rs.getString("nombre"),
-                rs.getString("apellidos"),
-                rs.getObject("telefono", Integer.class), // Usar getObject para manejar NULL
-                rs.getString("direccion_habitual"),
-                rs.getString("direccion_envio"),
-                // Mapeo de fecha_registro y activo
-                rs.getTimestamp("fecha_registro") != null ? rs.getTimestamp("fecha_registro").toLocalDateTime() : null,
-                rs.getBoolean("activo")
-        );
+        // Con setters: el orden del constructor (nombre, apellidos, dni) no coincide con el de las columnas
+        Cliente c = new Cliente();
+        c.setIdCliente(rs.getInt("id_cliente"));
+        c.setDni(rs.getString("dni"));
+        c.setNombre(rs.getString("nombre"));
+        c.setApellidos(rs.getString("apellidos"));
+        c.setTelefono(rs.getObject("telefono", Integer.class)); // Usar getObject para manejar NULL
+        c.setDireccionHabitual(rs.getString("direccion_habitual"));
+        c.setDireccionEnvio(rs.getString("direccion_envio"));
+        // Mapeo de fecha_registro y activo
+        c.setFechaRegistro(rs.getTimestamp("fecha_registro") != null ? rs.getTimestamp("fecha_registro").toLocalDateTime() : null);
+        c.setActivo(rs.getBoolean("activo"));
+        return c;
     }
 }
\ No newline at end of file
@@ -0,0 +1,335 @@
+package com.remus.dao;
+
+import com.remus.connection.ConexionBD;
+import com.remus.modelo.Venta;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Escritura agrupada (group commit) de ventas: las ventas enviadas entran en una cola acotada y un único hilo
+ * escritor las saca por lotes y las confirma juntas en una sola transacción, con un solo commit (y un solo
+ * fsync del log en MySQL) por lote en lugar de uno por venta. Cada venta tiene su savepoint: si una falla
+ * (p. ej. sin stock al reservar), solo se revierte esa y las demás del lote se confirman.
+ * <p>
+ * El escritor espera como mucho {@code esperaMs} desde la primera venta de un lote a que lleguen más, hasta
+ * {@code tamanioLote}. Con la cola llena, {@link #enviar} bloquea al llamador hasta {@code esperaEncolarMs};
+ * si no hay sitio en ese tiempo, la venta se rechaza.
+ * <p>
+ * El escritor es un hilo daemon: las ventas encoladas se pierden si la JVM termina sin {@link #cerrar()}.
+ * La cola compartida se cierra con {@link #cerrarCompartida()} (la consola lo hace antes de cerrar el pool)
+ * y, por si la aplicación sale por otro camino (p. ej. {@code System.exit} al cerrar la ventana), también
+ * desde un shutdown hook que se registra al crearla.
+ * <p>
+ * Configuración de {@link #compartida()} con propiedades del sistema:
+ * <ul>
+ *   <li>{@code remus.ventas.agrupadas=true}: VentaService registra las ventas a través de esta cola (desactivado)</li>
+ *   <li>{@code remus.ventas.lote}: ventas por transacción como máximo (32)</li>
+ *   <li>{@code remus.ventas.espera.ms}: espera a más ventas antes de escribir un lote incompleto (2 ms)</li>
+ *   <li>{@code remus.ventas.cola}: capacidad de la cola (1024)</li>
+ *   <li>{@code remus.ventas.encolar.ms}: espera máxima por sitio en la cola llena (5000 ms)</li>
+ * </ul>
+ */
+public class ColaVentasAgrupadas {
+
+    private static final Logger LOGGER = Logger.getLogger(ColaVentasAgrupadas.class.getName());
+
+    private static final long SONDEO_CIERRE_MS = 200;
+
+    private static volatile ColaVentasAgrupadas compartida = null;
+
+    private final BlockingQueue<Pendiente> cola;
+    private final int tamanioLote;
+    private final long esperaNs;
+    private final long esperaEncolarMs;
+    private final VentaDAOImpl ventaDAO = new VentaDAOImpl();
+    private final ReservaStock reservaStock = ReservaStock.compartida();
+    private final ResumenVentasDiarias resumenVentas = new ResumenVentasDiarias();
+    private final Thread escritor;
+    private volatile boolean cerrada = false;
+
+    private final LongAdder lotes = new LongAdder();
+    private final LongAdder ventas = new LongAdder();
+
+    /**
+     * @param capacidad       ventas que pueden esperar en la cola
+     * @param tamanioLote     ventas por transacción como máximo
+     * @param esperaMs        espera a más ventas tras la primera de un lote (0 = escribir lo que haya)
+     * @param esperaEncolarMs espera máxima de {@link #enviar} con la cola llena
+     */
+    public ColaVentasAgrupadas(int capacidad, int tamanioLote, long esperaMs, long esperaEncolarMs) {
+        if (capacidad < 1 || tamanioLote < 1 || esperaMs < 0 || esperaEncolarMs < 0) {
+            throw new IllegalArgumentException("Configuración de la cola de ventas no válida");
+        }
+        this.cola = new ArrayBlockingQueue<>(capacidad);
+        this.tamanioLote = tamanioLote;
+        this.esperaNs = TimeUnit.MILLISECONDS.toNanos(esperaMs);
+        this.esperaEncolarMs = esperaEncolarMs;
+        this.escritor = new Thread(this::escribirEnBucle, "escritor-ventas");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    /**
+     * Si VentaService debe usar la escritura agrupada ({@code -Dremus.ventas.agrupadas=true})
+     */
+    public static boolean activada() {
+        return Boolean.getBoolean("remus.ventas.agrupadas");
+    }
+
+    /**
+     * Cola común del proceso, creada en el primer uso con la configuración de las propiedades del sistema
+     */
+    public static ColaVentasAgrupadas compartida() {
+        ColaVentasAgrupadas actual = compartida;
+        if (actual == null) {
+            synchronized (ColaVentasAgrupadas.class) {
+                actual = compartida;
+                if (actual == null) {
+                    actual = new ColaVentasAgrupadas(
+                            Integer.getInteger("remus.ventas.cola", 1024),
+                            Integer.getInteger("remus.ventas.lote", 32),
+                            Long.getLong("remus.ventas.espera.ms", 2L),
+                            Long.getLong("remus.ventas.encolar.ms", 5_000L));
+                    Runtime.getRuntime().addShutdownHook(new Thread(actual::cerrar, "cierre-escritor-ventas"));
+                    compartida = actual;
+                }
+            }
+        }
+        return actual;
+    }
+
+    /**
+     * Cierra la cola compartida si llegó a crearse (escribe lo pendiente antes de volver). Debe llamarse
+     * antes de {@link com.remus.connection.ConexionBD#cerrarPool()}.
+     */
+    public static void cerrarCompartida() {
+        ColaVentasAgrupadas actual = compartida;
+        if (actual != null) {
+            actual.cerrar();
+        }
+    }
+
+    /**
+     * Encola una venta ya validada. El futuro se completa con su id_venta cuando su lote se confirma
+     * (la venta ya tiene entonces id e importe total), o con la excepción si la venta no se pudo registrar.
+     */
+    public CompletableFuture<Integer> enviar(Venta venta) {
+        Pendiente pendiente = new Pendiente(venta);
+        if (cerrada) {
+            return fallida(pendiente, new IllegalStateException("La cola de ventas está cerrada"));
+        }
+        try {
+            if (!cola.offer(pendiente, esperaEncolarMs, TimeUnit.MILLISECONDS)) {
+                return fallida(pendiente, new IllegalStateException("Cola de ventas llena: "
+                        + cola.size() + " ventas esperando desde hace más de " + esperaEncolarMs + " ms"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallida(pendiente, e);
+        }
+        // Se cerró entre la comprobación y el offer: si el escritor no la ha sacado aún, puede que ya no la saque
+        if (cerrada && cola.remove(pendiente)) {
+            return fallida(pendiente, new IllegalStateException("La cola de ventas está cerrada"));
+        }
+        return pendiente.futuro;
+    }
+
+    /**
+     * Deja de aceptar ventas y espera a que el escritor vacíe la cola y confirme el último lote.
+     * Se puede llamar varias veces.
+     */
+    public void cerrar() {
+        cerrada = true;
+        boolean interrumpido = false;
+        while (escritor.isAlive()) {
+            try {
+                escritor.join();
+            } catch (InterruptedException e) {
+                interrumpido = true; // no volver hasta que el último lote esté confirmado
+            }
+        }
+        if (interrumpido) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPendientes() {
+        return cola.size();
+    }
+
+    public long getLotesEscritos() {
+        return lotes.sum();
+    }
+
+    public long getVentasEscritas() {
+        return ventas.sum();
+    }
+
+    // ==================== ESCRITOR ====================
+
+    private void escribirEnBucle() {
+        List<Pendiente> lote = new ArrayList<>(tamanioLote);
+        while (true) {
+            try {
+                Pendiente primera = cola.poll(SONDEO_CIERRE_MS, TimeUnit.MILLISECONDS);
+                if (primera == null) {
+                    if (cerrada && cola.isEmpty()) {
+                        rechazarRestantes();
+                        return;
+                    }
+                    continue;
+                }
+                lote.add(primera);
+                completarLote(lote);
+                escribir(lote);
+            } catch (InterruptedException e) {
+                // Nadie interrumpe al escritor a propósito: seguir hasta vaciar la cola
+            } catch (RuntimeException e) {
+                // Los fallos de un lote ya se entregan a sus futuros; esto no debe parar al escritor
+                LOGGER.log(Level.SEVERE, "Error inesperado en el escritor de ventas", e);
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    /**
+     * Falla las ventas que entraron en la cola justo cuando el escritor terminaba
+     */
+    private void rechazarRestantes() {
+        List<Pendiente> restantes = new ArrayList<>();
+        cola.drainTo(restantes);
+        for (Pendiente p : restantes) {
+            fallida(p, new IllegalStateException("La cola de ventas está cerrada"));
+        }
+    }
+
+    /**
+     * Añade al lote lo que ya hay en la cola y espera a más ventas hasta llenarlo o agotar {@code esperaNs}
+     */
+    private void completarLote(List<Pendiente> lote) throws InterruptedException {
+        long limite = System.nanoTime() + esperaNs;
+        cola.drainTo(lote, tamanioLote - lote.size());
+        while (lote.size() < tamanioLote) {
+            long restante = limite - System.nanoTime();
+            if (restante <= 0) {
+                break;
+            }
+            Pendiente siguiente = cola.poll(restante, TimeUnit.NANOSECONDS);
+            if (siguiente == null) {
+                break;
+            }
+            lote.add(siguiente);
+            cola.drainTo(lote, tamanioLote - lote.size());
+        }
+    }
+
+    /**
+     * Inserta el lote en una transacción (un savepoint por venta) y completa los futuros tras el commit.
+     * Si falla la propia transacción (conexión, commit, interbloqueo), fallan todas las ventas que quedaban.
+     */
+    @SuppressWarnings("try")
+    private void escribir(List<Pendiente> lote) {
+        Set<Integer> productos = new HashSet<>();
+        for (Pendiente p : lote) {
+            productos.addAll(VentaDAOImpl.cantidadesPorProducto(p.venta).keySet());
+        }
+
+        Connection con = null;
+        try (ReservaStock.Bloqueo ignored = reservaStock.bloquear(productos)) {
+            con = ConexionBD.getConexion();
+            resumenVentas.asegurarInicializado(con);
+            con.setAutoCommit(false);
+            for (Pendiente p : lote) {
+                Savepoint savepoint = con.setSavepoint();
+                try {
+                    p.idVenta = ventaDAO.insertarConLineas(con, p.venta);
+                    con.releaseSavepoint(savepoint);
+                } catch (SQLException | RuntimeException e) {
+                    con.rollback(savepoint);
+                    if (e instanceof SQLException && esErrorDeTransaccion((SQLException) e)) {
+                        throw e;
+                    }
+                    p.error = e;
+                }
+            }
+            con.commit();
+        } catch (Exception e) {
+            if (con != null) {
+                try {
+                    con.rollback();
+                } catch (SQLException exRollback) {
+                    LOGGER.log(Level.WARNING, "Error al revertir el lote de ventas", exRollback);
+                }
+            }
+            for (Pendiente p : lote) {
+                if (p.error == null) {
+                    p.error = e;
+                }
+            }
+        } finally {
+            try {
+                if (con != null) {
+                    con.setAutoCommit(true);
+                }
+            } catch (SQLException ignored) {
+            }
+            ConexionBD.cerrarConexion(con);
+        }
+
+        int confirmadas = 0;
+        for (Pendiente p : lote) {
+            if (p.error == null) {
+                ventaDAO.marcarRegistrada(p.venta, p.idVenta);
+                p.futuro.complete(p.idVenta);
+                confirmadas++;
+            } else {
+                fallida(p, p.error);
+            }
+        }
+        lotes.increment();
+        ventas.add(confirmadas);
+    }
+
+    /**
+     * Conexión perdida o transacción revertida entera por el servidor (interbloqueo, tiempo de espera):
+     * no basta con volver al savepoint
+     */
+    private static boolean esErrorDeTransaccion(SQLException e) {
+        String estado = e.getSQLState();
+        return estado != null && (estado.startsWith("08") || estado.startsWith("40"));
+    }
+
+    /**
+     * Completa el futuro con el mismo tipo de error que lanza VentaDAOImpl.insertarConLineas
+     */
+    private static CompletableFuture<Integer> fallida(Pendiente p, Throwable causa) {
+        p.futuro.completeExceptionally(
+                new Exception("Error en la transacción de inserción de venta: " + causa.getMessage(), causa));
+        return p.futuro;
+    }
+
+    private static final class Pendiente {
+        final Venta venta;
+        final CompletableFuture<Integer> futuro = new CompletableFuture<>();
+        int idVenta;
+        Throwable error;
+
+        Pendiente(Venta venta) {
+            this.venta = venta;
+        }
+    }
+}
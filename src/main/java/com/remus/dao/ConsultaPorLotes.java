@@ -0,0 +1,67 @@
+package com.remus.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Utilidad para consultas "WHERE columna IN (?, ?, ...)" por lotes.
+ * Los lotes se rellenan hasta tamaños fijos (repitiendo el último id) para que el texto SQL
+ * se repita y aproveche la caché de sentencias de cada conexión.
+ */
+final class ConsultaPorLotes {
+
+    // Tamaños de lote permitidos: cualquier lista se parte en trozos de estos tamaños
+    private static final int[] TAMANIOS = {1, 10, 50, 200, 500};
+    static final int TAMANIO_MAXIMO = TAMANIOS[TAMANIOS.length - 1];
+
+    private ConsultaPorLotes() {
+    }
+
+    /**
+     * Parte los ids (sin duplicados ni nulos) en lotes de como mucho {@link #TAMANIO_MAXIMO}
+     */
+    static List<List<Integer>> partir(Collection<Integer> ids) {
+        List<Integer> unicos = new ArrayList<>(new LinkedHashSet<>(ids));
+        unicos.removeIf(id -> id == null);
+        List<List<Integer>> lotes = new ArrayList<>();
+        for (int i = 0; i < unicos.size(); i += TAMANIO_MAXIMO) {
+            lotes.add(unicos.subList(i, Math.min(i + TAMANIO_MAXIMO, unicos.size())));
+        }
+        return lotes;
+    }
+
+    /**
+     * Número de marcadores a usar para un lote (el menor tamaño fijo que lo contiene)
+     */
+    static int marcadoresPara(int tamanioLote) {
+        for (int t : TAMANIOS) {
+            if (tamanioLote <= t) return t;
+        }
+        return TAMANIO_MAXIMO;
+    }
+
+    /**
+     * Devuelve "?, ?, ..., ?" con n marcadores
+     */
+    static String marcadores(int n) {
+        StringBuilder sb = new StringBuilder(n * 3);
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Asigna los ids del lote a partir del parámetro indicado, repitiendo el último hasta completar
+     */
+    static void asignar(PreparedStatement pstmt, int primerParametro, List<Integer> lote, int marcadores) throws SQLException {
+        for (int i = 0; i < marcadores; i++) {
+            pstmt.setInt(primerParametro + i, lote.get(Math.min(i, lote.size() - 1)));
+        }
+    }
+}
@@ -2,32 +2,37 @@ package com.remus.dao;
 
 import com.remus.connection.ConexionBD;
 import com.remus.dao.interfaces.IConsultasDAO;
+import com.remus.modelo.Dinero;
+import com.remus.modelo.TablaResultados;
+import com.remus.modelo.TablaResultados.Tipo;
+import com.remus.modelo.VentaDetallada;
 
 import java.sql.*;
+import java.sql.Date;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 
 public class ConsultasDAOImpl implements IConsultasDAO {
 
+    // Filas que el driver trae por viaje al recorrer ventas con líneas
+    private static final int TAMANIO_BLOQUE = 500;
+
+    private final ResumenVentasDiarias resumenVentas = new ResumenVentasDiarias();
+
     @Override
-    public List<Map<String, Object>> obtenerClientesOrdenados() {
-        List<Map<String, Object>> resultados = new ArrayList<>();
+    public TablaResultados obtenerClientesOrdenados() {
+        TablaResultados resultados = new TablaResultados(
+                new String[]{"ID", "Nombre", "Apellidos", "DNI", "Teléfono", "Dir. Habitual", "Dir. Envío"},
+                new Tipo[]{Tipo.ENTERO, Tipo.TEXTO, Tipo.TEXTO, Tipo.TEXTO, Tipo.TEXTO, Tipo.TEXTO, Tipo.TEXTO});
         String sql = "SELECT id_cliente, nombre, apellidos, dni, telefono, direccion_habitual, direccion_envio FROM CLIENTES ORDER BY apellidos, nombre";
 
         try (Connection conn = ConexionBD.getConexion();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
 
             while (rs.next()) {
-                Map<String, Object> fila = new LinkedHashMap<>();
-                fila.put("ID", rs.getInt("id_cliente"));
-                fila.put("Nombre", rs.getString("nombre"));
-                fila.put("Apellidos", rs.getString("apellidos"));
-                fila.put("DNI", rs.getString("dni"));
-                fila.put("Teléfono", rs.getString("telefono"));
-                fila.put("Dir. Habitual", rs.getString("direccion_habitual"));
-                fila.put("Dir. Envío", rs.getString("direccion_envio"));
-                resultados.add(fila);
+                resultados.anadirFila(rs);
             }
         } catch (SQLException e) {
             throw new RuntimeException("Error en Consulta clientes: " + e.getMessage(), e);
@@ -36,22 +41,18 @@ public class ConsultasDAOImpl implements IConsultasDAO {
     }
 
     @Override
-    public List<Map<String, Object>> obtenerProductosOrdenados() {
-        List<Map<String, Object>> resultados = new ArrayList<>();
+    public TablaResultados obtenerProductosOrdenados() {
+        TablaResultados resultados = new TablaResultados(
+                new String[]{"ID", "Código", "Descripción", "Precio", "Stock"},
+                new Tipo[]{Tipo.ENTERO, Tipo.TEXTO, Tipo.TEXTO, Tipo.MONEDA, Tipo.ENTERO});
         String sql = "SELECT id_producto, codigo, descripcion, precio_recomendado, stock FROM PRODUCTOS WHERE activo = 1 ORDER BY descripcion";
 
         try (Connection conn = ConexionBD.getConexion();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
 
             while (rs.next()) {
-                Map<String, Object> fila = new LinkedHashMap<>();
-                fila.put("ID", rs.getInt("id_producto"));
-                fila.put("Código", rs.getString("codigo"));
-                fila.put("Descripción", rs.getString("descripcion"));
-                fila.put("Precio", String.format("%.2f €", rs.getDouble("precio_recomendado")));
-                fila.put("Stock", rs.getInt("stock"));
-                resultados.add(fila);
+                resultados.anadirFila(rs);
             }
         } catch (SQLException e) {
             throw new RuntimeException("Error en Consulta productos: " + e.getMessage(), e);
@@ -60,9 +61,16 @@ public class ConsultasDAOImpl implements IConsultasDAO {
     }
 
     @Override
-    public Map<Integer, Map<String, Object>> obtenerVentasConLineas() {
-        Map<Integer, Map<String, Object>> VENTAS = new LinkedHashMap<>();
-        String sql = "SELECT v.id_venta, v.fecha_venta, c.id_cliente, c.nombre, c.apellidos, " +
+    public List<VentaDetallada> obtenerVentasConLineas() {
+        List<VentaDetallada> ventas = new ArrayList<>();
+        recorrerVentasConLineas(ventas::add);
+        return ventas;
+    }
+
+    @Override
+    public void recorrerVentasConLineas(Consumer<VentaDetallada> accion) {
+        // Ordenado por venta: todas las líneas de una venta llegan seguidas, así que basta una pasada
+        String sql = "SELECT v.id_venta, v.fecha_venta, c.nombre, c.apellidos, " +
                 "v.descuento_global, v.importe_total, lv.id_linea, p.codigo, p.descripcion, " +
                 "lv.cantidad, lv.precio_venta, lv.descuento_linea, lv.importe_linea " +
                 "FROM VENTAS v " +
@@ -72,103 +80,81 @@ public class ConsultasDAOImpl implements IConsultasDAO {
                 "ORDER BY v.id_venta DESC, lv.id_linea";
 
         try (Connection conn = ConexionBD.getConexion();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            while (rs.next()) {
-                int idVenta = rs.getInt("id_venta");
-
-                if (!VENTAS.containsKey(idVenta)) {
-                    Map<String, Object> venta = new LinkedHashMap<>();
-                    venta.put("ID Venta", idVenta);
-                    venta.put("Fecha", rs.getString("fecha_venta"));
-                    venta.put("Cliente", rs.getString("nombre") + " " + rs.getString("apellidos"));
-                    double descuentoGlobalNum = rs.getDouble("descuento_global");
-                    venta.put("Descuento Global", descuentoGlobalNum);
-                    double importeBd = rs.getDouble("importe_total");
-                    venta.put("Importe Total", importeBd);
-                    venta.put("_total_lineas_calc", 0.0);
-                    venta.put("Líneas", new ArrayList<>());
-                    VENTAS.put(idVenta, venta);
-                }
-
-                if (rs.getInt("id_linea") > 0) {
-                    Map<String, Object> linea = new LinkedHashMap<>();
-                    linea.put("Código", rs.getString("codigo"));
-                    linea.put("Descripción", rs.getString("descripcion"));
-                    linea.put("Cantidad", rs.getInt("cantidad"));
-                    linea.put("Precio Unit.", String.format("%.2f €", rs.getDouble("precio_venta")));
-                    linea.put("Descuento", rs.getInt("descuento_linea") + "%");
-                    linea.put("Importe Línea", String.format("%.2f €", rs.getDouble("importe_linea")));
-
-                    @SuppressWarnings("unchecked")
-                    List<Map<String, Object>> lineas = (List<Map<String, Object>>) VENTAS.get(idVenta).get("Líneas");
-                    lineas.add(linea);
-
-                    double impLinea = rs.getDouble("importe_linea");
-                    double acumulado = (double) VENTAS.get(idVenta).get("_total_lineas_calc");
-                    acumulado += impLinea;
-                    VENTAS.get(idVenta).put("_total_lineas_calc", acumulado);
-                }
-            }
+             PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(TAMANIO_BLOQUE);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                VentaDetallada actual = null;
+                long totalLineas = 0; // céntimos
+
+                while (rs.next()) {
+                    int idVenta = rs.getInt(1);
+
+                    if (actual == null || actual.getIdVenta() != idVenta) {
+                        if (actual != null) {
+                            accion.accept(completar(actual, totalLineas));
+                        }
+                        actual = new VentaDetallada();
+                        actual.setIdVenta(idVenta);
+                        actual.setFecha(rs.getString(2));
+                        actual.setCliente(rs.getString(3) + " " + rs.getString(4));
+                        actual.setDescuentoGlobal(rs.getDouble(5));
+                        actual.setImporteTotal(rs.getDouble(6));
+                        totalLineas = 0;
+                    }
 
-            for (Map<String, Object> venta : VENTAS.values()) {
-                double importeBd = 0.0;
-                Object impObj = venta.get("Importe Total");
-                if (impObj instanceof Number) {
-                    importeBd = ((Number) impObj).doubleValue();
-                } else if (impObj != null) {
-                    try {
-                        importeBd = Double.parseDouble(impObj.toString().replaceAll("[^0-9.,-]",""));
-                    } catch (NumberFormatException ignored) {
+                    if (rs.getInt(7) > 0) {
+                        long importeLinea = Dinero.leer(rs, 13);
+                        actual.getLineas().add(new VentaDetallada.Linea(
+                                rs.getString(8), rs.getString(9), rs.getInt(10),
+                                rs.getDouble(11), rs.getInt(12), Dinero.aEuros(importeLinea)));
+                        totalLineas += importeLinea;
                     }
                 }
 
-                if (importeBd <= 0.0) {
-                    double totalLineas = (double) venta.get("_total_lineas_calc");
-                    double desc = 0.0;
-                    Object dgObj = venta.get("Descuento Global");
-                    if (dgObj instanceof Number) desc = ((Number) dgObj).doubleValue();
-                    double totalConDesc = totalLineas - (totalLineas * desc / 100.0);
-                    venta.put("Importe Total", String.format("%.2f €", totalConDesc));
-                } else {
-                    venta.put("Importe Total", String.format("%.2f €", importeBd));
+                if (actual != null) {
+                    accion.accept(completar(actual, totalLineas));
                 }
-                Object dgObj2 = venta.get("Descuento Global");
-                double dgVal = 0.0;
-                if (dgObj2 instanceof Number) dgVal = ((Number) dgObj2).doubleValue();
-                venta.put("Descuento Global", String.format("%.1f%%", dgVal));
             }
         } catch (SQLException e) {
             throw new RuntimeException("Error en Consulta ventas: " + e.getMessage(), e);
         }
+    }
 
-        return VENTAS;
+    /**
+     * Ventas sin importe guardado: total a partir de sus líneas y el descuento global
+     */
+    private static VentaDetallada completar(VentaDetallada venta, long totalLineas) {
+        if (venta.getImporteTotal() <= 0.0) {
+            venta.setImporteTotal(Dinero.aEuros(Dinero.aplicarDescuentoPb(totalLineas,
+                    Dinero.puntosBasicos(venta.getDescuentoGlobal()))));
+        }
+        return venta;
     }
 
     @Override
-    public Map<String, Object> obtenerResumenVentas(LocalDate fechaInicio, LocalDate fechaFin) {
-        Map<String, Object> resumen = new LinkedHashMap<>();
-        String sql = "SELECT COUNT(DISTINCT id_venta) AS num_VENTAS, SUM(importe_total) AS volumen_total, AVG(importe_total) AS promedio_venta, MAX(importe_total) AS venta_maxima, MIN(importe_total) AS venta_minima FROM VENTAS WHERE fecha_venta BETWEEN ? AND ?";
+    public TablaResultados obtenerResumenVentas(LocalDate fechaInicio, LocalDate fechaFin) {
+        TablaResultados resumen = nuevaTablaResumen();
+        // Se lee del resumen diario: una fila por día del rango, no una por venta
+        String sql = "SELECT SUM(num_ventas) AS num_VENTAS, SUM(importe_total) AS volumen_total, MAX(importe_max) AS venta_maxima, MIN(importe_min) AS venta_minima FROM RESUMEN_VENTAS_DIA WHERE fecha BETWEEN ? AND ?";
 
         try (Connection conn = ConexionBD.getConexion();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            resumenVentas.asegurarInicializado(conn);
 
-            pstmt.setString(1, fechaInicio.toString());
-            pstmt.setString(2, fechaFin.toString());
+            pstmt.setDate(1, Date.valueOf(fechaInicio));
+            pstmt.setDate(2, Date.valueOf(fechaFin));
             ResultSet rs = pstmt.executeQuery();
 
             if (rs.next()) {
-                resumen.put("Período", fechaInicio + " a " + fechaFin);
-                resumen.put("Número de VENTAS", rs.getInt("num_VENTAS"));
+                int numVentas = rs.getInt("num_VENTAS");
                 double volumen = rs.getDouble("volumen_total");
-                resumen.put("Volumen Total", String.format("%.2f €", volumen));
-                double promedio = rs.getDouble("promedio_venta");
-                resumen.put("Promedio por Venta", String.format("%.2f €", promedio));
-                double maxima = rs.getDouble("venta_maxima");
-                resumen.put("Venta Máxima", String.format("%.2f €", maxima));
-                double minima = rs.getDouble("venta_minima");
-                resumen.put("Venta Mínima", String.format("%.2f €", minima));
+                resumen.anadirFila(fechaInicio + " a " + fechaFin,
+                        numVentas,
+                        volumen,
+                        numVentas > 0 ? volumen / numVentas : 0.0,
+                        rs.getDouble("venta_maxima"),
+                        rs.getDouble("venta_minima"));
             }
         } catch (SQLException e) {
             throw new RuntimeException("Error en Consulta resumen: " + e.getMessage(), e);
@@ -177,35 +163,40 @@ public class ConsultasDAOImpl implements IConsultasDAO {
     }
 
     @Override
-    public List<Map<String, Object>> obtenerVentasPorCliente(LocalDate fechaInicio, LocalDate fechaFin) {
-        List<Map<String, Object>> resultados = new ArrayList<>();
-        String sql = "SELECT c.id_cliente, CONCAT(c.nombre, ' ', c.apellidos) AS cliente, c.dni, COUNT(v.id_venta) AS num_VENTAS, SUM(v.importe_total) AS volumen_total, AVG(v.importe_total) AS promedio_venta, MAX(v.importe_total) AS venta_maxima, MIN(v.importe_total) AS venta_minima FROM CLIENTES c LEFT JOIN VENTAS v ON c.id_cliente = v.id_cliente AND v.fecha_venta BETWEEN ? AND ? WHERE c.activo = 1 GROUP BY c.id_cliente HAVING COUNT(v.id_venta) > 0 ORDER BY volumen_total DESC";
+    public TablaResultados obtenerVentasPorCliente(LocalDate fechaInicio, LocalDate fechaFin) {
+        TablaResultados resultados = nuevaTablaVentasPorCliente();
+        // Las columnas del SELECT siguen el orden del esquema de la tabla de resultados
+        // Se agrega el resumen por día y cliente del rango en lugar de recorrer las ventas
+        String sql = "SELECT CONCAT(c.nombre, ' ', c.apellidos) AS cliente, c.dni, SUM(r.num_ventas) AS num_VENTAS, SUM(r.importe_total) AS volumen_total, SUM(r.importe_total) / SUM(r.num_ventas) AS promedio_venta, MAX(r.importe_max) AS venta_maxima, MIN(r.importe_min) AS venta_minima FROM RESUMEN_VENTAS_DIA_CLIENTE r JOIN CLIENTES c ON c.id_cliente = r.id_cliente WHERE r.fecha BETWEEN ? AND ? AND c.activo = 1 GROUP BY c.id_cliente, c.nombre, c.apellidos, c.dni HAVING SUM(r.num_ventas) > 0 ORDER BY volumen_total DESC";
 
         try (Connection conn = ConexionBD.getConexion();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            resumenVentas.asegurarInicializado(conn);
 
-            pstmt.setString(1, fechaInicio.toString());
-            pstmt.setString(2, fechaFin.toString());
+            pstmt.setDate(1, Date.valueOf(fechaInicio));
+            pstmt.setDate(2, Date.valueOf(fechaFin));
             ResultSet rs = pstmt.executeQuery();
 
             while (rs.next()) {
-                Map<String, Object> fila = new LinkedHashMap<>();
-                fila.put("Cliente", rs.getString("cliente"));
-                fila.put("DNI", rs.getString("dni"));
-                fila.put("Num. VENTAS", rs.getInt("num_VENTAS"));
-                double volumen = rs.getDouble("volumen_total");
-                fila.put("Volumen Total", String.format("%.2f €", volumen));
-                double promedio = rs.getDouble("promedio_venta");
-                fila.put("Promedio", String.format("%.2f €", promedio));
-                double maxima = rs.getDouble("venta_maxima");
-                fila.put("Venta Máx.", String.format("%.2f €", maxima));
-                double minima = rs.getDouble("venta_minima");
-                fila.put("Venta Mín.", String.format("%.2f €", minima));
-                resultados.add(fila);
+                resultados.anadirFila(rs);
             }
         } catch (SQLException e) {
             throw new RuntimeException("Error en Consulta ventas por cliente: " + e.getMessage(), e);
         }
         return resultados;
     }
+
+    // Esquemas compartidos con AlmacenVentasColumnar, que devuelve los mismos reportes
+
+    static TablaResultados nuevaTablaResumen() {
+        return new TablaResultados(
+                new String[]{"Período", "Número de VENTAS", "Volumen Total", "Promedio por Venta", "Venta Máxima", "Venta Mínima"},
+                new Tipo[]{Tipo.TEXTO, Tipo.ENTERO, Tipo.MONEDA, Tipo.MONEDA, Tipo.MONEDA, Tipo.MONEDA});
+    }
+
+    static TablaResultados nuevaTablaVentasPorCliente() {
+        return new TablaResultados(
+                new String[]{"Cliente", "DNI", "Num. VENTAS", "Volumen Total", "Promedio", "Venta Máx.", "Venta Mín."},
+                new Tipo[]{Tipo.TEXTO, Tipo.TEXTO, Tipo.ENTERO, Tipo.MONEDA, Tipo.MONEDA, Tipo.MONEDA, Tipo.MONEDA});
+    }
 }
@@ -15,7 +15,8 @@ public class EmpresaDAOImpl implements IEmpresaDAO {
     public Empresa obtenerPorId(int idEmpresa) {
         String sql = "SELECT id, cif, nombre, domicilio, localidad, logo_path, color_principal, fecha_creacion FROM EMPRESA WHERE id = ?";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, idEmpresa);
             ResultSet rs = pstmt.executeQuery();
 
@@ -33,8 +34,9 @@ public class EmpresaDAOImpl implements IEmpresaDAO {
         List<Empresa> empresas = new ArrayList<>();
         String sql = "SELECT id, cif, nombre, domicilio, localidad, logo_path, color_principal, fecha_creacion FROM EMPRESA ORDER BY id";
 
-        try (Statement stmt = ConexionBD.getConexion().createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
 
             while (rs.next()) {
                 empresas.add(mapearEmpresa(rs));
@@ -49,7 +51,8 @@ public class EmpresaDAOImpl implements IEmpresaDAO {
     public boolean insertar(Empresa empresa) {
         String sql = "INSERT INTO EMPRESA (cif, nombre, domicilio, localidad, logo_path, color_principal, fecha_creacion) VALUES (?, ?, ?, ?, ?, ?, ?)";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, empresa.getCif());
             pstmt.setString(2, empresa.getNombre());
             pstmt.setString(3, empresa.getDomicilio());
@@ -68,7 +71,8 @@ public class EmpresaDAOImpl implements IEmpresaDAO {
     public boolean actualizar(Empresa empresa) {
         String sql = "UPDATE EMPRESA SET cif = ?, nombre = ?, domicilio = ?, localidad = ?, logo_path = ?, color_principal = ?, fecha_creacion = ? WHERE id = ?";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, empresa.getCif());
             pstmt.setString(2, empresa.getNombre());
             pstmt.setString(3, empresa.getDomicilio());
@@ -88,7 +92,8 @@ public class EmpresaDAOImpl implements IEmpresaDAO {
     public boolean eliminar(int idEmpresa) {
         String sql = "DELETE FROM EMPRESA WHERE id = ?";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, idEmpresa);
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
@@ -100,7 +105,8 @@ public class EmpresaDAOImpl implements IEmpresaDAO {
     public Empresa obtenerPorCif(String cif) {
         String sql = "SELECT id, cif, nombre, domicilio, localidad, logo_path, color_principal, fecha_creacion FROM EMPRESA WHERE cif = ?";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, cif);
             ResultSet rs = pstmt.executeQuery();
 
@@ -117,8 +123,9 @@ public class EmpresaDAOImpl implements IEmpresaDAO {
     public int contarEmpresas() {
         String sql = "SELECT COUNT(*) AS total FROM EMPRESA";
 
-        try (Statement stmt = ConexionBD.getConexion().createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
 
             if (rs.next()) {
                 return rs.getInt("total");
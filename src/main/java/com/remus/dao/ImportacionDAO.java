@@ -0,0 +1,261 @@
+package com.remus.dao;
+
+import com.remus.modelo.Cliente;
+import com.remus.modelo.Dinero;
+import com.remus.modelo.LineaVenta;
+import com.remus.modelo.Producto;
+import com.remus.modelo.Venta;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Escritura por lotes de las importaciones masivas (ImportadorMasivo) y sus puntos de control.
+ * Cada método envía un lote JDBC por tabla sobre la conexión recibida, sin confirmar: el commit
+ * (junto con el punto de control del archivo) lo hace el llamador.
+ */
+public class ImportacionDAO {
+
+    private static final String SQL_CLIENTE =
+            "INSERT INTO CLIENTES (id_cliente, dni, nombre, apellidos, telefono, direccion_habitual, direccion_envio, activo, fecha_registro) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // id_producto NULL: lo asigna AUTO_INCREMENT
+    private static final String SQL_PRODUCTO =
+            "INSERT INTO PRODUCTOS (id_producto, codigo, descripcion, precio_recomendado, stock, stock_minimc, activo) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_VENTA =
+            "INSERT INTO VENTAS (id_cliente, fecha_venta, descuento_global, importe_total, observaciones, estado) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SQL_LINEA =
+            "INSERT INTO LINEAS_VENTA (id_venta, id_producto, cantidad, precio_venta, descuento_linea, importe_linea) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String SQL_LEER_PUNTO =
+            "SELECT tamanio_archivo, linea, importados, rechazados, bytes_errores FROM IMPORTACIONES WHERE clave = ?";
+    private static final String SQL_GUARDAR_PUNTO =
+            "INSERT INTO IMPORTACIONES (clave, tamanio_archivo, linea, importados, rechazados, bytes_errores, actualizado) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+            "tamanio_archivo = VALUES(tamanio_archivo), linea = VALUES(linea), importados = VALUES(importados), " +
+            "rechazados = VALUES(rechazados), bytes_errores = VALUES(bytes_errores), actualizado = VALUES(actualizado)";
+    private static final String SQL_BORRAR_PUNTO = "DELETE FROM IMPORTACIONES WHERE clave = ?";
+
+    private final ResumenVentasDiarias resumenVentas = new ResumenVentasDiarias();
+
+    /**
+     * Prepara la conexión de una importación de ventas antes de abrir su transacción: los resúmenes diarios
+     * deben cuadrar con VENTAS antes de sumarles las ventas importadas
+     */
+    public void prepararImportacionVentas(Connection con) throws SQLException {
+        resumenVentas.asegurarInicializado(con);
+    }
+
+    public void insertarClientes(Connection con, List<Cliente> clientes) throws SQLException {
+        Timestamp ahora = new Timestamp(System.currentTimeMillis());
+        try (PreparedStatement pstmt = con.prepareStatement(SQL_CLIENTE)) {
+            for (Cliente c : clientes) {
+                pstmt.setInt(1, c.getIdCliente());
+                pstmt.setString(2, c.getDni());
+                pstmt.setString(3, c.getNombre());
+                pstmt.setString(4, c.getApellidos());
+                if (c.getTelefono() != null) {
+                    pstmt.setInt(5, c.getTelefono());
+                } else {
+                    pstmt.setNull(5, Types.INTEGER);
+                }
+                pstmt.setString(6, c.getDireccionHabitual());
+                pstmt.setString(7, c.getDireccionEnvio());
+                pstmt.setBoolean(8, c.getActivo() == null || c.getActivo());
+                pstmt.setTimestamp(9, c.getFechaRegistro() != null ? Timestamp.valueOf(c.getFechaRegistro()) : ahora);
+                pstmt.addBatch();
+            }
+            ejecutarLote(pstmt, clientes.size());
+        }
+    }
+
+    public void insertarProductos(Connection con, List<Producto> productos) throws SQLException {
+        try (PreparedStatement pstmt = con.prepareStatement(SQL_PRODUCTO)) {
+            for (Producto p : productos) {
+                if (p.getIdProducto() != null) {
+                    pstmt.setInt(1, p.getIdProducto());
+                } else {
+                    pstmt.setNull(1, Types.INTEGER);
+                }
+                pstmt.setString(2, p.getCodigo());
+                pstmt.setString(3, p.getDescripcion());
+                Dinero.fijar(pstmt, 4, p.precioRecomendadoCentimos());
+                pstmt.setInt(5, p.getStock() != null ? p.getStock() : 0);
+                pstmt.setInt(6, p.getStockMinimo() != null ? p.getStockMinimo() : 0);
+                pstmt.setBoolean(7, p.getActivo() == null || p.getActivo());
+                pstmt.addBatch();
+            }
+            ejecutarLote(pstmt, productos.size());
+        }
+    }
+
+    /**
+     * Inserta ventas ya validadas con sus líneas: un lote de cabeceras (con sus id_venta generados),
+     * un lote de líneas y la suma de todas ellas a los resúmenes diarios. Los importes de línea y el total
+     * se calculan aquí igual que en VentaDAOImpl.insertarConLineas. No toca el stock: son ventas ya servidas.
+     */
+    public void insertarVentas(Connection con, List<Venta> ventas) throws SQLException {
+        for (Venta venta : ventas) {
+            for (LineaVenta linea : venta.getLineasVenta()) {
+                linea.setImporteLineaCentimos(linea.calcularImporteCentimos());
+            }
+            venta.setImporteTotalCentimos(venta.calcularImporteFinalCentimos());
+        }
+
+        try (PreparedStatement pstmt = con.prepareStatement(SQL_VENTA, Statement.RETURN_GENERATED_KEYS)) {
+            for (Venta venta : ventas) {
+                pstmt.setInt(1, venta.getCliente().getIdCliente());
+                if (venta.getFechaVenta() != null) {
+                    pstmt.setDate(2, Date.valueOf(venta.getFechaVenta()));
+                } else {
+                    pstmt.setNull(2, Types.DATE);
+                }
+                pstmt.setDouble(3, venta.getDescuentoGlobal() != null ? venta.getDescuentoGlobal() : 0.0);
+                Dinero.fijar(pstmt, 4, venta.importeTotalCentimos());
+                pstmt.setString(5, venta.getObservaciones() != null ? venta.getObservaciones() : "");
+                pstmt.setString(6, venta.getEstado() != null ? venta.getEstado() : "COMPLETADA");
+                pstmt.addBatch();
+            }
+            ejecutarLote(pstmt, ventas.size());
+
+            // Las claves llegan en el orden del lote (también con rewriteBatchedStatements)
+            try (ResultSet claves = pstmt.getGeneratedKeys()) {
+                for (Venta venta : ventas) {
+                    if (!claves.next()) {
+                        throw new SQLException("No se obtuvieron los id_venta generados de todas las ventas del lote");
+                    }
+                    venta.setIdVenta(claves.getInt(1));
+                }
+            }
+        }
+
+        try (PreparedStatement pstmt = con.prepareStatement(SQL_LINEA)) {
+            int lineas = 0;
+            for (Venta venta : ventas) {
+                for (LineaVenta linea : venta.getLineasVenta()) {
+                    linea.setIdVenta(venta.getIdVenta());
+                    pstmt.setInt(1, venta.getIdVenta());
+                    pstmt.setInt(2, linea.getIdProducto());
+                    pstmt.setInt(3, linea.getCantidad());
+                    Dinero.fijar(pstmt, 4, linea.precioVentaCentimos());
+                    pstmt.setInt(5, linea.getDescuento());
+                    Dinero.fijar(pstmt, 6, linea.importeLineaCentimos());
+                    pstmt.addBatch();
+                    lineas++;
+                }
+            }
+            ejecutarLote(pstmt, lineas);
+        }
+
+        resumenVentas.sumarVentas(con, ventas);
+    }
+
+    /**
+     * Ejecuta el lote y comprueba que se insertaron todas las filas (SUCCESS_NO_INFO cuenta como correcta)
+     */
+    private void ejecutarLote(PreparedStatement pstmt, int esperadas) throws SQLException {
+        int[] resultados = pstmt.executeBatch();
+        if (resultados.length < esperadas) {
+            throw new BatchUpdateException("Se insertaron " + resultados.length + " de " + esperadas + " filas", resultados);
+        }
+        for (int r : resultados) {
+            if (r == 0 || r == Statement.EXECUTE_FAILED) {
+                throw new BatchUpdateException("No se insertaron todas las filas del lote", resultados);
+            }
+        }
+    }
+
+    // ==================== PUNTOS DE CONTROL ====================
+
+    /**
+     * Punto de control guardado para la clave, o null si esa importación no se ha empezado
+     */
+    public PuntoControl leerPuntoControl(Connection con, String clave) throws SQLException {
+        try (PreparedStatement pstmt = con.prepareStatement(SQL_LEER_PUNTO)) {
+            pstmt.setString(1, clave);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return new PuntoControl(clave, rs.getLong("tamanio_archivo"), rs.getLong("linea"),
+                        rs.getLong("importados"), rs.getLong("rechazados"), rs.getLong("bytes_errores"));
+            }
+        }
+    }
+
+    public void guardarPuntoControl(Connection con, PuntoControl punto) throws SQLException {
+        try (PreparedStatement pstmt = con.prepareStatement(SQL_GUARDAR_PUNTO)) {
+            pstmt.setString(1, punto.getClave());
+            pstmt.setLong(2, punto.getTamanioArchivo());
+            pstmt.setLong(3, punto.getLinea());
+            pstmt.setLong(4, punto.getImportados());
+            pstmt.setLong(5, punto.getRechazados());
+            pstmt.setLong(6, punto.getBytesErrores());
+            pstmt.setTimestamp(7, new Timestamp(System.currentTimeMillis()));
+            pstmt.executeUpdate();
+        }
+    }
+
+    public void borrarPuntoControl(Connection con, String clave) throws SQLException {
+        try (PreparedStatement pstmt = con.prepareStatement(SQL_BORRAR_PUNTO)) {
+            pstmt.setString(1, clave);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Progreso confirmado de la importación de un archivo: última línea importada (o rechazada),
+     * contadores acumulados y tamaño del archivo de errores en ese momento
+     */
+    public static final class PuntoControl {
+        private final String clave;
+        private final long tamanioArchivo;
+        private final long linea;
+        private final long importados;
+        private final long rechazados;
+        private final long bytesErrores;
+
+        public PuntoControl(String clave, long tamanioArchivo, long linea, long importados, long rechazados,
+                            long bytesErrores) {
+            this.clave = clave;
+            this.tamanioArchivo = tamanioArchivo;
+            this.linea = linea;
+            this.importados = importados;
+            this.rechazados = rechazados;
+            this.bytesErrores = bytesErrores;
+        }
+
+        public String getClave() {
+            return clave;
+        }
+
+        public long getTamanioArchivo() {
+            return tamanioArchivo;
+        }
+
+        public long getLinea() {
+            return linea;
+        }
+
+        public long getImportados() {
+            return importados;
+        }
+
+        public long getRechazados() {
+            return rechazados;
+        }
+
+        public long getBytesErrores() {
+            return bytesErrores;
+        }
+    }
+}
@@ -2,11 +2,11 @@ package com.remus.dao;
 
 import com.remus.connection.ConexionBD;
 import com.remus.dao.interfaces.ILineaVentaDAO;
+import com.remus.modelo.Dinero;
 import com.remus.modelo.LineaVenta;
 
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 public class LineaVentaDAOImpl implements ILineaVentaDAO {
 
@@ -14,7 +14,8 @@ public class LineaVentaDAOImpl implements ILineaVentaDAO {
     public LineaVenta obtenerPorId(int idLinea) {
         String sql = "SELECT id_linea, id_venta, id_producto, cantidad, precio_venta, descuento_linea, importe_linea FROM LINEAS_VENTA WHERE id_linea = ?";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, idLinea);
             ResultSet rs = pstmt.executeQuery();
 
@@ -32,7 +33,8 @@ public class LineaVentaDAOImpl implements ILineaVentaDAO {
         List<LineaVenta> lineas = new ArrayList<>();
         String sql = "SELECT id_linea, id_venta, id_producto, cantidad, precio_venta, descuento_linea, importe_linea FROM LINEAS_VENTA WHERE id_venta = ? ORDER BY id_linea";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, idVenta);
             ResultSet rs = pstmt.executeQuery();
 
@@ -45,42 +47,104 @@ public class LineaVentaDAOImpl implements ILineaVentaDAO {
         return lineas;
     }
 
+    @Override
+    public Map<Integer, List<LineaVenta>> obtenerPorVentas(Collection<Integer> idsVenta) {
+        if (idsVenta == null || idsVenta.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        try (Connection conn = ConexionBD.getConexion()) {
+            return obtenerPorVentas(conn, idsVenta);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al obtener líneas de venta por lotes: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Igual que {@link #obtenerPorVentas(Collection)}, con la conexión del llamador
+     */
+    public Map<Integer, List<LineaVenta>> obtenerPorVentas(Connection conn, Collection<Integer> idsVenta) {
+        Map<Integer, List<LineaVenta>> lineasPorVenta = new HashMap<>();
+        if (idsVenta == null || idsVenta.isEmpty()) {
+            return lineasPorVenta;
+        }
+
+        try {
+            for (List<Integer> lote : ConsultaPorLotes.partir(idsVenta)) {
+                int marcadores = ConsultaPorLotes.marcadoresPara(lote.size());
+                String sql = "SELECT id_linea, id_venta, id_producto, cantidad, precio_venta, descuento_linea, importe_linea FROM LINEAS_VENTA " +
+                        "WHERE id_venta IN (" + ConsultaPorLotes.marcadores(marcadores) + ") ORDER BY id_venta, id_linea";
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    ConsultaPorLotes.asignar(pstmt, 1, lote, marcadores);
+                    ResultSet rs = pstmt.executeQuery();
+
+                    while (rs.next()) {
+                        LineaVenta lv = mapearLineaVenta(rs);
+                        lineasPorVenta.computeIfAbsent(lv.getIdVenta(), k -> new ArrayList<>()).add(lv);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al obtener líneas de venta por lotes: " + e.getMessage(), e);
+        }
+        return lineasPorVenta;
+    }
+
     @Override
     public boolean insertar(LineaVenta lineaVenta) {
+        try (Connection conn = ConexionBD.getConexion()) {
+            return insertar(conn, lineaVenta);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al insertar línea de venta: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Inserta la línea con la conexión del llamador, p. ej. dentro de la transacción de su venta
+     */
+    public boolean insertar(Connection conn, LineaVenta lineaVenta) throws SQLException {
         String sql = "INSERT INTO LINEAS_VENTA (id_venta, id_producto, cantidad, precio_venta, descuento_linea, importe_linea) " +
                 "VALUES (?, ?, ?, ?, ?, ?)";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, lineaVenta.getIdVenta());
             pstmt.setInt(2, lineaVenta.getIdProducto());
             pstmt.setInt(3, lineaVenta.getCantidad());
-            pstmt.setDouble(4, lineaVenta.getPrecioVenta());
+            Dinero.fijar(pstmt, 4, lineaVenta.precioVentaCentimos());
             pstmt.setInt(5, lineaVenta.getDescuento());
-            pstmt.setDouble(6, lineaVenta.getImporteLinea());
+            Dinero.fijar(pstmt, 6, lineaVenta.importeLineaCentimos());
 
             return pstmt.executeUpdate() > 0;
-        } catch (SQLException e) {
-            throw new RuntimeException("Error al insertar línea de venta: " + e.getMessage(), e);
         }
     }
 
     @Override
     public boolean actualizar(LineaVenta lineaVenta) {
+        try (Connection conn = ConexionBD.getConexion()) {
+            return actualizar(conn, lineaVenta);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al actualizar línea de venta: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Actualiza la línea con la conexión del llamador, p. ej. dentro de la transacción de su venta
+     */
+    public boolean actualizar(Connection conn, LineaVenta lineaVenta) throws SQLException {
         String sql = "UPDATE LINEAS_VENTA SET id_venta = ?, id_producto = ?, cantidad = ?, precio_venta = ?, descuento_linea = ?, importe_linea = ? " +
                 "WHERE id_linea = ?";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, lineaVenta.getIdVenta());
             pstmt.setInt(2, lineaVenta.getIdProducto());
             pstmt.setInt(3, lineaVenta.getCantidad());
-            pstmt.setDouble(4, lineaVenta.getPrecioVenta());
+            Dinero.fijar(pstmt, 4, lineaVenta.precioVentaCentimos());
             pstmt.setInt(5, lineaVenta.getDescuento());
-            pstmt.setDouble(6, lineaVenta.getImporteLinea());
+            Dinero.fijar(pstmt, 6, lineaVenta.importeLineaCentimos());
             pstmt.setInt(7, lineaVenta.getIdLinea());
 
             return pstmt.executeUpdate() > 0;
-        } catch (SQLException e) {
-            throw new RuntimeException("Error al actualizar línea de venta: " + e.getMessage(), e);
         }
     }
 
@@ -88,7 +152,8 @@ public class LineaVentaDAOImpl implements ILineaVentaDAO {
     public boolean eliminar(int idLinea) {
         String sql = "DELETE FROM LINEAS_VENTA WHERE id_linea = ?";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, idLinea);
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
@@ -100,7 +165,8 @@ public class LineaVentaDAOImpl implements ILineaVentaDAO {
     public boolean eliminarPorVenta(int idVenta) {
         String sql = "DELETE FROM LINEAS_VENTA WHERE id_venta = ?";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, idVenta);
             int filas = pstmt.executeUpdate();
             return filas >= 0;
@@ -118,9 +184,9 @@ public class LineaVentaDAOImpl implements ILineaVentaDAO {
         lv.setIdVenta(rs.getInt("id_venta"));
         lv.setIdProducto(rs.getInt("id_producto"));
         lv.setCantidad(rs.getInt("cantidad"));
-        lv.setPrecioVenta(rs.getDouble("precio_venta"));
+        lv.setPrecioVentaCentimos(Dinero.leer(rs, "precio_venta"));
         lv.setDescuento(rs.getInt("descuento_linea"));
-        lv.setImporteLinea(rs.getDouble("importe_linea"));
+        lv.setImporteLineaCentimos(Dinero.leer(rs, "importe_linea"));
         return lv;
     }
 }
\ No newline at end of file
@@ -0,0 +1,283 @@
+package com.remus.dao;
+
+import com.remus.dao.interfaces.IProductoDAO;
+import com.remus.modelo.Producto;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché de lectura del catálogo de productos delante de otro {@link IProductoDAO}.
+ * Las entradas caducan a los {@code ttlMs}, se desalojan por LRU al superar la capacidad y se
+ * invalidan al escribir a través de este DAO. Se devuelven copias para que quien llama no
+ * modifique la caché.
+ * <p>
+ * El stock de las entradas cacheadas es solo orientativo (las ventas lo descuentan directamente
+ * en la BD). {@link #obtenerPorIds} va siempre a la BD y es lo que debe usarse para validar stock.
+ */
+public class ProductoDAOCache implements IProductoDAO {
+
+    private static final int CAPACIDAD_POR_DEFECTO = 1000;
+    private static final long TTL_POR_DEFECTO_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final ProductoDAOCache COMPARTIDO =
+            new ProductoDAOCache(new ProductoDAOImpl(), CAPACIDAD_POR_DEFECTO, TTL_POR_DEFECTO_MS);
+
+    private final IProductoDAO origen;
+    private final int capacidad;
+    private final long ttlMs;
+
+    private final LinkedHashMap<Integer, Entrada> porId = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Integer> idPorCodigo = new HashMap<>();
+    private List<Producto> activos;
+    private long activosCargados;
+    // Cambia en cada invalidación: una carga iniciada antes no debe volver a meter datos viejos
+    private long version = 0;
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+
+    public ProductoDAOCache(IProductoDAO origen, int capacidad, long ttlMs) {
+        this.origen = origen;
+        this.capacidad = capacidad;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Instancia común a vistas y servicios, para que las escrituras de una invaliden lo que leen las demás
+     */
+    public static ProductoDAOCache compartido() {
+        return COMPARTIDO;
+    }
+
+    @Override
+    public Producto obtenerPorId(int idProducto) {
+        long versionLeida;
+        synchronized (this) {
+            Producto cacheado = vigente(idProducto);
+            if (cacheado != null) {
+                aciertos.incrementAndGet();
+                return copiar(cacheado);
+            }
+            versionLeida = version;
+        }
+        fallos.incrementAndGet();
+        Producto producto = origen.obtenerPorId(idProducto);
+        guardar(producto, versionLeida);
+        return copiar(producto);
+    }
+
+    @Override
+    public Producto obtenerPorCodigo(String codigo) {
+        long versionLeida;
+        synchronized (this) {
+            Integer id = idPorCodigo.get(codigo);
+            Producto cacheado = id != null ? vigente(id) : null;
+            if (cacheado != null) {
+                aciertos.incrementAndGet();
+                return copiar(cacheado);
+            }
+            versionLeida = version;
+        }
+        fallos.incrementAndGet();
+        Producto producto = origen.obtenerPorCodigo(codigo);
+        guardar(producto, versionLeida);
+        return copiar(producto);
+    }
+
+    /**
+     * Siempre consulta la BD (stock actualizado) y refresca las entradas cacheadas con el resultado
+     */
+    @Override
+    public Map<Integer, Producto> obtenerPorIds(Collection<Integer> idsProducto) {
+        long versionLeida;
+        synchronized (this) {
+            versionLeida = version;
+        }
+        Map<Integer, Producto> productos = origen.obtenerPorIds(idsProducto);
+        for (Producto p : productos.values()) {
+            guardar(p, versionLeida);
+        }
+        Map<Integer, Producto> copias = new HashMap<>();
+        productos.forEach((id, p) -> copias.put(id, copiar(p)));
+        return copias;
+    }
+
+    @Override
+    public List<Producto> obtenerTodos() {
+        return origen.obtenerTodos();
+    }
+
+    @Override
+    public List<Producto> obtenerActivos() {
+        long versionLeida;
+        synchronized (this) {
+            if (activos != null && System.currentTimeMillis() - activosCargados <= ttlMs) {
+                aciertos.incrementAndGet();
+                return copiar(activos);
+            }
+            versionLeida = version;
+        }
+        fallos.incrementAndGet();
+        List<Producto> cargados = origen.obtenerActivos();
+        synchronized (this) {
+            if (versionLeida == version) {
+                activos = copiar(cargados);
+                activosCargados = System.currentTimeMillis();
+            }
+        }
+        return cargados;
+    }
+
+    @Override
+    public boolean insertar(Producto producto) {
+        try {
+            return origen.insertar(producto);
+        } finally {
+            invalidarListados();
+        }
+    }
+
+    @Override
+    public boolean actualizar(Producto producto) {
+        try {
+            return origen.actualizar(producto);
+        } finally {
+            invalidar(Collections.singleton(producto.getIdProducto()));
+        }
+    }
+
+    @Override
+    public boolean eliminar(int idProducto) {
+        try {
+            return origen.eliminar(idProducto);
+        } finally {
+            invalidar(Collections.singleton(idProducto));
+        }
+    }
+
+    @Override
+    public boolean actualizarStock(int idProducto, int nuevoStock) {
+        try {
+            return origen.actualizarStock(idProducto, nuevoStock);
+        } finally {
+            invalidar(Collections.singleton(idProducto));
+        }
+    }
+
+    /**
+     * Descarta los productos indicados (p. ej. tras una venta que ha descontado su stock)
+     */
+    public synchronized void invalidar(Collection<Integer> idsProducto) {
+        version++;
+        for (Integer id : idsProducto) {
+            Entrada entrada = porId.remove(id);
+            if (entrada != null) {
+                idPorCodigo.remove(entrada.producto.getCodigo());
+            }
+        }
+        activos = null;
+    }
+
+    public synchronized void invalidarTodo() {
+        version++;
+        porId.clear();
+        idPorCodigo.clear();
+        activos = null;
+    }
+
+    public long getAciertos() {
+        return aciertos.get();
+    }
+
+    public long getFallos() {
+        return fallos.get();
+    }
+
+    /**
+     * Porcentaje de aciertos (0-100)
+     */
+    public double getRatioAciertos() {
+        long a = aciertos.get();
+        long total = a + fallos.get();
+        return total == 0 ? 0.0 : a * 100.0 / total;
+    }
+
+    public synchronized int getTamanio() {
+        return porId.size();
+    }
+
+    // ==================== INTERNOS ====================
+
+    private synchronized void invalidarListados() {
+        version++;
+        activos = null;
+    }
+
+    /**
+     * Entrada cacheada si existe y no ha caducado (debe llamarse con el monitor tomado)
+     */
+    private Producto vigente(int idProducto) {
+        Entrada entrada = porId.get(idProducto);
+        if (entrada == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - entrada.cargada > ttlMs) {
+            porId.remove(idProducto);
+            idPorCodigo.remove(entrada.producto.getCodigo());
+            return null;
+        }
+        return entrada.producto;
+    }
+
+    private synchronized void guardar(Producto producto, long versionLeida) {
+        if (producto == null || versionLeida != version) {
+            return;
+        }
+        Entrada anterior = porId.put(producto.getIdProducto(), new Entrada(copiar(producto)));
+        if (anterior != null && !Objects.equals(anterior.producto.getCodigo(), producto.getCodigo())) {
+            idPorCodigo.remove(anterior.producto.getCodigo());
+        }
+        idPorCodigo.put(producto.getCodigo(), producto.getIdProducto());
+
+        Iterator<Entrada> it = porId.values().iterator();
+        while (porId.size() > capacidad && it.hasNext()) {
+            Entrada eldest = it.next();
+            it.remove();
+            idPorCodigo.remove(eldest.producto.getCodigo());
+        }
+    }
+
+    private static Producto copiar(Producto p) {
+        if (p == null) {
+            return null;
+        }
+        return new Producto(p.getIdProducto(), p.getCodigo(), p.getDescripcion(), p.precioRecomendadoCentimos(),
+                p.getStock(), p.getStockMinimo(), p.getActivo(), p.getFechaCreacion());
+    }
+
+    private static List<Producto> copiar(List<Producto> productos) {
+        List<Producto> copias = new ArrayList<>(productos.size());
+        for (Producto p : productos) {
+            copias.add(copiar(p));
+        }
+        return copias;
+    }
+
+    private static final class Entrada {
+        final Producto producto;
+        final long cargada = System.currentTimeMillis();
+
+        Entrada(Producto producto) {
+            this.producto = producto;
+        }
+    }
+}
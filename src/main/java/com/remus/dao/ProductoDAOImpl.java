@@ -2,11 +2,15 @@ package com.remus.dao;
 
 import com.remus.connection.ConexionBD;
 import com.remus.dao.interfaces.IProductoDAO;
+import com.remus.modelo.Dinero;
 import com.remus.modelo.Producto;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class ProductoDAOImpl implements IProductoDAO {
 
@@ -14,11 +18,14 @@ public class ProductoDAOImpl implements IProductoDAO {
     // Columnas: id_producto, codigo, descripcion, precio_recomendado, stock, stock_minimc, activo, fecha_creacion
     private static final String SELECT_FIELDS = "id_producto, codigo, descripcion, precio_recomendado, stock, stock_minimc, activo, fecha_creacion";
 
+    private final ResumenVentasDiarias resumenVentas = new ResumenVentasDiarias();
+
     @Override
     public Producto obtenerPorId(int idProducto) {
         String sql = "SELECT " + SELECT_FIELDS + " FROM PRODUCTOS WHERE id_producto = ?";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, idProducto);
             ResultSet rs = pstmt.executeQuery();
 
@@ -31,11 +38,40 @@ public class ProductoDAOImpl implements IProductoDAO {
         }
     }
 
+    @Override
+    public Map<Integer, Producto> obtenerPorIds(Collection<Integer> idsProducto) {
+        Map<Integer, Producto> productos = new HashMap<>();
+        if (idsProducto == null || idsProducto.isEmpty()) {
+            return productos;
+        }
+
+        try (Connection conn = ConexionBD.getConexion()) {
+            for (List<Integer> lote : ConsultaPorLotes.partir(idsProducto)) {
+                int marcadores = ConsultaPorLotes.marcadoresPara(lote.size());
+                String sql = "SELECT " + SELECT_FIELDS + " FROM PRODUCTOS WHERE id_producto IN (" + ConsultaPorLotes.marcadores(marcadores) + ")";
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    ConsultaPorLotes.asignar(pstmt, 1, lote, marcadores);
+                    ResultSet rs = pstmt.executeQuery();
+
+                    while (rs.next()) {
+                        Producto producto = mapearProducto(rs);
+                        productos.put(producto.getIdProducto(), producto);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al obtener productos por lotes: " + e.getMessage(), e);
+        }
+        return productos;
+    }
+
     @Override
     public Producto obtenerPorCodigo(String codigo) {
         String sql = "SELECT " + SELECT_FIELDS + " FROM PRODUCTOS WHERE codigo = ?";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, codigo);
             ResultSet rs = pstmt.executeQuery();
 
@@ -53,8 +89,9 @@ public class ProductoDAOImpl implements IProductoDAO {
         List<Producto> productos = new ArrayList<>();
         String sql = "SELECT " + SELECT_FIELDS + " FROM PRODUCTOS ORDER BY id_producto";
 
-        try (Statement stmt = ConexionBD.getConexion().createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
 
             while (rs.next()) {
                 productos.add(mapearProducto(rs));
@@ -70,8 +107,9 @@ public class ProductoDAOImpl implements IProductoDAO {
         List<Producto> productos = new ArrayList<>();
         String sql = "SELECT " + SELECT_FIELDS + " FROM PRODUCTOS WHERE activo = 1 ORDER BY descripcion";
 
-        try (Statement stmt = ConexionBD.getConexion().createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
 
             while (rs.next()) {
                 productos.add(mapearProducto(rs));
@@ -88,10 +126,11 @@ public class ProductoDAOImpl implements IProductoDAO {
         String sql = "INSERT INTO PRODUCTOS (codigo, descripcion, precio_recomendado, stock, stock_minimc, activo, fecha_creacion) " +
                 "VALUES (?, ?, ?, ?, ?, ?, ?)";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, producto.getCodigo());
             pstmt.setString(2, producto.getDescripcion());
-            pstmt.setDouble(3, producto.getPrecioRecomendado());
+            Dinero.fijar(pstmt, 3, producto.precioRecomendadoCentimos());
             pstmt.setInt(4, producto.getStock()); // Nuevo campo
             pstmt.setInt(5, producto.getStockMinimo());
             pstmt.setBoolean(6, producto.getActivo());
@@ -109,29 +148,45 @@ public class ProductoDAOImpl implements IProductoDAO {
         String sql = "UPDATE PRODUCTOS SET codigo = ?, descripcion = ?, precio_recomendado = ?, stock = ?, stock_minimc = ?, activo = ?, fecha_creacion = ? " +
                 "WHERE id_producto = ?";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, producto.getCodigo());
             pstmt.setString(2, producto.getDescripcion());
-            pstmt.setDouble(3, producto.getPrecioRecomendado());
+            Dinero.fijar(pstmt, 3, producto.precioRecomendadoCentimos());
             pstmt.setInt(4, producto.getStock());
             pstmt.setInt(5, producto.getStockMinimo());
             pstmt.setBoolean(6, producto.getActivo());
             pstmt.setString(7, producto.getFechaCreacion());
             pstmt.setInt(8, producto.getIdProducto());
 
-            boolean actualizado = pstmt.executeUpdate() > 0;
-
-            if (actualizado) {
-                // Actualizar ventas relacionadas
-                String sqlVentas = "UPDATE VENTAS v " +
-                        "JOIN LINEAS_VENTA lv ON v.id_venta = lv.id_venta " +
-                        "SET v.importe_total = (SELECT SUM(lv.cantidad * lv.precio_venta) FROM LINEAS_VENTA lv WHERE lv.id_venta = v.id_venta) " +
-                        "WHERE lv.id_producto = ?";
-
-                try (PreparedStatement pstmtVentas = ConexionBD.getConexion().prepareStatement(sqlVentas)) {
-                    pstmtVentas.setInt(1, producto.getIdProducto());
-                    pstmtVentas.executeUpdate();
+            // Producto, importes de sus ventas y resúmenes de esos días en la misma transacción
+            boolean actualizado;
+            resumenVentas.asegurarInicializado(conn);
+            conn.setAutoCommit(false);
+            try {
+                actualizado = pstmt.executeUpdate() > 0;
+
+                if (actualizado) {
+                    // Actualizar ventas relacionadas
+                    String sqlVentas = "UPDATE VENTAS v " +
+                            "JOIN LINEAS_VENTA lv ON v.id_venta = lv.id_venta " +
+                            "SET v.importe_total = (SELECT SUM(lv.cantidad * lv.precio_venta) FROM LINEAS_VENTA lv WHERE lv.id_venta = v.id_venta) " +
+                            "WHERE lv.id_producto = ?";
+
+                    try (PreparedStatement pstmtVentas = conn.prepareStatement(sqlVentas)) {
+                        pstmtVentas.setInt(1, producto.getIdProducto());
+                        pstmtVentas.executeUpdate();
+                    }
+                    for (ResumenVentasDiarias.Clave clave : resumenVentas.clavesConProducto(conn, producto.getIdProducto())) {
+                        resumenVentas.recalcular(conn, clave);
+                    }
                 }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
 
             return actualizado;
@@ -144,7 +199,8 @@ public class ProductoDAOImpl implements IProductoDAO {
     public boolean eliminar(int idProducto) {
         String sql = "DELETE FROM PRODUCTOS WHERE id_producto = ?";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, idProducto);
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
@@ -157,7 +213,8 @@ public class ProductoDAOImpl implements IProductoDAO {
         // CORRECCIÓN CRÍTICA: Se actualiza la columna 'stock' real, no 'stock_minimc'
         String sql = "UPDATE PRODUCTOS SET stock = ? WHERE id_producto = ?";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, nuevoStock);
             pstmt.setInt(2, idProducto);
             return pstmt.executeUpdate() > 0;
@@ -174,7 +231,7 @@ public class ProductoDAOImpl implements IProductoDAO {
         p.setIdProducto(rs.getInt("id_producto"));
         p.setCodigo(rs.getString("codigo"));
         p.setDescripcion(rs.getString("descripcion"));
-        p.setPrecioRecomendado(rs.getDouble("precio_recomendado"));
+        p.setPrecioRecomendadoCentimos(Dinero.leer(rs, "precio_recomendado"));
         p.setStock(rs.getInt("stock")); // Nuevo campo a mapear
         p.setStockMinimo(rs.getInt("stock_minimc"));
         p.setActivo(rs.getBoolean("activo"));
@@ -0,0 +1,122 @@
+package com.remus.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Descuento atómico de stock dentro de la transacción de una venta.
+ * Cada producto se descuenta con un UPDATE condicional ({@code stock >= cantidad}), todos en un
+ * único lote y en orden de id_producto para que dos ventas concurrentes no se bloqueen mutuamente.
+ * Opcionalmente, un juego de cerrojos por franjas en memoria hace que las ventas de este proceso
+ * sobre el mismo producto esperen aquí en lugar de acumularse en los bloqueos de fila de MySQL.
+ */
+public class ReservaStock {
+
+    private static final int FRANJAS_POR_DEFECTO = 64;
+    private static final ReservaStock COMPARTIDA = new ReservaStock(FRANJAS_POR_DEFECTO);
+
+    private static final String SQL_DESCONTAR =
+            "UPDATE PRODUCTOS SET stock = stock - ? WHERE id_producto = ? AND stock >= ?";
+
+    private final ReentrantLock[] franjas;
+
+    /**
+     * @param numFranjas número de cerrojos en memoria; 0 desactiva el bloqueo en memoria
+     */
+    public ReservaStock(int numFranjas) {
+        if (numFranjas < 0) {
+            throw new IllegalArgumentException("Número de franjas inválido: " + numFranjas);
+        }
+        this.franjas = new ReentrantLock[numFranjas];
+        for (int i = 0; i < numFranjas; i++) {
+            franjas[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Instancia común a todos los DAO del proceso (los cerrojos solo sirven si se comparten)
+     */
+    public static ReservaStock compartida() {
+        return COMPARTIDA;
+    }
+
+    /**
+     * Toma los cerrojos en memoria de los productos indicados, siempre en el mismo orden.
+     * Deben mantenerse hasta el commit o rollback de la transacción.
+     */
+    public Bloqueo bloquear(Collection<Integer> idsProducto) {
+        List<ReentrantLock> tomados = new ArrayList<>();
+        if (franjas.length > 0) {
+            TreeSet<Integer> indices = new TreeSet<>();
+            for (Integer id : idsProducto) {
+                indices.add(Math.floorMod(id, franjas.length));
+            }
+            for (int indice : indices) {
+                franjas[indice].lock();
+                tomados.add(franjas[indice]);
+            }
+        }
+        return new Bloqueo(tomados);
+    }
+
+    /**
+     * Descuenta las cantidades (clave: id_producto) usando la conexión de la transacción en curso.
+     * @throws StockInsuficienteException si algún producto no tenía stock; la transacción debe revertirse
+     */
+    public void reservar(Connection con, Map<Integer, Integer> cantidades) throws SQLException {
+        if (cantidades.isEmpty()) {
+            return;
+        }
+        TreeMap<Integer, Integer> ordenadas = new TreeMap<>(cantidades);
+
+        try (PreparedStatement pstmt = con.prepareStatement(SQL_DESCONTAR)) {
+            for (Map.Entry<Integer, Integer> e : ordenadas.entrySet()) {
+                pstmt.setInt(1, e.getValue());
+                pstmt.setInt(2, e.getKey());
+                pstmt.setInt(3, e.getValue());
+                pstmt.addBatch();
+            }
+            int[] resultados = pstmt.executeBatch();
+
+            // Un contador a 0 significa que la condición stock >= cantidad no se cumplió (o el producto no existe)
+            List<Integer> sinStock = new ArrayList<>();
+            int i = 0;
+            for (Integer idProducto : ordenadas.keySet()) {
+                if (i >= resultados.length || resultados[i] == 0) {
+                    sinStock.add(idProducto);
+                }
+                i++;
+            }
+            if (!sinStock.isEmpty()) {
+                throw new StockInsuficienteException(sinStock);
+            }
+        }
+    }
+
+    /**
+     * Cerrojos en memoria tomados para una venta; close() los libera
+     */
+    public static final class Bloqueo implements AutoCloseable {
+        private final List<ReentrantLock> tomados;
+
+        private Bloqueo(List<ReentrantLock> tomados) {
+            this.tomados = tomados;
+        }
+
+        @Override
+        public void close() {
+            for (int i = tomados.size() - 1; i >= 0; i--) {
+                tomados.get(i).unlock();
+            }
+            tomados.clear();
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.remus.dao;
+
+import com.remus.modelo.Dinero;
+import com.remus.modelo.Venta;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Mantiene los agregados diarios de ventas (RESUMEN_VENTAS_DIA y RESUMEN_VENTAS_DIA_CLIENTE):
+ * número de ventas, suma, mínimo y máximo de importe_total por día y por día y cliente.
+ * Las altas se suman sobre una de las {@link #FRANJAS_DIA} filas del día, elegida al azar, para que las
+ * ventas simultáneas no esperen todas al bloqueo de la misma fila hasta su commit; quien lee el resumen
+ * del día agrega sus franjas (SUM, MIN, MAX). Las modificaciones y bajas recalculan solo el día
+ * afectado a partir de VENTAS, en la franja 0 (el mínimo y el máximo no se pueden "restar").
+ * Todas las operaciones usan la conexión recibida para formar parte de la transacción del llamador.
+ */
+public class ResumenVentasDiarias {
+
+    static final int FRANJAS_DIA = 8;
+
+    private static final String SQL_SUMAR_DIA =
+            "INSERT INTO RESUMEN_VENTAS_DIA (fecha, franja, num_ventas, importe_total, importe_min, importe_max) " +
+            "VALUES (?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+            "num_ventas = num_ventas + VALUES(num_ventas), importe_total = importe_total + VALUES(importe_total), " +
+            "importe_min = LEAST(importe_min, VALUES(importe_min)), importe_max = GREATEST(importe_max, VALUES(importe_max))";
+    private static final String SQL_SUMAR_DIA_CLIENTE =
+            "INSERT INTO RESUMEN_VENTAS_DIA_CLIENTE (fecha, id_cliente, num_ventas, importe_total, importe_min, importe_max) " +
+            "VALUES (?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+            "num_ventas = num_ventas + VALUES(num_ventas), importe_total = importe_total + VALUES(importe_total), " +
+            "importe_min = LEAST(importe_min, VALUES(importe_min)), importe_max = GREATEST(importe_max, VALUES(importe_max))";
+
+    private static final String SQL_BORRAR_DIA = "DELETE FROM RESUMEN_VENTAS_DIA WHERE fecha = ?";
+    private static final String SQL_BORRAR_DIA_CLIENTE = "DELETE FROM RESUMEN_VENTAS_DIA_CLIENTE WHERE fecha = ? AND id_cliente = ?";
+    private static final String SQL_RECALCULAR_DIA =
+            "INSERT INTO RESUMEN_VENTAS_DIA (fecha, num_ventas, importe_total, importe_min, importe_max) " +
+            "SELECT fecha_venta, COUNT(*), COALESCE(SUM(importe_total), 0), MIN(importe_total), MAX(importe_total) " +
+            "FROM VENTAS WHERE fecha_venta = ? GROUP BY fecha_venta";
+    private static final String SQL_RECALCULAR_DIA_CLIENTE =
+            "INSERT INTO RESUMEN_VENTAS_DIA_CLIENTE (fecha, id_cliente, num_ventas, importe_total, importe_min, importe_max) " +
+            "SELECT fecha_venta, id_cliente, COUNT(*), COALESCE(SUM(importe_total), 0), MIN(importe_total), MAX(importe_total) " +
+            "FROM VENTAS WHERE fecha_venta = ? AND id_cliente = ? GROUP BY fecha_venta, id_cliente";
+
+    private static final String SQL_CLAVE = "SELECT fecha_venta, id_cliente FROM VENTAS WHERE id_venta = ?";
+    private static final String SQL_CLAVES_PRODUCTO = "SELECT DISTINCT v.fecha_venta, v.id_cliente FROM VENTAS v " +
+            "JOIN LINEAS_VENTA lv ON lv.id_venta = v.id_venta WHERE lv.id_producto = ? AND v.fecha_venta IS NOT NULL";
+
+    // Número de ventas e importe total según los resúmenes y según VENTAS; en una misma lectura coinciden
+    // siempre que todas las escrituras en VENTAS hayan pasado por esta clase
+    private static final String SQL_CUADRE = "SELECT " +
+            "(SELECT COALESCE(SUM(num_ventas), 0) FROM RESUMEN_VENTAS_DIA), " +
+            "(SELECT COALESCE(SUM(importe_total), 0) FROM RESUMEN_VENTAS_DIA), " +
+            "(SELECT COUNT(*) FROM VENTAS WHERE fecha_venta IS NOT NULL), " +
+            "(SELECT COALESCE(SUM(importe_total), 0) FROM VENTAS WHERE fecha_venta IS NOT NULL)";
+
+    // Comprobado una vez por proceso: si los resúmenes no cuadran con VENTAS, se reconstruyen
+    private static volatile boolean inicializado = false;
+
+    /**
+     * Día y cliente de una venta: las filas de resumen que le afectan
+     */
+    public static final class Clave {
+        private final LocalDate fecha;
+        private final int idCliente;
+
+        public Clave(LocalDate fecha, int idCliente) {
+            this.fecha = fecha;
+            this.idCliente = idCliente;
+        }
+
+        public LocalDate getFecha() {
+            return fecha;
+        }
+
+        public int getIdCliente() {
+            return idCliente;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Clave)) return false;
+            Clave otra = (Clave) o;
+            return idCliente == otra.idCliente && Objects.equals(fecha, otra.fecha);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fecha, idCliente);
+        }
+    }
+
+    /**
+     * Suma una venta nueva a los resúmenes de su día (importe en céntimos; las ventas sin fecha no se resumen)
+     */
+    public void sumarVenta(Connection con, LocalDate fecha, int idCliente, long importe) throws SQLException {
+        if (fecha == null) {
+            return;
+        }
+        try (PreparedStatement dia = con.prepareStatement(SQL_SUMAR_DIA);
+             PreparedStatement diaCliente = con.prepareStatement(SQL_SUMAR_DIA_CLIENTE)) {
+            dia.setDate(1, Date.valueOf(fecha));
+            dia.setInt(2, ThreadLocalRandom.current().nextInt(FRANJAS_DIA));
+            fijarSuma(dia, 3, new Suma(importe));
+            dia.executeUpdate();
+
+            diaCliente.setDate(1, Date.valueOf(fecha));
+            diaCliente.setInt(2, idCliente);
+            fijarSuma(diaCliente, 3, new Suma(importe));
+            diaCliente.executeUpdate();
+        }
+    }
+
+    /**
+     * Suma un bloque de ventas nuevas (importaciones): se agregan primero en memoria por día y por día
+     * y cliente, y cada fila de resumen se actualiza una sola vez, en dos lotes
+     */
+    public void sumarVentas(Connection con, List<Venta> ventas) throws SQLException {
+        Map<LocalDate, Suma> porDia = new HashMap<>();
+        Map<Clave, Suma> porDiaCliente = new HashMap<>();
+        for (Venta venta : ventas) {
+            if (venta.getFechaVenta() == null) {
+                continue;
+            }
+            long importe = venta.importeTotalCentimos();
+            porDia.computeIfAbsent(venta.getFechaVenta(), f -> new Suma()).sumar(importe);
+            porDiaCliente.computeIfAbsent(new Clave(venta.getFechaVenta(), venta.getCliente().getIdCliente()),
+                    c -> new Suma()).sumar(importe);
+        }
+        if (porDia.isEmpty()) {
+            return;
+        }
+        int franja = ThreadLocalRandom.current().nextInt(FRANJAS_DIA);
+        try (PreparedStatement dia = con.prepareStatement(SQL_SUMAR_DIA);
+             PreparedStatement diaCliente = con.prepareStatement(SQL_SUMAR_DIA_CLIENTE)) {
+            for (Map.Entry<LocalDate, Suma> e : porDia.entrySet()) {
+                dia.setDate(1, Date.valueOf(e.getKey()));
+                dia.setInt(2, franja);
+                fijarSuma(dia, 3, e.getValue());
+                dia.addBatch();
+            }
+            dia.executeBatch();
+
+            for (Map.Entry<Clave, Suma> e : porDiaCliente.entrySet()) {
+                diaCliente.setDate(1, Date.valueOf(e.getKey().getFecha()));
+                diaCliente.setInt(2, e.getKey().getIdCliente());
+                fijarSuma(diaCliente, 3, e.getValue());
+                diaCliente.addBatch();
+            }
+            diaCliente.executeBatch();
+        }
+    }
+
+    /**
+     * Asigna num_ventas, importe_total, importe_min e importe_max a partir de {@code indice}
+     */
+    private static void fijarSuma(PreparedStatement pstmt, int indice, Suma suma) throws SQLException {
+        pstmt.setInt(indice, suma.num);
+        Dinero.fijar(pstmt, indice + 1, suma.total);
+        Dinero.fijar(pstmt, indice + 2, suma.minimo);
+        Dinero.fijar(pstmt, indice + 3, suma.maximo);
+    }
+
+    /**
+     * Ventas acumuladas de una fila de resumen (importes en céntimos)
+     */
+    private static final class Suma {
+        int num = 0;
+        long total = 0;
+        long minimo = Long.MAX_VALUE;
+        long maximo = Long.MIN_VALUE;
+
+        Suma() {
+        }
+
+        Suma(long importe) {
+            sumar(importe);
+        }
+
+        void sumar(long importe) {
+            num++;
+            total += importe;
+            minimo = Math.min(minimo, importe);
+            maximo = Math.max(maximo, importe);
+        }
+    }
+
+    /**
+     * Día y cliente actuales de la venta, o null si no existe o no tiene fecha
+     */
+    public Clave claveDe(Connection con, int idVenta) throws SQLException {
+        try (PreparedStatement pstmt = con.prepareStatement(SQL_CLAVE)) {
+            pstmt.setInt(1, idVenta);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next() && rs.getDate(1) != null) {
+                    return new Clave(rs.getDate(1).toLocalDate(), rs.getInt(2));
+                }
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Días y clientes de todas las ventas con alguna línea del producto, en una sola consulta
+     */
+    public Set<Clave> clavesConProducto(Connection con, int idProducto) throws SQLException {
+        Set<Clave> claves = new LinkedHashSet<>();
+        try (PreparedStatement pstmt = con.prepareStatement(SQL_CLAVES_PRODUCTO)) {
+            pstmt.setInt(1, idProducto);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    claves.add(new Clave(rs.getDate(1).toLocalDate(), rs.getInt(2)));
+                }
+            }
+        }
+        return claves;
+    }
+
+    /**
+     * Recalcula desde VENTAS las filas de resumen de ese día y de ese día y cliente.
+     * Con autocommit activo las ejecuta en su propia transacción para no dejar el día a medias.
+     */
+    public void recalcular(Connection con, Clave clave) throws SQLException {
+        if (clave == null) {
+            return;
+        }
+        boolean autoCommit = con.getAutoCommit();
+        if (autoCommit) {
+            con.setAutoCommit(false);
+        }
+        try (PreparedStatement borrarDia = con.prepareStatement(SQL_BORRAR_DIA);
+             PreparedStatement borrarDiaCliente = con.prepareStatement(SQL_BORRAR_DIA_CLIENTE);
+             PreparedStatement dia = con.prepareStatement(SQL_RECALCULAR_DIA);
+             PreparedStatement diaCliente = con.prepareStatement(SQL_RECALCULAR_DIA_CLIENTE)) {
+            Date fecha = Date.valueOf(clave.getFecha());
+
+            borrarDia.setDate(1, fecha);
+            borrarDia.executeUpdate();
+            borrarDiaCliente.setDate(1, fecha);
+            borrarDiaCliente.setInt(2, clave.getIdCliente());
+            borrarDiaCliente.executeUpdate();
+
+            dia.setDate(1, fecha);
+            dia.executeUpdate();
+            diaCliente.setDate(1, fecha);
+            diaCliente.setInt(2, clave.getIdCliente());
+            diaCliente.executeUpdate();
+
+            if (autoCommit) {
+                con.commit();
+            }
+        } catch (SQLException e) {
+            if (autoCommit) {
+                con.rollback();
+            }
+            throw e;
+        } finally {
+            if (autoCommit) {
+                con.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Recalcula la clave anterior y la nueva de una venta modificada (una sola vez si coinciden)
+     */
+    public void recalcular(Connection con, Clave anterior, Clave nueva) throws SQLException {
+        recalcular(con, anterior);
+        if (nueva != null && !nueva.equals(anterior)) {
+            recalcular(con, nueva);
+        }
+    }
+
+    /**
+     * Vacía y vuelve a calcular todos los resúmenes desde VENTAS, en una transacción
+     */
+    public void reconstruir(Connection con) throws SQLException {
+        boolean autoCommit = con.getAutoCommit();
+        con.setAutoCommit(false);
+        try (Statement stmt = con.createStatement()) {
+            stmt.executeUpdate("DELETE FROM RESUMEN_VENTAS_DIA_CLIENTE");
+            stmt.executeUpdate("DELETE FROM RESUMEN_VENTAS_DIA");
+            stmt.executeUpdate("INSERT INTO RESUMEN_VENTAS_DIA (fecha, num_ventas, importe_total, importe_min, importe_max) " +
+                    "SELECT fecha_venta, COUNT(*), COALESCE(SUM(importe_total), 0), MIN(importe_total), MAX(importe_total) " +
+                    "FROM VENTAS WHERE fecha_venta IS NOT NULL GROUP BY fecha_venta");
+            stmt.executeUpdate("INSERT INTO RESUMEN_VENTAS_DIA_CLIENTE (fecha, id_cliente, num_ventas, importe_total, importe_min, importe_max) " +
+                    "SELECT fecha_venta, id_cliente, COUNT(*), COALESCE(SUM(importe_total), 0), MIN(importe_total), MAX(importe_total) " +
+                    "FROM VENTAS WHERE fecha_venta IS NOT NULL GROUP BY fecha_venta, id_cliente");
+            con.commit();
+        } catch (SQLException e) {
+            con.rollback();
+            throw e;
+        } finally {
+            con.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Reconstruye los resúmenes si no cuadran con VENTAS (número de ventas e importe total): base de datos
+     * creada antes de existir los resúmenes, ventas cargadas por script o escritas por fuera de la aplicación.
+     * Solo consulta la base la primera vez. La reconstrucción va en su propia transacción, así que debe llamarse
+     * con autocommit activo, antes de que el llamador abra la suya: en los reportes y al empezar cualquier
+     * escritura de ventas, para que ninguna venta nueva se sume sobre unos resúmenes incompletos.
+     */
+    public void asegurarInicializado(Connection con) throws SQLException {
+        if (inicializado) {
+            return;
+        }
+        synchronized (ResumenVentasDiarias.class) {
+            if (inicializado) {
+                return;
+            }
+            try (Statement stmt = con.createStatement();
+                 ResultSet rs = stmt.executeQuery(SQL_CUADRE)) {
+                rs.next();
+                boolean cuadran = rs.getLong(1) == rs.getLong(3)
+                        && rs.getBigDecimal(2).compareTo(rs.getBigDecimal(4)) == 0;
+                if (!cuadran) {
+                    reconstruir(con);
+                }
+            }
+            inicializado = true;
+        }
+    }
+}
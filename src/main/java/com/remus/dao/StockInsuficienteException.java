@@ -0,0 +1,24 @@
+package com.remus.dao;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * No se pudo reservar stock: algún producto no tenía existencias suficientes en el momento de descontarlas
+ */
+public class StockInsuficienteException extends SQLException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<Integer> productosSinStock;
+
+    public StockInsuficienteException(List<Integer> productosSinStock) {
+        super("Stock insuficiente para los productos " + productosSinStock);
+        this.productosSinStock = Collections.unmodifiableList(productosSinStock);
+    }
+
+    public List<Integer> getProductosSinStock() {
+        return productosSinStock;
+    }
+}
@@ -1,35 +1,50 @@
 package com.remus.dao;
 
 import com.remus.connection.ConexionBD;
+import com.remus.dao.interfaces.IClienteDAO;
 import com.remus.dao.interfaces.IVentaDAO;
 import com.remus.modelo.Cliente;
+import com.remus.modelo.Dinero;
 import com.remus.modelo.LineaVenta;
 import com.remus.modelo.Venta;
 
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class VentaDAOImpl implements IVentaDAO {
 
-    private final ClienteDAOImpl clienteDAO = new ClienteDAOImpl();
+    private final IClienteDAO clienteDAO = ClienteDAOCache.compartido();
     private final LineaVentaDAOImpl lineaVentaDAO = new LineaVentaDAOImpl();
+    private final ReservaStock reservaStock = ReservaStock.compartida();
+    private final ResumenVentasDiarias resumenVentas = new ResumenVentasDiarias();
+
+    private static final String SELECT_FIELDS = "id_venta, id_cliente, fecha_venta, importe_total";
+
+    // Filas que se piden al servidor por cada viaje del cursor y ventas que se completan de una vez
+    private static final int TAMANIO_BLOQUE = 500;
 
     @Override
     public Venta obtenerPorId(int idVenta) {
-        String sql = "SELECT id_venta, id_cliente, fecha_venta, importe_total FROM VENTAS WHERE id_venta = ?";
+        String sql = "SELECT " + SELECT_FIELDS + " FROM VENTAS WHERE id_venta = ?";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, idVenta);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                Venta venta = mapearVenta(rs);
-                venta.setLineasVenta(lineaVentaDAO.obtenerPorVenta(idVenta));
-                return venta;
-            }
-            return null;
+            List<Venta> ventas = cargarVentas(conn, pstmt.executeQuery());
+            return ventas.isEmpty() ? null : ventas.get(0);
         } catch (SQLException e) {
             throw new RuntimeException("Error al obtener venta por ID: " + e.getMessage(), e);
         }
@@ -37,71 +52,112 @@ public class VentaDAOImpl implements IVentaDAO {
 
     @Override
     public List<Venta> obtenerTodas() {
-        List<Venta> ventas = new ArrayList<>();
-        String sql = "SELECT id_venta, id_cliente, fecha_venta, importe_total FROM VENTAS ORDER BY fecha_venta DESC";
+        String sql = "SELECT " + SELECT_FIELDS + " FROM VENTAS ORDER BY fecha_venta DESC, id_venta DESC";
 
-        try (Statement stmt = ConexionBD.getConexion().createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            return cargarVentas(conn, rs);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al listar ventas: " + e.getMessage(), e);
+        }
+    }
 
-            while (rs.next()) {
-                Venta venta = mapearVenta(rs);
-                venta.setLineasVenta(lineaVentaDAO.obtenerPorVenta(venta.getIdVenta()));
-                ventas.add(venta);
+    @Override
+    public List<Venta> obtenerPagina(LocalDate fechaDesde, Integer idDesde, int tamanioPagina) {
+        if (tamanioPagina <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor que 0");
+        }
+        boolean primera = fechaDesde == null || idDesde == null;
+        String sql = "SELECT " + SELECT_FIELDS + " FROM VENTAS WHERE fecha_venta IS NOT NULL" +
+                (primera ? "" : " AND (fecha_venta < ? OR (fecha_venta = ? AND id_venta < ?))") +
+                " ORDER BY fecha_venta DESC, id_venta DESC LIMIT ?";
+
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            if (!primera) {
+                pstmt.setDate(i++, Date.valueOf(fechaDesde));
+                pstmt.setDate(i++, Date.valueOf(fechaDesde));
+                pstmt.setInt(i++, idDesde);
             }
+            pstmt.setInt(i, tamanioPagina);
+            return cargarVentas(conn, pstmt.executeQuery());
         } catch (SQLException e) {
-            throw new RuntimeException("Error al listar ventas: " + e.getMessage(), e);
+            throw new RuntimeException("Error al obtener página de ventas: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Stream<Venta> streamTodas() {
+        CursorVentas cursor = new CursorVentas();
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(cursor::close);
+    }
+
+    @Override
+    public void recorrerTodas(Consumer<Venta> accion) {
+        try (Stream<Venta> ventas = streamTodas()) {
+            ventas.forEach(accion);
         }
-        return ventas;
     }
 
     @Override
     public List<Venta> obtenerPorCliente(int idCliente) {
-        List<Venta> ventas = new ArrayList<>();
-        String sql = "SELECT id_venta, id_cliente, fecha_venta, importe_total FROM VENTAS WHERE id_cliente = ? ORDER BY fecha_venta DESC";
+        String sql = "SELECT " + SELECT_FIELDS + " FROM VENTAS WHERE id_cliente = ? ORDER BY fecha_venta DESC, id_venta DESC";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, idCliente);
-            ResultSet rs = pstmt.executeQuery();
-
-            while (rs.next()) {
-                Venta venta = mapearVenta(rs);
-                venta.setLineasVenta(lineaVentaDAO.obtenerPorVenta(venta.getIdVenta()));
-                ventas.add(venta);
-            }
+            return cargarVentas(conn, pstmt.executeQuery());
         } catch (SQLException e) {
             throw new RuntimeException("Error al listar ventas por cliente: " + e.getMessage(), e);
         }
-        return ventas;
     }
 
     @Override
     public boolean insertar(Venta venta) {
         String sql = "INSERT INTO VENTAS (id_cliente, fecha_venta, importe_total) VALUES (?, ?, ?)";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             pstmt.setInt(1, venta.getCliente().getIdCliente());
             pstmt.setString(2, venta.getFechaVenta().toString());
-            pstmt.setDouble(3, venta.getImporteTotal());
-
-            int filas = pstmt.executeUpdate();
-
-            if (filas > 0) {
-                ResultSet rs = pstmt.getGeneratedKeys();
-                if (rs.next()) {
-                    int idGenerado = rs.getInt(1);
-                    venta.setIdVenta(idGenerado);
+            Dinero.fijar(pstmt, 3, venta.importeTotalCentimos());
 
-                    // Insertar líneas de venta asociadas
-                    if (venta.getLineasVenta() != null) {
-                        for (LineaVenta linea : venta.getLineasVenta()) {
-                            linea.setIdVenta(idGenerado);
-                            lineaVentaDAO.insertar(linea);
+            // Cabecera, líneas y resumen diario en la misma transacción
+            Integer idGenerado = null;
+            int filas;
+            resumenVentas.asegurarInicializado(conn);
+            conn.setAutoCommit(false);
+            try {
+                filas = pstmt.executeUpdate();
+                if (filas > 0) {
+                    resumenVentas.sumarVenta(conn, venta.getFechaVenta(), venta.getCliente().getIdCliente(), venta.importeTotalCentimos());
+                    ResultSet rs = pstmt.getGeneratedKeys();
+                    if (rs.next()) {
+                        idGenerado = rs.getInt(1);
+                        if (venta.getLineasVenta() != null) {
+                            for (LineaVenta linea : venta.getLineasVenta()) {
+                                linea.setIdVenta(idGenerado);
+                                lineaVentaDAO.insertar(conn, linea);
+                            }
                         }
                     }
                 }
-                return true;
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+            if (idGenerado != null) {
+                venta.setIdVenta(idGenerado);
             }
-            return false;
+            return filas > 0;
         } catch (SQLException e) {
             throw new RuntimeException("Error al insertar venta: " + e.getMessage(), e);
         }
@@ -111,22 +167,39 @@ public class VentaDAOImpl implements IVentaDAO {
     public boolean actualizar(Venta venta) {
         String sql = "UPDATE VENTAS SET id_cliente = ?, fecha_venta = ?, importe_total = ? WHERE id_venta = ?";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, venta.getCliente().getIdCliente());
             pstmt.setString(2, venta.getFechaVenta().toString());
-            pstmt.setDouble(3, venta.getImporteTotal());
+            Dinero.fijar(pstmt, 3, venta.importeTotalCentimos());
             pstmt.setInt(4, venta.getIdVenta());
 
-            boolean ok = pstmt.executeUpdate() > 0;
+            // El día y el cliente pueden cambiar: recalcular el resumen de antes y el de después
+            boolean ok;
+            resumenVentas.asegurarInicializado(conn);
+            conn.setAutoCommit(false);
+            try {
+                ResumenVentasDiarias.Clave anterior = resumenVentas.claveDe(conn, venta.getIdVenta());
+                ok = pstmt.executeUpdate() > 0;
+                if (ok) {
+                    resumenVentas.recalcular(conn, anterior, resumenVentas.claveDe(conn, venta.getIdVenta()));
 
-            // actualizar líneas si es necesario
-            if (ok && venta.getLineasVenta() != null) {
-                for (LineaVenta lv : venta.getLineasVenta()) {
-                    if (lv.getIdLinea() == null)
-                        lineaVentaDAO.insertar(lv);
-                    else
-                        lineaVentaDAO.actualizar(lv);
+                    // actualizar líneas si es necesario
+                    if (venta.getLineasVenta() != null) {
+                        for (LineaVenta lv : venta.getLineasVenta()) {
+                            if (lv.getIdLinea() == null)
+                                lineaVentaDAO.insertar(conn, lv);
+                            else
+                                lineaVentaDAO.actualizar(conn, lv);
+                        }
+                    }
                 }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
 
             return ok;
@@ -139,13 +212,27 @@ public class VentaDAOImpl implements IVentaDAO {
     public boolean eliminar(int idVenta) {
         String sql = "DELETE FROM VENTAS WHERE id_venta = ?";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, idVenta);
 
-            // eliminar líneas asociadas primero
-            lineaVentaDAO.eliminarPorVenta(idVenta);
-
-            return pstmt.executeUpdate() > 0;
+            // Las líneas se borran con la cabecera (fk_LINEAS_VENTA_VENTAS es ON DELETE CASCADE)
+            resumenVentas.asegurarInicializado(conn);
+            conn.setAutoCommit(false);
+            try {
+                ResumenVentasDiarias.Clave clave = resumenVentas.claveDe(conn, idVenta);
+                boolean ok = pstmt.executeUpdate() > 0;
+                if (ok) {
+                    resumenVentas.recalcular(conn, clave);
+                }
+                conn.commit();
+                return ok;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
         } catch (SQLException e) {
             throw new RuntimeException("Error al eliminar venta: " + e.getMessage(), e);
         }
@@ -154,7 +241,8 @@ public class VentaDAOImpl implements IVentaDAO {
     public boolean actualizarEstado(int idVenta, String nuevoEstado) {
         String sql = "UPDATE VENTAS SET ESTADO = ? WHERE id_venta = ?";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, nuevoEstado);
             pstmt.setInt(2, idVenta);
             return pstmt.executeUpdate() > 0;
@@ -166,20 +254,22 @@ public class VentaDAOImpl implements IVentaDAO {
     public double calcularImporteTotal(int idVenta) {
         String sql = "SELECT SUM(IMPORTE_LINEA) as total FROM LINEAS_VENTA WHERE ID_VENTA = ?";
 
-        try (PreparedStatement pstmt = ConexionBD.getConexion().prepareStatement(sql)) {
+        try (Connection conn = ConexionBD.getConexion();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, idVenta);
             ResultSet rs = pstmt.executeQuery();
 
             if (rs.next()) {
-                double total = rs.getDouble("total");
+                long total = Dinero.leer(rs, "total");
                 // actualizar en la tabla ventas
                 String update = "UPDATE VENTAS SET IMPORTE_TOTAL = ? WHERE id_venta = ?";
-                try (PreparedStatement up = ConexionBD.getConexion().prepareStatement(update)) {
-                    up.setDouble(1, total);
+                try (PreparedStatement up = conn.prepareStatement(update)) {
+                    Dinero.fijar(up, 1, total);
                     up.setInt(2, idVenta);
                     up.executeUpdate();
                 }
-                return total;
+                resumenVentas.recalcular(conn, resumenVentas.claveDe(conn, idVenta));
+                return Dinero.aEuros(total);
             }
             return 0.0;
         } catch (SQLException e) {
@@ -189,95 +279,27 @@ public class VentaDAOImpl implements IVentaDAO {
 
     @Override
     public int insertarConLineas(Venta venta) throws Exception {
-        String sqlVenta = "INSERT INTO VENTAS (id_cliente, fecha_venta, descuento_global, importe_total, observaciones, estado) VALUES (?, ?, ?, ?, ?, ?)";
-        String sqlLinea = "INSERT INTO LINEAS_VENTA (id_venta, id_producto, cantidad, precio_venta, descuento_linea, importe_linea) VALUES (?, ?, ?, ?, ?, ?)";
-        // SQL para actualizar el total final
-        String sqlUpdateTotal = "UPDATE VENTAS SET importe_total = ? WHERE id_venta = ?";
+        // Si no hay líneas, la operación debe fallar según la lógica de negocio (antes de abrir la transacción)
+        if (venta.getLineasVenta() == null || venta.getLineasVenta().isEmpty()) {
+            throw new Exception("Error en la transacción de inserción de venta: La venta debe contener al menos una línea.",
+                    new IllegalArgumentException("La venta debe contener al menos una línea."));
+        }
 
+        ReservaStock.Bloqueo bloqueo = null;
         Connection con = null;
-        PreparedStatement pstmtVenta = null;
-        PreparedStatement pstmtLinea = null;
-        PreparedStatement pstmtUpdate = null; // Para actualizar total
-        ResultSet rsKeys = null;
 
         try {
+            bloqueo = reservaStock.bloquear(cantidadesPorProducto(venta).keySet());
             con = ConexionBD.getConexion();
+            resumenVentas.asegurarInicializado(con); // antes de abrir la transacción
             con.setAutoCommit(false); // Iniciar transacción
 
-            // 1. Insertar la cabecera de la VENTA (con importe_total temporal a 0)
-            //    (Los campos descuento_global, observaciones, estado se usarán)
-            pstmtVenta = con.prepareStatement(sqlVenta, Statement.RETURN_GENERATED_KEYS);
-            pstmtVenta.setInt(1, venta.getCliente().getIdCliente());
-            pstmtVenta.setString(2, venta.getFechaVenta() != null ? venta.getFechaVenta().toString() : LocalDate.now().toString());
-            pstmtVenta.setDouble(3, venta.getDescuentoGlobal() != null ? venta.getDescuentoGlobal() : 0.0);
-            pstmtVenta.setDouble(4, 0.0); // Importe total temporal
-            pstmtVenta.setString(5, venta.getObservaciones() != null ? venta.getObservaciones() : "");
-            pstmtVenta.setString(6, venta.getEstado() != null ? venta.getEstado() : "COMPLETADA");
-
-            int filasVenta = pstmtVenta.executeUpdate();
-            if (filasVenta == 0) {
-                throw new SQLException("No se pudo insertar la cabecera de la venta.");
-            }
-
-            // Obtener el ID generado para la venta
-            rsKeys = pstmtVenta.getGeneratedKeys();
-            if (!rsKeys.next()) {
-                throw new SQLException("No se pudo obtener el ID generado de la venta.");
-            }
-            int idVentaGenerada = rsKeys.getInt(1);
-            venta.setIdVenta(idVentaGenerada); // Actualizar el objeto Venta con su ID
-
-            // 2. Insertar todas las LINEAS_VENTA asociadas y acumular total de líneas
-            double totalLineasInsertadas = 0.0;
-            if (venta.getLineasVenta() != null && !venta.getLineasVenta().isEmpty()) {
-                pstmtLinea = con.prepareStatement(sqlLinea);
-                for (LineaVenta linea : venta.getLineasVenta()) {
-                    // Calcular importe_linea
-                    double subtotal = (linea.getCantidad() != null ? linea.getCantidad() : 0) *
-                            (linea.getPrecioVenta() != null ? linea.getPrecioVenta() : 0.0);
-                    double importeLineaCalculado = subtotal - (subtotal * ((linea.getDescuento() != null ? linea.getDescuento() : 0) / 100.0));
-                    linea.setImporteLinea(importeLineaCalculado); // asegurar que el objeto línea tenga el importe correcto
-
-                    pstmtLinea.setInt(1, idVentaGenerada);
-                    pstmtLinea.setInt(2, linea.getIdProducto());
-                    pstmtLinea.setInt(3, linea.getCantidad());
-                    pstmtLinea.setDouble(4, linea.getPrecioVenta());
-                    pstmtLinea.setInt(5, linea.getDescuento());
-                    pstmtLinea.setDouble(6, linea.getImporteLinea()); // usar el importe calculado
-
-                    int filasLinea = pstmtLinea.executeUpdate();
-                    if (filasLinea == 0) {
-                        // si alguna inserción de línea falla, revertimos toda la transacción
-                        con.rollback();
-                        throw new SQLException("No se pudo insertar una línea de la venta.");
-                    }
-                    // getImporteLinea() devuelve un primitivo (o fue inicializado arriba), así que simplemente sumamos
-                    totalLineasInsertadas += linea.getImporteLinea();
-                }
-            } else {
-                // Si no hay líneas, la transacción debería fallar según la lógica de negocio
-                con.rollback();
-                throw new IllegalArgumentException("La venta debe contener al menos una línea.");
-            }
-
-            // 3. Calcular el importe final en Java (evitar depender de función en BD)
-            double descuentoGlobal = venta.getDescuentoGlobal() != null ? venta.getDescuentoGlobal() : 0.0;
-            double importeTotalFinal = totalLineasInsertadas - (totalLineasInsertadas * descuentoGlobal / 100.0);
-
-            // 4. Actualizar el campo importe_total de la VENTA
-            pstmtUpdate = con.prepareStatement(sqlUpdateTotal);
-            pstmtUpdate.setDouble(1, importeTotalFinal);
-            pstmtUpdate.setInt(2, idVentaGenerada);
-
-            int filasUpdate = pstmtUpdate.executeUpdate();
-            if (filasUpdate == 0) {
-                con.rollback();
-                throw new SQLException("No se pudo actualizar el importe total de la venta.");
-            }
+            int idVentaGenerada = insertarConLineas(con, venta);
 
             // Si todo fue bien, confirmar la transacción
             con.commit();
-            System.out.println("✓ Venta #" + idVentaGenerada + " registrada y total calculado y actualizado en BD.");
+            marcarRegistrada(venta, idVentaGenerada); // Actualizar el objeto Venta con su ID
+            System.out.println("✓ Venta #" + idVentaGenerada + " registrada con " + venta.getLineasVenta().size() + " líneas en un único lote.");
             return idVentaGenerada; // Devolver el ID de la venta creada
 
         } catch (Exception e) { // Captura SQLException y otras como IllegalArgumentException
@@ -292,53 +314,305 @@ public class VentaDAOImpl implements IVentaDAO {
             // Relanzar la excepción original para que la capa superior (Service/UI) se entere
             throw new Exception("Error en la transacción de inserción de venta: " + e.getMessage(), e);
         } finally {
-            // Cerrar todos los recursos en orden inverso a su apertura
             try {
-                if (rsKeys != null) rsKeys.close();
+                if (con != null) {
+                    con.setAutoCommit(true); // Restaurar autocommit
+                }
             } catch (SQLException ignored) {
             }
-            try {
-                if (pstmtUpdate != null) pstmtUpdate.close();
-            } catch (SQLException ignored) {
+            ConexionBD.cerrarConexion(con);
+            if (bloqueo != null) {
+                bloqueo.close(); // tras el commit o rollback
             }
+        }
+    }
+
+    /**
+     * Núcleo de {@link #insertarConLineas(Venta)} sobre una transacción abierta por el llamador: reserva el stock,
+     * suma la venta al resumen del día e inserta cabecera y líneas. No confirma, no toma los cerrojos de
+     * {@link ReservaStock} (el llamador debe tenerlos hasta el commit o rollback) y no asigna el id a la venta:
+     * eso se hace con {@link #marcarRegistrada} una vez confirmada. Así varias ventas pueden compartir
+     * transacción (ColaVentasAgrupadas). Antes de abrir la transacción, el llamador debe haber llamado a
+     * {@link ResumenVentasDiarias#asegurarInicializado}.
+     *
+     * @return id_venta generado
+     */
+    public int insertarConLineas(Connection con, Venta venta) throws SQLException {
+        String sqlVenta = "INSERT INTO VENTAS (id_cliente, fecha_venta, descuento_global, importe_total, observaciones, estado) VALUES (?, ?, ?, ?, ?, ?)";
+        String sqlLinea = "INSERT INTO LINEAS_VENTA (id_venta, id_producto, cantidad, precio_venta, descuento_linea, importe_linea) VALUES (?, ?, ?, ?, ?, ?)";
+
+        if (venta.getLineasVenta() == null || venta.getLineasVenta().isEmpty()) {
+            throw new IllegalArgumentException("La venta debe contener al menos una línea.");
+        }
+
+        // 1. Calcular importes de línea y total final en Java antes de tocar la BD (en céntimos, redondeando
+        //    igual que DECIMAL(10,2)), así la cabecera se escribe una sola vez con su importe_total definitivo
+        for (LineaVenta linea : venta.getLineasVenta()) {
+            linea.setImporteLineaCentimos(linea.calcularImporteCentimos()); // asegurar que el objeto línea tenga el importe correcto
+        }
+        double descuentoGlobal = venta.getDescuentoGlobal() != null ? venta.getDescuentoGlobal() : 0.0;
+        long importeTotalFinal = venta.calcularImporteFinalCentimos();
+
+        // 2. Descontar el stock de forma condicional; si algún producto no llega, no se inserta nada
+        reservaStock.reservar(con, cantidadesPorProducto(venta));
+
+        // 3. Sumar la venta al resumen del día. Va antes de la cabecera: si otra transacción está
+        //    recalculando ese día (lee VENTAS con bloqueo), esta espera en la fila de resumen en lugar
+        //    de insertar en VENTAS en medio del recálculo y acabar en un interbloqueo. Cada venta usa una
+        //    franja al azar del día, así las ventas simultáneas no se esperan unas a otras en esa fila
+        LocalDate fechaVenta = venta.getFechaVenta() != null ? venta.getFechaVenta() : LocalDate.now();
+        resumenVentas.sumarVenta(con, fechaVenta, venta.getCliente().getIdCliente(), importeTotalFinal);
+
+        // 4. Insertar la cabecera de la VENTA ya con el importe total final
+        int idVentaGenerada;
+        try (PreparedStatement pstmtVenta = con.prepareStatement(sqlVenta, Statement.RETURN_GENERATED_KEYS)) {
+            pstmtVenta.setInt(1, venta.getCliente().getIdCliente());
+            pstmtVenta.setString(2, fechaVenta.toString());
+            pstmtVenta.setDouble(3, descuentoGlobal);
+            Dinero.fijar(pstmtVenta, 4, importeTotalFinal);
+            pstmtVenta.setString(5, venta.getObservaciones() != null ? venta.getObservaciones() : "");
+            pstmtVenta.setString(6, venta.getEstado() != null ? venta.getEstado() : "COMPLETADA");
+
+            int filasVenta = pstmtVenta.executeUpdate();
+            if (filasVenta == 0) {
+                throw new SQLException("No se pudo insertar la cabecera de la venta.");
+            }
+
+            // Obtener el ID generado para la venta
+            try (ResultSet rsKeys = pstmtVenta.getGeneratedKeys()) {
+                if (!rsKeys.next()) {
+                    throw new SQLException("No se pudo obtener el ID generado de la venta.");
+                }
+                idVentaGenerada = rsKeys.getInt(1);
+            }
+        }
+
+        // 5. Enviar todas las LINEAS_VENTA en un único lote JDBC
+        try (PreparedStatement pstmtLinea = con.prepareStatement(sqlLinea)) {
+            for (LineaVenta linea : venta.getLineasVenta()) {
+                pstmtLinea.setInt(1, idVentaGenerada);
+                pstmtLinea.setInt(2, linea.getIdProducto());
+                pstmtLinea.setInt(3, linea.getCantidad());
+                Dinero.fijar(pstmtLinea, 4, linea.precioVentaCentimos());
+                pstmtLinea.setInt(5, linea.getDescuento());
+                Dinero.fijar(pstmtLinea, 6, linea.importeLineaCentimos()); // usar el importe calculado
+                pstmtLinea.addBatch();
+            }
+
+            int[] resultados;
             try {
-                if (pstmtLinea != null) pstmtLinea.close();
-            } catch (SQLException ignored) {
+                resultados = pstmtLinea.executeBatch();
+            } catch (BatchUpdateException e) {
+                throw new SQLException(describirLineasFallidas(venta.getLineasVenta(), e.getUpdateCounts(), e.getMessage()), e);
             }
+            if (hayLineasFallidas(resultados, venta.getLineasVenta().size())) {
+                throw new SQLException(describirLineasFallidas(venta.getLineasVenta(), resultados, "no se insertó la fila"));
+            }
+        }
+        return idVentaGenerada;
+    }
+
+    /**
+     * Asigna a la venta y a sus líneas el id con el que quedó confirmada
+     */
+    public void marcarRegistrada(Venta venta, int idVenta) {
+        venta.setIdVenta(idVenta);
+        venta.setImporteTotalCentimos(venta.calcularImporteFinalCentimos());
+        for (LineaVenta linea : venta.getLineasVenta()) {
+            linea.setIdVenta(idVenta);
+        }
+    }
+
+    /**
+     * Cantidad total a descontar por producto (un producto puede aparecer en varias líneas)
+     */
+    static Map<Integer, Integer> cantidadesPorProducto(Venta venta) {
+        Map<Integer, Integer> cantidades = new HashMap<>();
+        for (LineaVenta linea : venta.getLineasVenta()) {
+            cantidades.merge(linea.getIdProducto(), linea.getCantidad(), Integer::sum);
+        }
+        return cantidades;
+    }
+
+    /**
+     * Comprueba los contadores de executeBatch(). SUCCESS_NO_INFO (-2) cuenta como correcto:
+     * es lo que devuelve el driver cuando reescribe el lote como un INSERT multi-fila.
+     */
+    private boolean hayLineasFallidas(int[] resultados, int esperadas) {
+        if (resultados.length < esperadas) {
+            return true;
+        }
+        for (int r : resultados) {
+            if (r == 0 || r == Statement.EXECUTE_FAILED) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Construye un mensaje indicando qué líneas del lote fallaron (numeradas desde 1)
+     */
+    private String describirLineasFallidas(List<LineaVenta> lineas, int[] resultados, String causa) {
+        List<String> fallidas = new ArrayList<>();
+        int n = lineas.size();
+        for (int i = 0; i < n; i++) {
+            boolean fallo;
+            if (resultados == null || resultados.length == 0) {
+                fallo = true; // el driver no informa por fila: el lote completo se rechazó
+            } else if (i < resultados.length) {
+                fallo = resultados[i] == 0 || resultados[i] == Statement.EXECUTE_FAILED;
+            } else {
+                // El driver se detuvo en la primera fila fallida: es la siguiente a la última informada
+                fallo = i == resultados.length;
+            }
+            if (fallo) {
+                fallidas.add("#" + (i + 1) + " (producto " + lineas.get(i).getIdProducto() + ")");
+            }
+        }
+        return "No se pudieron insertar las líneas " + String.join(", ", fallidas) + ": " + causa;
+    }
+
+    /**
+     * Cursor de solo avance sobre VENTAS. Lee bloques de {@link #TAMANIO_BLOQUE} filas y completa
+     * clientes y líneas de cada bloque con su misma conexión (el cursor es de servidor, admite otras
+     * sentencias mientras está abierto), así la memoria usada no depende del tamaño de la tabla y un
+     * recorrido ocupa una sola conexión del pool.
+     */
+    private final class CursorVentas implements Iterator<Venta>, AutoCloseable {
+        private Connection conn;
+        private PreparedStatement pstmt;
+        private ResultSet rs;
+        private final List<Venta> bloque = new ArrayList<>(TAMANIO_BLOQUE);
+        private int posicion = 0;
+        private boolean agotado = false;
+
+        CursorVentas() {
+            String sql = "SELECT " + SELECT_FIELDS + " FROM VENTAS ORDER BY fecha_venta DESC, id_venta DESC";
             try {
-                if (pstmtVenta != null) pstmtVenta.close();
-            } catch (SQLException ignored) {
+                conn = ConexionBD.getConexion();
+                pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                pstmt.setFetchSize(TAMANIO_BLOQUE);
+                rs = pstmt.executeQuery();
+            } catch (SQLException e) {
+                close();
+                throw new RuntimeException("Error al abrir cursor de ventas: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (posicion < bloque.size()) {
+                return true;
+            }
+            if (agotado) {
+                return false;
+            }
+            leerBloque();
+            return posicion < bloque.size();
+        }
+
+        @Override
+        public Venta next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
             }
+            Venta v = bloque.get(posicion);
+            bloque.set(posicion++, null); // liberar referencia en cuanto se entrega
+            return v;
+        }
+
+        private void leerBloque() {
+            bloque.clear();
+            posicion = 0;
             try {
-                if (con != null) {
-                    con.setAutoCommit(true); // Restaurar autocommit
-                    ConexionBD.cerrarConexion(con);
+                while (bloque.size() < TAMANIO_BLOQUE && rs.next()) {
+                    bloque.add(mapearVenta(rs));
                 }
-            } catch (SQLException ignored) {
+                completarVentas(conn, bloque);
+                if (bloque.size() < TAMANIO_BLOQUE) {
+                    agotado = true;
+                    close(); // devolver la conexión cuanto antes
+                }
+            } catch (SQLException e) {
+                close();
+                throw new RuntimeException("Error al leer cursor de ventas: " + e.getMessage(), e);
+            } catch (RuntimeException e) {
+                close();
+                throw e;
             }
         }
+
+        @Override
+        public void close() {
+            agotado = true;
+            ConexionBD.cerrarResultSet(rs);
+            ConexionBD.cerrarPreparedStatement(pstmt);
+            ConexionBD.cerrarConexion(conn);
+            rs = null;
+            pstmt = null;
+            conn = null;
+        }
+    }
+
+    /**
+     * Lee todas las filas de VENTAS y completa clientes y líneas en bloque:
+     * una consulta de ventas + consultas IN por lotes para clientes y líneas,
+     * en lugar de dos consultas por cada venta. Todo con la conexión que leyó las ventas.
+     */
+    private List<Venta> cargarVentas(Connection conn, ResultSet rs) throws SQLException {
+        List<Venta> ventas = new ArrayList<>();
+        while (rs.next()) {
+            ventas.add(mapearVenta(rs));
+        }
+        completarVentas(conn, ventas);
+        return ventas;
     }
 
+    /**
+     * Sustituye el cliente provisional (solo id) por el cliente completo y asigna las líneas
+     */
+    private void completarVentas(Connection conn, List<Venta> ventas) {
+        if (ventas.isEmpty()) {
+            return;
+        }
+
+        Set<Integer> idsCliente = new HashSet<>();
+        List<Integer> idsVenta = new ArrayList<>(ventas.size());
+        for (Venta v : ventas) {
+            idsCliente.add(v.getCliente().getIdCliente());
+            idsVenta.add(v.getIdVenta());
+        }
+
+        Map<Integer, Cliente> clientes = clienteDAO.obtenerPorIds(conn, idsCliente);
+        Map<Integer, List<LineaVenta>> lineas = lineaVentaDAO.obtenerPorVentas(conn, idsVenta);
+
+        for (Venta v : ventas) {
+            v.setCliente(clientes.get(v.getCliente().getIdCliente()));
+            v.setLineasVenta(lineas.getOrDefault(v.getIdVenta(), new ArrayList<>()));
+        }
+    }
 
     /**
-     * Mapea un ResultSet a un objeto Venta
+     * Mapea un ResultSet a un objeto Venta. El cliente queda provisional (solo id)
+     * hasta que {@link #completarVentas} lo carga junto con el resto.
      */
     private Venta mapearVenta(ResultSet rs) throws SQLException {
         Venta v = new Venta();
         v.setIdVenta(rs.getInt("id_venta"));
 
-        int idCliente = rs.getInt("id_cliente");
-        Cliente cliente = clienteDAO.obtenerPorCod(idCliente); // Asume que clienteDAO está inicializado
+        Cliente cliente = new Cliente();
+        cliente.setIdCliente(rs.getInt("id_cliente"));
         v.setCliente(cliente);
 
         // Asegurarse de manejar NULLs en fecha si es posible en BD
         Date fechaSql = rs.getDate("fecha_venta");
         v.setFechaVenta(fechaSql != null ? fechaSql.toLocalDate() : null);
 
-        // Usar getObject para manejar posibles NULLs en importe_total
-        v.setImporteTotal(rs.getObject("importe_total", Double.class));
+        // importe_total NULL se lee como 0 céntimos
+        v.setImporteTotalCentimos(Dinero.leer(rs, "importe_total"));
 
 
         return v;
     }
-}
\ No newline at end of file
+}
@@ -2,7 +2,10 @@ package com.remus.dao.interfaces;
 
 import com.remus.modelo.Cliente;
 
+import java.sql.Connection;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface IClienteDAO {
     /**
@@ -10,6 +13,18 @@ public interface IClienteDAO {
      */
     Cliente obtenerPorCod(int idCod);
 
+    /**
+     * Obtiene varios Clientes por su código en consultas por lotes (clave: id_cliente).
+     * Los códigos inexistentes no aparecen en el mapa.
+     */
+    Map<Integer, Cliente> obtenerPorIds(Collection<Integer> idsCli);
+
+    /**
+     * Igual que {@link #obtenerPorIds(Collection)}, pero con una conexión que ya tiene el llamador
+     * (no la cierra ni pide otra al pool)
+     */
+    Map<Integer, Cliente> obtenerPorIds(Connection conn, Collection<Integer> idsCli);
+
     /**
      * Obtiene todos los Clientes
      */
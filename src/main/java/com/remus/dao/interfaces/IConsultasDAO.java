@@ -1,14 +1,24 @@
 package com.remus.dao.interfaces;
 
+import com.remus.modelo.TablaResultados;
+import com.remus.modelo.VentaDetallada;
+
 import java.time.LocalDate;
 import java.util.List;
-import java.util.Map;
+import java.util.function.Consumer;
 
 public interface IConsultasDAO {
-    List<Map<String, Object>> obtenerClientesOrdenados();
-    List<Map<String, Object>> obtenerProductosOrdenados();
-    Map<Integer, Map<String, Object>> obtenerVentasConLineas();
-    Map<String, Object> obtenerResumenVentas(LocalDate fechaInicio, LocalDate fechaFin);
-    List<Map<String, Object>> obtenerVentasPorCliente(LocalDate fechaInicio, LocalDate fechaFin);
+    TablaResultados obtenerClientesOrdenados();
+    TablaResultados obtenerProductosOrdenados();
+    List<VentaDetallada> obtenerVentasConLineas();
+    /**
+     * Recorre las ventas (de la más reciente a la más antigua) entregando cada una con sus líneas
+     * en cuanto se termina de leer; solo se mantiene en memoria la venta en curso.
+     */
+    void recorrerVentasConLineas(Consumer<VentaDetallada> accion);
+    /**
+     * Resumen de ventas del período (una sola fila)
+     */
+    TablaResultados obtenerResumenVentas(LocalDate fechaInicio, LocalDate fechaFin);
+    TablaResultados obtenerVentasPorCliente(LocalDate fechaInicio, LocalDate fechaFin);
 }
-
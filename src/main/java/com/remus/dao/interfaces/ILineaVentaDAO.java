@@ -1,11 +1,14 @@
 package com.remus.dao.interfaces;
 
 import com.remus.modelo.LineaVenta;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface ILineaVentaDAO {
     LineaVenta obtenerPorId(int idLinea);
     List<LineaVenta> obtenerPorVenta(int idVenta);
+    Map<Integer, List<LineaVenta>> obtenerPorVentas(Collection<Integer> idsVenta);
     boolean insertar(LineaVenta lineaVenta);
     boolean actualizar(LineaVenta lineaVenta);
     boolean eliminar(int idLinea);
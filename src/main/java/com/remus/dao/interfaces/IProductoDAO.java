@@ -1,10 +1,17 @@
 package com.remus.dao.interfaces;
 
 import com.remus.modelo.Producto;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface IProductoDAO {
     Producto obtenerPorId(int idProducto);
+    /**
+     * Obtiene varios productos por su ID en consultas por lotes (clave: id_producto).
+     * Los IDs inexistentes no aparecen en el mapa.
+     */
+    Map<Integer, Producto> obtenerPorIds(Collection<Integer> idsProducto);
     Producto obtenerPorCodigo(String codigo);
     List<Producto> obtenerTodos();
     List<Producto> obtenerActivos();
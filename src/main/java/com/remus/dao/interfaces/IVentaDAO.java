@@ -1,7 +1,10 @@
 package com.remus.dao.interfaces;
 
 import com.remus.modelo.Venta;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface IVentaDAO {
     Venta obtenerPorId(int idVenta);
@@ -11,4 +14,22 @@ public interface IVentaDAO {
     boolean actualizar(Venta venta);
     boolean eliminar(int idVenta);
     int insertarConLineas(Venta venta) throws Exception;
+
+    /**
+     * Página de ventas ordenadas por (fecha_venta, id_venta) descendente, empezando justo
+     * después de la última venta de la página anterior (paginación por clave, sin OFFSET).
+     * Para la primera página se pasan fechaDesde e idDesde a null. Las ventas sin fecha no se incluyen.
+     */
+    List<Venta> obtenerPagina(LocalDate fechaDesde, Integer idDesde, int tamanioPagina);
+
+    /**
+     * Recorre todas las ventas (mismo orden que obtenerTodas) con un cursor de solo avance,
+     * cargando clientes y líneas por bloques. El Stream debe cerrarse (try-with-resources).
+     */
+    Stream<Venta> streamTodas();
+
+    /**
+     * Aplica la acción a cada venta sin materializar la lista completa
+     */
+    void recorrerTodas(Consumer<Venta> accion);
 }
@@ -0,0 +1,120 @@
+package com.remus.modelo;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Aritmética de dinero en punto fijo: los importes viajan como {@code long} en céntimos, igual que los
+ * DECIMAL(10,2) del esquema, y las operaciones redondean a céntimo con la regla de MySQL (mitad hacia arriba,
+ * alejándose de cero), así que lo calculado en Java coincide con lo que guarda y suma la base de datos.
+ * <p>
+ * Los porcentajes con decimales (p. ej. el descuento global 12,5 %) se expresan en puntos básicos
+ * (centésimas de punto porcentual: 12,5 % = 1250).
+ */
+public final class Dinero {
+
+    public static final long CENTIMOS_POR_EURO = 100;
+    private static final long PUNTOS_BASICOS_100 = 10_000;
+
+    private Dinero() {
+    }
+
+    // ==================== CONVERSIONES ====================
+
+    /**
+     * Euros en double (UI, valores antiguos) → céntimos, redondeando el valor decimal que se ve al imprimirlo
+     * (0.285 → 29, no 28 como daría Math.round(0.285 * 100))
+     */
+    public static long deEuros(double euros) {
+        if (Double.isNaN(euros) || Double.isInfinite(euros)) {
+            throw new IllegalArgumentException("Importe no válido: " + euros);
+        }
+        return BigDecimal.valueOf(euros).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static long deEuros(BigDecimal euros) {
+        return euros == null ? 0 : euros.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static double aEuros(long centimos) {
+        return centimos / (double) CENTIMOS_POR_EURO;
+    }
+
+    public static BigDecimal aBigDecimal(long centimos) {
+        return BigDecimal.valueOf(centimos, 2);
+    }
+
+    /**
+     * Porcentaje con decimales (12.5) → puntos básicos (1250). Los porcentajes vienen de DECIMAL(5,2),
+     * con dos decimales como mucho, así que basta con redondear el valor escalado (sin reservar memoria)
+     */
+    public static long puntosBasicos(double porcentaje) {
+        return Math.round(porcentaje * 100);
+    }
+
+    // ==================== JDBC ====================
+
+    /**
+     * Lee una columna DECIMAL(p,2) en céntimos (NULL → 0). Se lee como double para no crear un BigDecimal
+     * por celda: con dos decimales y menos de 2^53 céntimos, el double más cercano multiplicado por 100
+     * redondea siempre al céntimo exacto.
+     */
+    public static long leer(ResultSet rs, int columna) throws SQLException {
+        return Math.round(rs.getDouble(columna) * CENTIMOS_POR_EURO);
+    }
+
+    public static long leer(ResultSet rs, String columna) throws SQLException {
+        return Math.round(rs.getDouble(columna) * CENTIMOS_POR_EURO);
+    }
+
+    public static void fijar(PreparedStatement pstmt, int indice, long centimos) throws SQLException {
+        pstmt.setBigDecimal(indice, aBigDecimal(centimos));
+    }
+
+    // ==================== OPERACIONES ====================
+
+    public static long multiplicar(long centimos, int cantidad) {
+        return Math.multiplyExact(centimos, (long) cantidad);
+    }
+
+    /**
+     * Parte {@code porcentaje} % de un importe (porcentaje entero, como el descuento de línea)
+     */
+    public static long porcentaje(long centimos, int porcentaje) {
+        return dividirRedondeando(Math.multiplyExact(centimos, (long) porcentaje), 100);
+    }
+
+    /**
+     * Importe tras descontar {@code porcentaje} % (entero). Se redondea el descuento, no el resultado,
+     * para que importe = bruto - descuento se cumpla siempre al céntimo
+     */
+    public static long aplicarDescuento(long centimos, int porcentaje) {
+        return centimos - porcentaje(centimos, porcentaje);
+    }
+
+    /**
+     * Parte de un importe expresada en puntos básicos (1250 = 12,5 %)
+     */
+    public static long porcentajePb(long centimos, long puntosBasicos) {
+        return dividirRedondeando(Math.multiplyExact(centimos, puntosBasicos), PUNTOS_BASICOS_100);
+    }
+
+    public static long aplicarDescuentoPb(long centimos, long puntosBasicos) {
+        return centimos - porcentajePb(centimos, puntosBasicos);
+    }
+
+    /**
+     * División entera redondeando la mitad alejándose de cero (ROUND de MySQL); divisor positivo
+     */
+    public static long dividirRedondeando(long dividendo, long divisor) {
+        long cociente = dividendo / divisor;
+        long resto = dividendo % divisor;
+        if (Math.abs(resto) * 2 >= divisor) {
+            cociente += dividendo < 0 ? -1 : 1;
+        }
+        return cociente;
+    }
+}
@@ -1,34 +1,85 @@
 package com.remus.modelo;
 
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
 public class LineaVenta {
     private Integer idLinea;
     private Integer idVenta;
     private Integer idProducto;
     private Integer cantidad;
-    private Double precioVenta;
     private Integer descuento;
-    private Double importeLinea;
+    // Importes en céntimos (ver Dinero); los getters y setters en euros se mantienen para la UI y el JSON
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private long precioVentaCentimos;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private long importeLineaCentimos;
+
+    public LineaVenta(Integer idLinea, Integer idVenta, Integer idProducto, Integer cantidad,
+                      double precioVenta, Integer descuento, double importeLinea) {
+        this.idLinea = idLinea;
+        this.idVenta = idVenta;
+        this.idProducto = idProducto;
+        this.cantidad = cantidad;
+        this.descuento = descuento;
+        this.precioVentaCentimos = Dinero.deEuros(precioVenta);
+        this.importeLineaCentimos = Dinero.deEuros(importeLinea);
+    }
+
+    public double getPrecioVenta() {
+        return Dinero.aEuros(precioVentaCentimos);
+    }
+
+    public void setPrecioVenta(double precioVenta) {
+        this.precioVentaCentimos = Dinero.deEuros(precioVenta);
+    }
+
+    public long precioVentaCentimos() {
+        return precioVentaCentimos;
+    }
+
+    public void setPrecioVentaCentimos(long centimos) {
+        this.precioVentaCentimos = centimos;
+    }
 
     /**
-     * Calcula el importe de la línea (cantidad * precio unitario)
+     * Importe de la línea ya calculado (cantidad × precio menos el descuento de línea)
      */
     public double getImporteLinea() {
-        int cant = (cantidad != null) ? cantidad : 0;
-        double precio = (importeLinea != null) ? importeLinea : 0.0;
-        return cant * precio;
+        return Dinero.aEuros(importeLineaCentimos);
+    }
+
+    public void setImporteLinea(double importeLinea) {
+        this.importeLineaCentimos = Dinero.deEuros(importeLinea);
+    }
+
+    public long importeLineaCentimos() {
+        return importeLineaCentimos;
+    }
+
+    public void setImporteLineaCentimos(long centimos) {
+        this.importeLineaCentimos = centimos;
+    }
+
+    /**
+     * Calcula el importe de la línea en céntimos: cantidad × precio unitario menos el descuento de línea
+     */
+    public long calcularImporteCentimos() {
+        long bruto = Dinero.multiplicar(precioVentaCentimos, cantidad != null ? cantidad : 0);
+        return Dinero.aplicarDescuento(bruto, descuento != null ? descuento : 0);
     }
 
     public void mostrar() {
         System.out.println("└─────────────────────────────────────────");
         System.out.printf("│ Cantidad: %d%n", cantidad != null ? cantidad : 0);
-        System.out.printf("│ Precio Unitario: %.2f €%n", importeLinea != null ? importeLinea : 0.0);
+        System.out.printf("│ Precio Unitario: %.2f €%n", getPrecioVenta());
         System.out.printf("│ Importe Línea: %.2f €%n", getImporteLinea());
         System.out.println("└─────────────────────────────────────────\n");
     }
@@ -5,48 +5,91 @@ import java.time.LocalDateTime;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class Producto {
+    private static final int PORCENTAJE_PRECIO_MINIMO = 80;
+    private static final int PORCENTAJE_PRECIO_MAXIMO = 120;
+
     private Integer idProducto;
     private String codigo;
     private String descripcion;
-    private Double precioRecomendado;
+    // Precio en céntimos (ver Dinero); getPrecioRecomendado/setPrecioRecomendado en euros para la UI y el JSON
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private long precioRecomendadoCentimos;
     private Integer stock;
     private Integer stockMinimo;
     private Boolean activo;
     private String fechaCreacion;
 
-    public Producto(String codigo, String descripcion, Double precioRecomendado,
+    public Producto(String codigo, String descripcion, double precioRecomendado,
                     Integer stock, Integer stockMinimo) {
         this.codigo = codigo;
         this.descripcion = descripcion;
-        this.precioRecomendado = precioRecomendado;
+        this.precioRecomendadoCentimos = Dinero.deEuros(precioRecomendado);
         this.stock = stock;
         this.stockMinimo = stockMinimo;
         this.activo = true;
     }
 
+    public Producto(Integer idProducto, String codigo, String descripcion, long precioRecomendadoCentimos,
+                    Integer stock, Integer stockMinimo, Boolean activo, String fechaCreacion) {
+        this.idProducto = idProducto;
+        this.codigo = codigo;
+        this.descripcion = descripcion;
+        this.precioRecomendadoCentimos = precioRecomendadoCentimos;
+        this.stock = stock;
+        this.stockMinimo = stockMinimo;
+        this.activo = activo;
+        this.fechaCreacion = fechaCreacion;
+    }
+
+    public double getPrecioRecomendado() {
+        return Dinero.aEuros(precioRecomendadoCentimos);
+    }
+
+    public void setPrecioRecomendado(double precioRecomendado) {
+        this.precioRecomendadoCentimos = Dinero.deEuros(precioRecomendado);
+    }
+
+    public long precioRecomendadoCentimos() {
+        return precioRecomendadoCentimos;
+    }
+
+    public void setPrecioRecomendadoCentimos(long centimos) {
+        this.precioRecomendadoCentimos = centimos;
+    }
+
     /**
      * Verifica si el precio está dentro del rango permitido (±20%)
      */
-    public boolean validarPrecioVenta(Double precioVenta) {
-        double min = precioRecomendado * 0.80;
-        double max = precioRecomendado * 1.20;
-        return precioVenta >= min && precioVenta <= max;
+    public boolean validarPrecioVenta(double precioVenta) {
+        return validarPrecioVentaCentimos(Dinero.deEuros(precioVenta));
+    }
+
+    public boolean validarPrecioVentaCentimos(long precioVenta) {
+        return precioVenta >= precioMinimoCentimos() && precioVenta <= precioMaximoCentimos();
     }
 
     /**
      * Obtiene el precio mínimo permitido
      */
-    public Double getPrecioMinimo() {
-        return precioRecomendado * 0.80;
+    public double getPrecioMinimo() {
+        return Dinero.aEuros(precioMinimoCentimos());
+    }
+
+    public long precioMinimoCentimos() {
+        return Dinero.porcentaje(precioRecomendadoCentimos, PORCENTAJE_PRECIO_MINIMO);
     }
 
     /**
      * Obtiene el precio máximo permitido
      */
-    public Double getPrecioMaximo() {
-        return precioRecomendado * 1.20;
+    public double getPrecioMaximo() {
+        return Dinero.aEuros(precioMaximoCentimos());
+    }
+
+    public long precioMaximoCentimos() {
+        return Dinero.porcentaje(precioRecomendadoCentimos, PORCENTAJE_PRECIO_MAXIMO);
     }
 
     /**
@@ -74,7 +117,7 @@ public class Producto {
         System.out.printf("│ ID Producto: %d%n", idProducto);
         System.out.printf("│ Código: %s%n", codigo);
         System.out.printf("│ Descripción: %s%n", descripcion);
-        System.out.printf("│ Precio Recomendado: %.2f €%n", precioRecomendado);
+        System.out.printf("│ Precio Recomendado: %.2f €%n", getPrecioRecomendado());
         System.out.printf("│ Stock Actual: %d unidades%n", stock);
         System.out.printf("│ Stock Mínimo: %d unidades%n", stockMinimo);
         System.out.printf("│ Estado: %s%n", activo ? "Activo" : "Inactivo");
@@ -0,0 +1,222 @@
+package com.remus.modelo;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Resultado tabular de un reporte guardado por columnas: un array primitivo por columna
+ * (int[], double[] o String[]) más un esquema con el nombre y el tipo de cada una.
+ * Los valores se guardan sin formatear; el texto a mostrar se genera solo al pintar con {@link #formatear}.
+ */
+public class TablaResultados {
+
+    public enum Tipo {
+        ENTERO, DECIMAL, MONEDA, PORCENTAJE, TEXTO
+    }
+
+    private static final int CAPACIDAD_INICIAL = 16;
+
+    private final String[] nombres;
+    private final Tipo[] tipos;
+    // Un array por columna: int[] (ENTERO), String[] (TEXTO) o double[] (resto)
+    private final Object[] columnas;
+    private final BitSet[] nulos;
+    private int filas = 0;
+
+    public TablaResultados(String[] nombres, Tipo[] tipos) {
+        if (nombres.length != tipos.length) {
+            throw new IllegalArgumentException("Cada columna necesita nombre y tipo");
+        }
+        this.nombres = nombres;
+        this.tipos = tipos;
+        this.columnas = new Object[tipos.length];
+        this.nulos = new BitSet[tipos.length];
+        for (int c = 0; c < tipos.length; c++) {
+            columnas[c] = crearColumna(tipos[c], CAPACIDAD_INICIAL);
+            nulos[c] = new BitSet();
+        }
+    }
+
+    /**
+     * Añade una fila leyendo las columnas 1..n del ResultSet en el orden del esquema
+     */
+    public void anadirFila(ResultSet rs) throws SQLException {
+        asegurarCapacidad();
+        for (int c = 0; c < tipos.length; c++) {
+            switch (tipos[c]) {
+                case ENTERO:
+                    ((int[]) columnas[c])[filas] = rs.getInt(c + 1);
+                    break;
+                case TEXTO:
+                    ((String[]) columnas[c])[filas] = rs.getString(c + 1);
+                    break;
+                default:
+                    ((double[]) columnas[c])[filas] = rs.getDouble(c + 1);
+                    break;
+            }
+            if (rs.wasNull()) {
+                nulos[c].set(filas);
+            }
+        }
+        filas++;
+    }
+
+    /**
+     * Añade una fila con valores ya calculados (Number o String según el tipo; null para vacío)
+     */
+    public void anadirFila(Object... valores) {
+        if (valores.length != tipos.length) {
+            throw new IllegalArgumentException("Se esperaban " + tipos.length + " valores y hay " + valores.length);
+        }
+        asegurarCapacidad();
+        for (int c = 0; c < tipos.length; c++) {
+            Object v = valores[c];
+            if (v == null) {
+                nulos[c].set(filas);
+                continue;
+            }
+            switch (tipos[c]) {
+                case ENTERO:
+                    ((int[]) columnas[c])[filas] = ((Number) v).intValue();
+                    break;
+                case TEXTO:
+                    ((String[]) columnas[c])[filas] = v.toString();
+                    break;
+                default:
+                    ((double[]) columnas[c])[filas] = ((Number) v).doubleValue();
+                    break;
+            }
+        }
+        filas++;
+    }
+
+    public int getNumFilas() {
+        return filas;
+    }
+
+    public int getNumColumnas() {
+        return tipos.length;
+    }
+
+    public boolean isEmpty() {
+        return filas == 0;
+    }
+
+    public String getNombre(int columna) {
+        return nombres[columna];
+    }
+
+    public Tipo getTipo(int columna) {
+        return tipos[columna];
+    }
+
+    public boolean esNulo(int fila, int columna) {
+        return nulos[columna].get(fila);
+    }
+
+    public int getEntero(int fila, int columna) {
+        return ((int[]) columnas[columna])[fila];
+    }
+
+    public double getDecimal(int fila, int columna) {
+        return ((double[]) columnas[columna])[fila];
+    }
+
+    public String getTexto(int fila, int columna) {
+        return ((String[]) columnas[columna])[fila];
+    }
+
+    /**
+     * Valor sin formatear (Integer, Double o String; null si es NULL), p. ej. para ordenar en una JTable
+     */
+    public Object getValor(int fila, int columna) {
+        if (esNulo(fila, columna)) {
+            return null;
+        }
+        switch (tipos[columna]) {
+            case ENTERO:
+                return getEntero(fila, columna);
+            case TEXTO:
+                return getTexto(fila, columna);
+            default:
+                return getDecimal(fila, columna);
+        }
+    }
+
+    /**
+     * Clase Java de los valores de la columna (para TableModel.getColumnClass)
+     */
+    public Class<?> getClaseColumna(int columna) {
+        switch (tipos[columna]) {
+            case ENTERO:
+                return Integer.class;
+            case TEXTO:
+                return String.class;
+            default:
+                return Double.class;
+        }
+    }
+
+    /**
+     * Texto a mostrar de una celda
+     */
+    public String formatear(int fila, int columna) {
+        return formatear(tipos[columna], getValor(fila, columna));
+    }
+
+    public static String formatear(Tipo tipo, Object valor) {
+        if (valor == null) {
+            return "";
+        }
+        switch (tipo) {
+            case MONEDA:
+                return String.format("%.2f €", ((Number) valor).doubleValue());
+            case PORCENTAJE:
+                return String.format("%.1f%%", ((Number) valor).doubleValue());
+            case DECIMAL:
+                return String.format("%.2f", ((Number) valor).doubleValue());
+            default:
+                return valor.toString();
+        }
+    }
+
+    // ==================== INTERNOS ====================
+
+    private void asegurarCapacidad() {
+        int capacidad = longitud(columnas.length > 0 ? columnas[0] : null);
+        if (filas < capacidad || columnas.length == 0) {
+            return;
+        }
+        int nueva = capacidad * 2;
+        for (int c = 0; c < columnas.length; c++) {
+            Object col = columnas[c];
+            if (col instanceof int[]) {
+                columnas[c] = Arrays.copyOf((int[]) col, nueva);
+            } else if (col instanceof double[]) {
+                columnas[c] = Arrays.copyOf((double[]) col, nueva);
+            } else {
+                columnas[c] = Arrays.copyOf((String[]) col, nueva);
+            }
+        }
+    }
+
+    private static int longitud(Object columna) {
+        if (columna instanceof int[]) return ((int[]) columna).length;
+        if (columna instanceof double[]) return ((double[]) columna).length;
+        if (columna instanceof String[]) return ((String[]) columna).length;
+        return 0;
+    }
+
+    private static Object crearColumna(Tipo tipo, int capacidad) {
+        switch (tipo) {
+            case ENTERO:
+                return new int[capacidad];
+            case TEXTO:
+                return new String[capacidad];
+            default:
+                return new double[capacidad];
+        }
+    }
+}
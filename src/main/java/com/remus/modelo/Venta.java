@@ -12,8 +12,11 @@ public class Venta {
     private Integer idVenta;
     private Cliente cliente;
     private LocalDate fechaVenta;
-    private Double descuentoGlobal;
-    private Double importeTotal;
+    private Double descuentoGlobal;      // porcentaje, p. ej. 12.5
+    // Importe en céntimos (ver Dinero); getImporteTotal/setImporteTotal en euros para la UI y el JSON
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private long importeTotalCentimos;
     private String observaciones;
     private String estado;
     private List<LineaVenta> lineasVenta;
@@ -22,7 +25,7 @@ public class Venta {
         this.cliente = cliente;
         this.fechaVenta = fechaVenta;
         this.descuentoGlobal = 0.0;
-        this.importeTotal = 0.0;
+        this.importeTotalCentimos = 0;
         this.estado = "COMPLETADA";
         this.lineasVenta = new ArrayList<>();
     }
@@ -37,16 +40,49 @@ public class Venta {
         lineasVenta.add(linea);
     }
 
+    public double getImporteTotal() {
+        return Dinero.aEuros(importeTotalCentimos);
+    }
+
+    public void setImporteTotal(double importeTotal) {
+        this.importeTotalCentimos = Dinero.deEuros(importeTotal);
+    }
+
+    public long importeTotalCentimos() {
+        return importeTotalCentimos;
+    }
+
+    public void setImporteTotalCentimos(long centimos) {
+        this.importeTotalCentimos = centimos;
+    }
+
     /**
      * Calcula el total de la venta sumando todas las líneas
      */
-    public Double calcularTotal() {
-        if (lineasVenta == null || lineasVenta.isEmpty()) {
-            return 0.0;
+    public double calcularTotal() {
+        return Dinero.aEuros(calcularTotalCentimos());
+    }
+
+    /**
+     * Suma exacta de los importes de línea en céntimos
+     */
+    public long calcularTotalCentimos() {
+        if (lineasVenta == null) {
+            return 0;
+        }
+        long total = 0;
+        for (int i = 0; i < lineasVenta.size(); i++) {
+            total = Math.addExact(total, lineasVenta.get(i).importeLineaCentimos());
         }
-        return lineasVenta.stream()
-                .mapToDouble(LineaVenta::getImporteLinea)
-                .sum();
+        return total;
+    }
+
+    /**
+     * Total de las líneas menos el descuento global, redondeado al céntimo como lo guarda la BD
+     */
+    public long calcularImporteFinalCentimos() {
+        return Dinero.aplicarDescuentoPb(calcularTotalCentimos(), Dinero.puntosBasicos(
+                descuentoGlobal != null ? descuentoGlobal : 0.0));
     }
 
     /**
@@ -61,7 +97,7 @@ public class Venta {
         return String.format("Venta #%d - %s - Cliente: %s - Total: %.2f €",
                 idVenta, fechaVenta,
                 cliente != null ? cliente.getNombreCompleto() : "N/A",
-                importeTotal);
+                getImporteTotal());
     }
 
     public void mostrar() {
@@ -86,16 +122,15 @@ public class Venta {
         }
 
         // Recalcular importe total si es necesario
-        double totalCalculado = calcularTotal();
+        long totalCalculado = calcularTotalCentimos();
         // aplicar descuento global entendido como porcentaje (por ejemplo 10.0 => 10%)
-        double descuento = (descuentoGlobal != null) ? descuentoGlobal : 0.0;
-        double totalConDescuento = totalCalculado - (totalCalculado * descuento / 100.0);
+        long totalConDescuento = calcularImporteFinalCentimos();
         // guardar en el campo importeTotal para mantener consistencia
-        this.importeTotal = totalConDescuento;
+        this.importeTotalCentimos = totalConDescuento;
 
         System.out.println("╠═════════════════════════════════════════");
-        System.out.printf("║ Total bruto: %.2f €%n", totalCalculado);
-        System.out.printf("║ Total con descuento: %.2f €%n", totalConDescuento);
+        System.out.printf("║ Total bruto: %.2f €%n", Dinero.aEuros(totalCalculado));
+        System.out.printf("║ Total con descuento: %.2f €%n", Dinero.aEuros(totalConDescuento));
         if (observaciones != null && !observaciones.isEmpty()) {
             System.out.println("╠═════════════════════════════════════════");
             System.out.printf("║ Observaciones: %s%n", observaciones);
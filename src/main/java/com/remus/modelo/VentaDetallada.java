@@ -0,0 +1,35 @@
+package com.remus.modelo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Venta con sus líneas tal como se muestra en el reporte de ventas detalladas
+ * (cliente y producto ya resueltos a texto, importes sin formatear)
+ */
+@Data
+@NoArgsConstructor
+public class VentaDetallada {
+    private int idVenta;
+    private String fecha;
+    private String cliente;
+    private double descuentoGlobal;
+    private double importeTotal;
+    private List<Linea> lineas = new ArrayList<>();
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Linea {
+        private String codigo;
+        private String descripcion;
+        private int cantidad;
+        private double precioUnitario;
+        private int descuento;
+        private double importe;
+    }
+}
@@ -1,12 +1,12 @@
 package com.remus.service;
 
 import com.remus.dao.interfaces.IClienteDAO;
-import com.remus.dao.ClienteDAOImpl;
+import com.remus.dao.ClienteDAOCache;
 import com.remus.modelo.Cliente;
 
 public class ClienteValidar {
 
-    private static final IClienteDAO clienteDAO = new ClienteDAOImpl();
+    private static final IClienteDAO clienteDAO = ClienteDAOCache.compartido();
 
     // Validar ID positivo
     public static void validarId(int id) {
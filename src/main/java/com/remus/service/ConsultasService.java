@@ -1,10 +1,14 @@
 package com.remus.service;
 
+import com.remus.dao.AlmacenVentasColumnar;
 import com.remus.dao.ConsultasDAOImpl;
 import com.remus.dao.interfaces.IConsultasDAO;
+import com.remus.modelo.TablaResultados;
+import com.remus.modelo.VentaDetallada;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Servicio con las 5 consultas/reportes requeridas para MySQL
@@ -14,34 +18,58 @@ import java.util.*;
 public class ConsultasService {
 
     private final IConsultasDAO consultasDAO = new ConsultasDAOImpl();
+    // Opcional (-Dremus.columnar=true): si está cargado, los reportes 4 y 5 se calculan en memoria en lugar de en MySQL
+    private volatile AlmacenVentasColumnar almacenColumnar =
+            AlmacenVentasColumnar.activado() ? AlmacenVentasColumnar.compartido() : null;
+
+    /**
+     * Enruta el resumen y las ventas por cliente al almacén columnar (null vuelve a usar la BD).
+     * Mientras el almacén no esté cargado se sigue consultando la BD.
+     */
+    public void usarAlmacenColumnar(AlmacenVentasColumnar almacen) {
+        this.almacenColumnar = almacen;
+    }
 
     // ========== CONSULTA 1: CLIENTES Ordenados por Apellidos ==========
-    public List<Map<String, Object>> consultaCLIENTESOrdenados() {
+    public TablaResultados consultaCLIENTESOrdenados() {
         return consultasDAO.obtenerClientesOrdenados();
     }
 
     // ========== CONSULTA 2: PRODUCTOS Ordenados por Descripción ==========
-    public List<Map<String, Object>> consultaPRODUCTOSOrdenados() {
+    public TablaResultados consultaPRODUCTOSOrdenados() {
         return consultasDAO.obtenerProductosOrdenados();
     }
 
     // ========== CONSULTA 3: VENTAS con Subreporte de Líneas ==========
-    public Map<Integer, Map<String, Object>> consultaVENTASConLineas() {
+    public List<VentaDetallada> consultaVENTASConLineas() {
         return consultasDAO.obtenerVentasConLineas();
     }
 
+    public void recorrerVENTASConLineas(Consumer<VentaDetallada> accion) {
+        consultasDAO.recorrerVentasConLineas(accion);
+    }
+
     // ========== CONSULTA 4: Resumen de VENTAS por Rango de Fechas ==========
-    public Map<String, Object> consultaResumenVENTAS(LocalDate fechaInicio, LocalDate fechaFin) {
+    public TablaResultados consultaResumenVENTAS(LocalDate fechaInicio, LocalDate fechaFin) {
+        AlmacenVentasColumnar almacen = almacenColumnar;
+        if (almacen != null && almacen.isCargado()) {
+            return almacen.obtenerResumenVentas(fechaInicio, fechaFin);
+        }
         return consultasDAO.obtenerResumenVentas(fechaInicio, fechaFin);
     }
 
     // ========== CONSULTA 5: VENTAS por Cliente en Rango de Fechas ==========
-    public List<Map<String, Object>> consultaVENTASPorCliente(LocalDate fechaInicio, LocalDate fechaFin) {
+    public TablaResultados consultaVENTASPorCliente(LocalDate fechaInicio, LocalDate fechaFin) {
+        AlmacenVentasColumnar almacen = almacenColumnar;
+        if (almacen != null && almacen.isCargado()) {
+            return almacen.obtenerVentasPorCliente(fechaInicio, fechaFin);
+        }
         return consultasDAO.obtenerVentasPorCliente(fechaInicio, fechaFin);
     }
 
     // ========== METODO AUXILIAR: Convertir resultados a String formateado ==========
-    public String formatearResultados(String titulo, List<Map<String, Object>> datos) {
+    // Los valores llegan sin formatear: aquí se convierten a texto según el tipo de cada columna
+    public String formatearResultados(String titulo, TablaResultados datos) {
         StringBuilder sb = new StringBuilder();
         sb.append("\n╔════════════════════════════════════════════╗\n");
         sb.append("║ ").append(String.format("%-40s", titulo)).append("                     ║\n");
@@ -53,17 +81,16 @@ public class ConsultasService {
         }
 
         // Encabezados
-        Map<String, Object> primeraFila = datos.get(0);
-        for (String clave : primeraFila.keySet()) {
-            sb.append(String.format("%-20s | ", clave));
+        for (int c = 0; c < datos.getNumColumnas(); c++) {
+            sb.append(String.format("%-20s | ", datos.getNombre(c)));
         }
         sb.append("\n");
-        sb.append("─".repeat(primeraFila.size() * 22)).append("\n");
+        sb.append("─".repeat(datos.getNumColumnas() * 22)).append("\n");
 
         // Datos
-        for (Map<String, Object> fila : datos) {
-            for (Object valor : fila.values()) {
-                sb.append(String.format("%-20s | ", valor != null ? valor.toString() : "N/A"));
+        for (int f = 0; f < datos.getNumFilas(); f++) {
+            for (int c = 0; c < datos.getNumColumnas(); c++) {
+                sb.append(String.format("%-20s | ", datos.esNulo(f, c) ? "N/A" : datos.formatear(f, c)));
             }
             sb.append("\n");
         }
@@ -71,7 +98,10 @@ public class ConsultasService {
         return sb.toString();
     }
 
-    public String formatearResumen(String titulo, Map<String, Object> datos) {
+    /**
+     * Formatea la primera fila de la tabla como pares "columna: valor"
+     */
+    public String formatearResumen(String titulo, TablaResultados datos) {
         StringBuilder sb = new StringBuilder();
         sb.append("\n╔════════════════════════════════════════════╗\n");
         sb.append("║ ").append(String.format("%-40s", titulo)).append(" ║\n");
@@ -82,8 +112,8 @@ public class ConsultasService {
             return sb.toString();
         }
 
-        for (Map.Entry<String, Object> entry : datos.entrySet()) {
-            sb.append(String.format("%-30s: %s\n", entry.getKey(), entry.getValue()));
+        for (int c = 0; c < datos.getNumColumnas(); c++) {
+            sb.append(String.format("%-30s: %s\n", datos.getNombre(c), datos.formatear(0, c)));
         }
 
         return sb.toString();
@@ -0,0 +1,1012 @@
+package com.remus.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.remus.connection.ConexionBD;
+import com.remus.dao.ClienteDAOCache;
+import com.remus.dao.ClienteDAOImpl;
+import com.remus.dao.ImportacionDAO;
+import com.remus.dao.ImportacionDAO.PuntoControl;
+import com.remus.dao.ProductoDAOCache;
+import com.remus.dao.ProductoDAOImpl;
+import com.remus.dao.interfaces.IClienteDAO;
+import com.remus.dao.interfaces.IProductoDAO;
+import com.remus.modelo.Cliente;
+import com.remus.modelo.LineaVenta;
+import com.remus.modelo.Producto;
+import com.remus.modelo.Venta;
+import com.remus.utility.CargadorAsincrono;
+import com.remus.utility.NumberParser;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Importación masiva de clientes, productos y ventas desde CSV o NDJSON (p. ej. el historial de otro sistema).
+ * <p>
+ * El archivo se lee en streaming en bloques de {@code tamanioLote} registros. Cada bloque se convierte y se valida
+ * en paralelo (reglas de ClienteValidar y VentaService) y se escribe en el orden del archivo con un lote JDBC por
+ * tabla y un commit por bloque. En esa misma transacción se guarda el punto de control (tabla IMPORTACIONES), así
+ * que una importación interrumpida se reanuda tras el último bloque confirmado sin duplicar filas. Los registros
+ * rechazados se escriben, con el motivo, en {@code <archivo>.rechazados}.
+ * <p>
+ * El formato se elige por la extensión ({@code .csv}, {@code .ndjson} o {@code .jsonl}; con sufijo {@code .gz} se
+ * lee comprimido):
+ * <ul>
+ *   <li>CSV: cabecera con los nombres de columna, separador ',' o ';' (el que use la cabecera), comillas dobles
+ *       para los campos que contengan el separador y sin saltos de línea dentro de un campo. Importes con coma o
+ *       punto decimal, fechas ISO (2024-01-31).
+ *       <ul>
+ *         <li>clientes: id_cliente, nombre, apellidos, dni, telefono, direccion_habitual, direccion_envio, activo,
+ *             fecha_registro</li>
+ *         <li>productos: id_producto (opcional), codigo, descripcion, precio_recomendado, stock, stock_minimo, activo</li>
+ *         <li>ventas, una fila por línea de venta: venta, id_cliente, fecha_venta, descuento_global, observaciones,
+ *             estado, id_producto, cantidad, precio_venta, descuento_linea. Las filas seguidas con el mismo valor en
+ *             {@code venta} (la referencia en el sistema de origen) forman una venta.</li>
+ *       </ul></li>
+ *   <li>NDJSON: un objeto por línea con el formato que escribe UtilidadExportar.exportarEnStreaming.</li>
+ * </ul>
+ * Las ventas importadas son históricas: no descuentan stock.
+ */
+public class ImportadorMasivo {
+
+    public enum Tipo {
+        CLIENTES, PRODUCTOS, VENTAS
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(ImportadorMasivo.class.getName());
+
+    private static final ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            // Las exportaciones incluyen propiedades calculadas (nombreCompleto, precioMinimo...)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private static final int TAMANIO_BUFFER = 64 * 1024;
+    private static final long AVISO_PROGRESO_NS = 10_000_000_000L;
+    // Longitud de IMPORTACIONES.clave
+    private static final int LONGITUD_MAX_CLAVE = 700;
+
+    private final ImportacionDAO importacionDAO = new ImportacionDAO();
+    // Sin caché: cada bloque consulta sus ids de una vez y no tiene sentido guardar millones de entradas
+    private final IClienteDAO clienteDAO = new ClienteDAOImpl();
+    private final IProductoDAO productoDAO = new ProductoDAOImpl();
+    private final VentaService ventaService = new VentaService();
+
+    private int tamanioLote = 2000;
+    private int hilos = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private boolean comprobarPrecios = true;
+    private boolean reiniciar = false;
+
+    /**
+     * Registros por bloque: cada bloque es un lote JDBC por tabla y un commit (2000)
+     */
+    public void setTamanioLote(int tamanioLote) {
+        if (tamanioLote < 1) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser al menos 1");
+        }
+        this.tamanioLote = tamanioLote;
+    }
+
+    /**
+     * Hilos que convierten y validan bloques mientras se escribe el anterior (núcleos - 1)
+     */
+    public void setHilos(int hilos) {
+        if (hilos < 1) {
+            throw new IllegalArgumentException("Se necesita al menos un hilo de validación");
+        }
+        this.hilos = hilos;
+    }
+
+    /**
+     * Si es false, las ventas se aceptan aunque su precio quede fuera del ±20% del precio recomendado actual
+     * (útil con historiales antiguos)
+     */
+    public void setComprobarPrecios(boolean comprobarPrecios) {
+        this.comprobarPrecios = comprobarPrecios;
+    }
+
+    /**
+     * Si es true, se descarta el punto de control y el archivo de rechazados y se importa desde el principio
+     */
+    public void setReiniciar(boolean reiniciar) {
+        this.reiniciar = reiniciar;
+    }
+
+    /**
+     * Importa el archivo, o continúa donde se quedó la última importación del mismo archivo (misma ruta absoluta)
+     */
+    public Resultado importar(Tipo tipo, Path archivo) throws IOException {
+        String nombre = archivo.getFileName().toString().toLowerCase(Locale.ROOT);
+        boolean gzip = nombre.endsWith(".gz");
+        String sinGzip = gzip ? nombre.substring(0, nombre.length() - 3) : nombre;
+        boolean csv = sinGzip.endsWith(".csv");
+        if (!csv && !sinGzip.endsWith(".ndjson") && !sinGzip.endsWith(".jsonl")) {
+            throw new IllegalArgumentException("Formato no soportado (csv, ndjson o jsonl, opcionalmente .gz): " + archivo);
+        }
+
+        String clave = clavePuntoControl(tipo, archivo);
+        Path archivoErrores = archivo.resolveSibling(archivo.getFileName() + ".rechazados");
+        PuntoControl punto = prepararPuntoControl(clave, Files.size(archivo), archivoErrores);
+
+        Ejecucion ejecucion = new Ejecucion(tipo, archivoErrores, csv, punto);
+        try (BufferedReader lector = abrir(archivo, gzip)) {
+            ejecucion.ejecutar(lector);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al importar " + archivo.getFileName() + ": " + e.getMessage(), e);
+        }
+
+        // Los clientes y productos nuevos (o sus ausencias) pueden estar en las cachés compartidas
+        if (tipo == Tipo.CLIENTES) {
+            ClienteDAOCache.compartido().invalidarTodo();
+        } else if (tipo == Tipo.PRODUCTOS) {
+            ProductoDAOCache.compartido().invalidarTodo();
+        }
+        Resultado resultado = ejecucion.resultado(archivo);
+        LOGGER.info(resultado.toString());
+        return resultado;
+    }
+
+    /**
+     * Clave del punto de control: tipo y ruta absoluta normalizada, para que dos archivos con el mismo nombre
+     * en carpetas distintas no compartan fila. Si no cabe en la columna, la ruta se sustituye por su SHA-256.
+     */
+    private static String clavePuntoControl(Tipo tipo, Path archivo) {
+        String prefijo = tipo.name().toLowerCase(Locale.ROOT) + ":";
+        String ruta = archivo.toAbsolutePath().normalize().toString();
+        if (prefijo.length() + ruta.length() <= LONGITUD_MAX_CLAVE) {
+            return prefijo + ruta;
+        }
+        try {
+            byte[] resumen = MessageDigest.getInstance("SHA-256").digest(ruta.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(prefijo).append("sha256:");
+            for (byte b : resumen) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /**
+     * Lee (o descarta, si se reinicia) el punto de control y deja el archivo de rechazados como estaba en él
+     */
+    private PuntoControl prepararPuntoControl(String clave, long tamanio, Path archivoErrores) throws IOException {
+        PuntoControl punto;
+        try (Connection con = ConexionBD.getConexion()) {
+            if (reiniciar) {
+                importacionDAO.borrarPuntoControl(con, clave);
+                punto = null;
+            } else {
+                punto = importacionDAO.leerPuntoControl(con, clave);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al leer el punto de control de la importación: " + e.getMessage(), e);
+        }
+
+        if (punto == null) {
+            Files.deleteIfExists(archivoErrores);
+            return new PuntoControl(clave, tamanio, 0, 0, 0, 0);
+        }
+        if (punto.getTamanioArchivo() != tamanio) {
+            throw new IllegalStateException("El archivo ha cambiado desde la importación anterior (" + punto.getTamanioArchivo()
+                    + " bytes, ahora " + tamanio + "); para empezar de cero use setReiniciar(true)");
+        }
+        // Los rechazos de un bloque que no llegó a confirmarse se volverán a escribir al repetirlo
+        if (Files.exists(archivoErrores) && Files.size(archivoErrores) > punto.getBytesErrores()) {
+            try (FileChannel canal = FileChannel.open(archivoErrores, StandardOpenOption.WRITE)) {
+                canal.truncate(punto.getBytesErrores());
+            }
+        }
+        LOGGER.log(Level.INFO, "Reanudando {0} tras la línea {1}", new Object[]{clave, punto.getLinea()});
+        return punto;
+    }
+
+    private static BufferedReader abrir(Path archivo, boolean gzip) throws IOException {
+        InputStream entrada = Files.newInputStream(archivo);
+        if (gzip) {
+            entrada = new GZIPInputStream(entrada, TAMANIO_BUFFER);
+        }
+        return new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8), TAMANIO_BUFFER);
+    }
+
+    // ==================== EJECUCIÓN ====================
+
+    /**
+     * Estado de una importación: lectura, bloques en validación, escritura y contadores
+     */
+    private final class Ejecucion {
+        private final Tipo tipo;
+        private final Path archivoErrores;
+        private final boolean csv;
+        private PuntoControl punto;
+
+        private Lector lector;
+        private final Deque<Future<List<Registro>>> pendientes = new ArrayDeque<>();
+        private ExecutorService validadores;
+        private Connection con;
+        private BufferedWriter errores;
+        private boolean cabeceraEscrita;
+
+        private long omitidos = 0;
+        private long importados = 0;
+        private long rechazados = 0;
+        private final long inicio = System.nanoTime();
+        private long ultimoAviso = inicio;
+
+        Ejecucion(Tipo tipo, Path archivoErrores, boolean csv, PuntoControl punto) {
+            this.tipo = tipo;
+            this.archivoErrores = archivoErrores;
+            this.csv = csv;
+            this.punto = punto;
+        }
+
+        void ejecutar(BufferedReader entrada) throws IOException, SQLException {
+            lector = new Lector(entrada, csv, tipo == Tipo.VENTAS ? "venta" : null);
+            validadores = CargadorAsincrono.crearEjecutor(hilos, "importar-" + tipo.name().toLowerCase(Locale.ROOT));
+            try {
+                con = ConexionBD.getConexion();
+                if (tipo == Tipo.VENTAS) {
+                    importacionDAO.prepararImportacionVentas(con);
+                }
+                con.setAutoCommit(false);
+                cabeceraEscrita = Files.exists(archivoErrores) && Files.size(archivoErrores) > 0;
+                errores = Files.newBufferedWriter(archivoErrores, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+                List<Registro> bloque = new ArrayList<>(tamanioLote);
+                Registro registro;
+                while ((registro = lector.siguiente()) != null) {
+                    if (registro.ultimaLinea <= punto.getLinea()) {
+                        omitidos++; // importado (o rechazado) en una ejecución anterior
+                        continue;
+                    }
+                    bloque.add(registro);
+                    if (bloque.size() == tamanioLote) {
+                        enviar(bloque);
+                        bloque = new ArrayList<>(tamanioLote);
+                    }
+                }
+                if (!bloque.isEmpty()) {
+                    enviar(bloque);
+                }
+                while (!pendientes.isEmpty()) {
+                    escribir(esperar(pendientes.poll()));
+                }
+            } finally {
+                validadores.shutdownNow();
+                if (errores != null) {
+                    errores.close();
+                }
+                if (con != null) {
+                    try {
+                        con.rollback(); // nada pendiente si todo fue bien
+                        con.setAutoCommit(true);
+                    } catch (SQLException ignored) {
+                    }
+                    ConexionBD.cerrarConexion(con);
+                }
+            }
+        }
+
+        /**
+         * Manda el bloque a validar. Si ya hay demasiados bloques en cola, antes escribe el más antiguo:
+         * así la lectura no se adelanta más de 2 bloques por hilo a la base de datos.
+         */
+        private void enviar(List<Registro> bloque) throws IOException, SQLException {
+            pendientes.add(validadores.submit(() -> {
+                procesar(tipo, bloque);
+                return bloque;
+            }));
+            if (pendientes.size() > hilos * 2) {
+                escribir(esperar(pendientes.poll()));
+            }
+        }
+
+        private List<Registro> esperar(Future<List<Registro>> futuro) throws SQLException {
+            try {
+                return futuro.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Importación interrumpida", e);
+            } catch (ExecutionException e) {
+                Throwable causa = e.getCause();
+                if (causa instanceof RuntimeException) {
+                    throw (RuntimeException) causa;
+                }
+                throw new RuntimeException("Error al validar el bloque: " + causa.getMessage(), causa);
+            }
+        }
+
+        /**
+         * Inserta los registros válidos del bloque y confirma junto con el nuevo punto de control.
+         * Si el lote falla (p. ej. un DNI o un código repetido), se repite registro a registro
+         * con un savepoint cada uno para rechazar solo los que fallan.
+         */
+        private void escribir(List<Registro> bloque) throws IOException, SQLException {
+            List<Registro> validos = new ArrayList<>(bloque.size());
+            for (Registro r : bloque) {
+                if (r.error == null) {
+                    validos.add(r);
+                }
+            }
+
+            if (!validos.isEmpty()) {
+                try {
+                    insertar(tipo, con, valores(validos));
+                } catch (SQLException e) {
+                    con.rollback();
+                    if (esErrorDeConexion(e)) {
+                        throw e;
+                    }
+                    insertarUnoAUno(validos);
+                }
+            }
+
+            long rechazadosBloque = 0;
+            for (Registro r : bloque) {
+                if (r.error != null) {
+                    escribirRechazo(r);
+                    rechazadosBloque++;
+                }
+            }
+            errores.flush();
+
+            long importadosBloque = bloque.size() - rechazadosBloque;
+            punto = new PuntoControl(punto.getClave(), punto.getTamanioArchivo(), bloque.get(bloque.size() - 1).ultimaLinea,
+                    punto.getImportados() + importadosBloque, punto.getRechazados() + rechazadosBloque,
+                    Files.size(archivoErrores));
+            importacionDAO.guardarPuntoControl(con, punto);
+            con.commit();
+
+            importados += importadosBloque;
+            rechazados += rechazadosBloque;
+            long ahora = System.nanoTime();
+            if (ahora - ultimoAviso > AVISO_PROGRESO_NS) {
+                ultimoAviso = ahora;
+                LOGGER.info(String.format("%s: %d importados, %d rechazados (línea %d, %.0f registros/s)",
+                        punto.getClave(), importados, rechazados, punto.getLinea(),
+                        (importados + rechazados) / ((ahora - inicio) / 1e9)));
+            }
+        }
+
+        private void insertarUnoAUno(List<Registro> validos) throws SQLException {
+            for (Registro r : validos) {
+                Savepoint savepoint = con.setSavepoint();
+                try {
+                    insertar(tipo, con, Collections.singletonList(r.valor));
+                    con.releaseSavepoint(savepoint);
+                } catch (SQLException e) {
+                    con.rollback(savepoint);
+                    if (esErrorDeConexion(e)) {
+                        throw e;
+                    }
+                    r.error = "Rechazado por la base de datos: " + e.getMessage();
+                }
+            }
+        }
+
+        private void escribirRechazo(Registro r) throws IOException {
+            // Una línea por fila: los mensajes de la BD pueden traer saltos de línea
+            String error = r.error.replaceAll("\\s*[\\r\\n]+\\s*", " ");
+            if (csv) {
+                if (!cabeceraEscrita) {
+                    errores.write(lector.cabecera + lector.separador + "error");
+                    errores.newLine();
+                    cabeceraEscrita = true;
+                }
+                String motivo = citar("línea " + r.linea + ": " + error);
+                for (String texto : r.textos) {
+                    errores.write(texto + lector.separador + motivo);
+                    errores.newLine();
+                }
+            } else {
+                ObjectNode nodo = mapper.createObjectNode();
+                nodo.put("linea", r.linea);
+                nodo.put("error", error);
+                nodo.put("registro", r.textos.get(0));
+                errores.write(mapper.writeValueAsString(nodo));
+                errores.newLine();
+            }
+        }
+
+        Resultado resultado(Path archivo) {
+            return new Resultado(tipo, archivo, importados, rechazados, omitidos, punto.getImportados(),
+                    punto.getRechazados(), punto.getRechazados() > 0 ? archivoErrores : null,
+                    (System.nanoTime() - inicio) / 1e9);
+        }
+    }
+
+    /**
+     * Errores tras los que no tiene sentido seguir: conexión perdida o transacción revertida por el servidor
+     * (interbloqueo, tiempo de espera). Cualquier otro se atribuye a los datos del registro.
+     */
+    private static boolean esErrorDeConexion(SQLException e) {
+        String estado = e.getSQLState();
+        return estado != null && (estado.startsWith("08") || estado.startsWith("40"));
+    }
+
+    private static List<Object> valores(List<Registro> registros) {
+        List<Object> valores = new ArrayList<>(registros.size());
+        for (Registro r : registros) {
+            valores.add(r.valor);
+        }
+        return valores;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void insertar(Tipo tipo, Connection con, List<?> valores) throws SQLException {
+        switch (tipo) {
+            case CLIENTES:
+                importacionDAO.insertarClientes(con, (List<Cliente>) valores);
+                break;
+            case PRODUCTOS:
+                importacionDAO.insertarProductos(con, (List<Producto>) valores);
+                break;
+            default:
+                importacionDAO.insertarVentas(con, (List<Venta>) valores);
+        }
+    }
+
+    // ==================== CONVERSIÓN Y VALIDACIÓN ====================
+
+    /**
+     * Convierte y valida un bloque (en un hilo de validación). Los fallos de un registro se anotan en él;
+     * solo los fallos de las consultas del bloque se propagan.
+     */
+    private void procesar(Tipo tipo, List<Registro> bloque) {
+        for (Registro r : bloque) {
+            if (r.error != null) {
+                continue;
+            }
+            try {
+                r.valor = convertir(tipo, r);
+            } catch (JsonProcessingException e) {
+                r.error = "JSON no válido: " + e.getOriginalMessage();
+            } catch (DateTimeParseException e) {
+                r.error = "Fecha no válida: '" + e.getParsedString() + "'";
+            } catch (IllegalArgumentException e) {
+                r.error = e.getMessage();
+            }
+        }
+        switch (tipo) {
+            case CLIENTES:
+                validarClientes(bloque);
+                break;
+            case PRODUCTOS:
+                validarProductos(bloque);
+                break;
+            default:
+                validarVentas(bloque);
+        }
+    }
+
+    private Object convertir(Tipo tipo, Registro r) throws JsonProcessingException {
+        if (r.filas == null) {
+            Class<?> clase = tipo == Tipo.CLIENTES ? Cliente.class : tipo == Tipo.PRODUCTOS ? Producto.class : Venta.class;
+            return mapper.readValue(r.textos.get(0), clase);
+        }
+        switch (tipo) {
+            case CLIENTES:
+                return clienteDesdeCsv(r.filas.get(0));
+            case PRODUCTOS:
+                return productoDesdeCsv(r.filas.get(0));
+            default:
+                return ventaDesdeCsv(r.filas);
+        }
+    }
+
+    private static Cliente clienteDesdeCsv(FilaCsv fila) {
+        Cliente c = new Cliente();
+        c.setIdCliente(fila.entero("id_cliente"));
+        c.setNombre(fila.texto("nombre"));
+        c.setApellidos(fila.texto("apellidos"));
+        c.setDni(fila.texto("dni"));
+        c.setTelefono(fila.entero("telefono"));
+        c.setDireccionHabitual(fila.texto("direccion_habitual"));
+        c.setDireccionEnvio(fila.texto("direccion_envio"));
+        c.setActivo(fila.booleano("activo"));
+        String fecha = fila.texto("fecha_registro");
+        if (fecha != null) {
+            c.setFechaRegistro(fecha.length() <= 10 ? LocalDate.parse(fecha).atStartOfDay() : LocalDateTime.parse(fecha));
+        }
+        return c;
+    }
+
+    private static Producto productoDesdeCsv(FilaCsv fila) {
+        Producto p = new Producto();
+        p.setIdProducto(fila.entero("id_producto"));
+        p.setCodigo(fila.texto("codigo"));
+        p.setDescripcion(fila.texto("descripcion"));
+        p.setPrecioRecomendadoCentimos(fila.centimos("precio_recomendado"));
+        p.setStock(fila.entero("stock"));
+        p.setStockMinimo(fila.entero("stock_minimo"));
+        p.setActivo(fila.booleano("activo"));
+        return p;
+    }
+
+    /**
+     * Una venta a partir de sus filas: la cabecera sale de la primera y cada fila es una línea
+     */
+    private static Venta ventaDesdeCsv(List<FilaCsv> filas) {
+        FilaCsv primera = filas.get(0);
+        Integer idCliente = primera.entero("id_cliente");
+        String fecha = primera.texto("fecha_venta");
+        Venta venta = new Venta(null, fecha != null ? LocalDate.parse(fecha) : null);
+        if (idCliente != null) {
+            Cliente cliente = new Cliente();
+            cliente.setIdCliente(idCliente);
+            venta.setCliente(cliente);
+        }
+        String descuentoGlobal = primera.texto("descuento_global");
+        venta.setDescuentoGlobal(descuentoGlobal != null ? NumberParser.parsePrecio(descuentoGlobal) : 0.0);
+        venta.setObservaciones(primera.texto("observaciones"));
+        String estado = primera.texto("estado");
+        if (estado != null) {
+            venta.setEstado(estado);
+        }
+        for (FilaCsv fila : filas) {
+            LineaVenta linea = new LineaVenta();
+            linea.setIdProducto(fila.entero("id_producto"));
+            linea.setCantidad(fila.entero("cantidad"));
+            linea.setPrecioVentaCentimos(fila.centimos("precio_venta"));
+            Integer descuento = fila.entero("descuento_linea");
+            linea.setDescuento(descuento != null ? descuento : 0);
+            venta.agregarLinea(linea);
+        }
+        return venta;
+    }
+
+    /**
+     * Reglas de ClienteValidar. La existencia se comprueba con una consulta para todo el bloque;
+     * un id repetido en bloques distintos lo rechaza la clave primaria al insertar.
+     */
+    private void validarClientes(List<Registro> bloque) {
+        Set<Integer> ids = new HashSet<>();
+        for (Registro r : bloque) {
+            if (r.error != null) {
+                continue;
+            }
+            Cliente c = (Cliente) r.valor;
+            try {
+                ClienteValidar.validarId(c.getIdCliente() != null ? c.getIdCliente() : 0);
+                ClienteValidar.validarNombre(c.getNombre());
+                ClienteValidar.validarApellidos(c.getApellidos());
+                ClienteValidar.validarTelefono(c.getTelefono());
+                if (!ids.add(c.getIdCliente())) {
+                    throw new IllegalArgumentException("Ya existe un cliente con este ID");
+                }
+            } catch (IllegalArgumentException e) {
+                r.error = e.getMessage();
+            }
+        }
+        Set<Integer> existentes = clienteDAO.obtenerPorIds(ids).keySet();
+        for (Registro r : bloque) {
+            if (r.error == null && existentes.contains(((Cliente) r.valor).getIdCliente())) {
+                r.error = "Ya existe un cliente con este ID";
+            }
+        }
+    }
+
+    private void validarProductos(List<Registro> bloque) {
+        Set<Integer> ids = new HashSet<>();
+        for (Registro r : bloque) {
+            if (r.error != null) {
+                continue;
+            }
+            Producto p = (Producto) r.valor;
+            if (p.getCodigo() == null || p.getCodigo().trim().isEmpty()) {
+                r.error = "El código del producto es obligatorio";
+            } else if (p.getCodigo().length() > 50) {
+                r.error = "El código del producto no puede tener más de 50 caracteres";
+            } else if (p.getDescripcion() != null && p.getDescripcion().length() > 255) {
+                r.error = "La descripción no puede tener más de 255 caracteres";
+            } else if (p.precioRecomendadoCentimos() < 0) {
+                r.error = "El precio recomendado no puede ser negativo";
+            } else if ((p.getStock() != null && p.getStock() < 0) || (p.getStockMinimo() != null && p.getStockMinimo() < 0)) {
+                r.error = "El stock no puede ser negativo";
+            } else if (p.getIdProducto() != null && (p.getIdProducto() <= 0 || !ids.add(p.getIdProducto()))) {
+                r.error = p.getIdProducto() <= 0 ? "El ID del producto debe ser mayor que 0" : "Ya existe un producto con este ID";
+            }
+        }
+        Set<Integer> existentes = productoDAO.obtenerPorIds(ids).keySet();
+        for (Registro r : bloque) {
+            if (r.error == null && existentes.contains(((Producto) r.valor).getIdProducto())) {
+                r.error = "Ya existe un producto con este ID";
+            }
+        }
+    }
+
+    /**
+     * Reglas de VentaService, con los clientes y productos de todo el bloque cargados en dos consultas
+     */
+    private void validarVentas(List<Registro> bloque) {
+        Set<Integer> idsCliente = new HashSet<>();
+        Set<Integer> idsProducto = new HashSet<>();
+        for (Registro r : bloque) {
+            if (r.error != null) {
+                continue;
+            }
+            Venta venta = (Venta) r.valor;
+            if (venta.getCliente() != null && venta.getCliente().getIdCliente() != null) {
+                idsCliente.add(venta.getCliente().getIdCliente());
+            }
+            if (venta.getLineasVenta() != null) {
+                for (LineaVenta linea : venta.getLineasVenta()) {
+                    if (linea.getIdProducto() != null) {
+                        idsProducto.add(linea.getIdProducto());
+                    }
+                }
+            }
+        }
+        Set<Integer> clientes = clienteDAO.obtenerPorIds(idsCliente).keySet();
+        Map<Integer, Producto> productos = productoDAO.obtenerPorIds(idsProducto);
+
+        for (Registro r : bloque) {
+            if (r.error != null) {
+                continue;
+            }
+            Venta venta = (Venta) r.valor;
+            try {
+                if (venta.getFechaVenta() == null) {
+                    throw new IllegalArgumentException("La fecha de la venta es obligatoria");
+                }
+                double descuentoGlobal = venta.getDescuentoGlobal() != null ? venta.getDescuentoGlobal() : 0.0;
+                if (descuentoGlobal < 0 || descuentoGlobal > 100) {
+                    throw new IllegalArgumentException("El descuento global debe estar entre 0 y 100");
+                }
+                ventaService.validarVentaImportada(venta, clientes, productos, comprobarPrecios);
+            } catch (IllegalArgumentException e) {
+                r.error = e.getMessage();
+            }
+        }
+    }
+
+    // ==================== LECTURA ====================
+
+    /**
+     * Registro del archivo: una línea (un cliente, un producto, una venta NDJSON) o varias filas CSV seguidas
+     * de la misma venta. Guarda el texto original para el archivo de rechazados.
+     */
+    private static final class Registro {
+        final long linea;
+        long ultimaLinea;
+        final List<String> textos = new ArrayList<>(1);
+        final List<FilaCsv> filas;   // null en NDJSON
+        String grupo;
+        Object valor;
+        String error;
+
+        Registro(long linea, String texto, FilaCsv fila) {
+            this.linea = linea;
+            this.ultimaLinea = linea;
+            this.textos.add(texto);
+            this.filas = fila != null ? new ArrayList<>(1) : null;
+            if (fila != null) {
+                filas.add(fila);
+            }
+        }
+
+        void agregar(long numLinea, String texto, FilaCsv fila) {
+            ultimaLinea = numLinea;
+            textos.add(texto);
+            filas.add(fila);
+        }
+    }
+
+    /**
+     * Lectura secuencial de registros. En CSV interpreta la cabecera y, si se indica una columna de agrupación,
+     * junta las filas seguidas con el mismo valor en un único registro.
+     */
+    private static final class Lector {
+        private final BufferedReader entrada;
+        private final boolean csv;
+        private String cabecera;
+        private char separador = ',';
+        private Map<String, Integer> columnas;
+        private int columnaGrupo = -1;
+        private long numLinea = 0;
+        private Registro abierto;
+
+        Lector(BufferedReader entrada, boolean csv, String columnaAgrupar) throws IOException {
+            this.entrada = entrada;
+            this.csv = csv;
+            if (!csv) {
+                return;
+            }
+            String linea;
+            do {
+                linea = entrada.readLine();
+                numLinea++;
+            } while (linea != null && linea.trim().isEmpty());
+            if (linea == null) {
+                return; // archivo vacío
+            }
+            cabecera = linea.startsWith("﻿") ? linea.substring(1) : linea;
+            separador = cabecera.indexOf(';') >= 0 ? ';' : ',';
+            columnas = new HashMap<>();
+            String[] nombres = partirCsv(cabecera, separador);
+            for (int i = 0; i < nombres.length; i++) {
+                columnas.put(nombres[i].trim().toLowerCase(Locale.ROOT), i);
+            }
+            if (columnaAgrupar != null && columnas.containsKey(columnaAgrupar)) {
+                columnaGrupo = columnas.get(columnaAgrupar);
+            }
+        }
+
+        Registro siguiente() throws IOException {
+            if (csv && columnas == null) {
+                return null;
+            }
+            while (true) {
+                String texto = entrada.readLine();
+                if (texto == null) {
+                    Registro ultimo = abierto;
+                    abierto = null;
+                    return ultimo;
+                }
+                numLinea++;
+                if (texto.trim().isEmpty()) {
+                    continue;
+                }
+                if (!csv) {
+                    return new Registro(numLinea, texto, null);
+                }
+
+                FilaCsv fila;
+                try {
+                    fila = new FilaCsv(columnas, partirCsv(texto, separador));
+                } catch (IllegalArgumentException e) {
+                    // Fila ilegible: se rechaza sola, sin agruparla
+                    Registro malo = new Registro(numLinea, texto, null);
+                    malo.error = e.getMessage();
+                    Registro anterior = abierto;
+                    abierto = null;
+                    if (anterior == null) {
+                        return malo;
+                    }
+                    abierto = malo;
+                    return anterior;
+                }
+                if (columnaGrupo < 0) {
+                    return new Registro(numLinea, texto, fila);
+                }
+                String grupo = fila.valor(columnaGrupo);
+                if (abierto != null && abierto.filas != null && Objects.equals(grupo, abierto.grupo)) {
+                    abierto.agregar(numLinea, texto, fila);
+                    continue;
+                }
+                Registro anterior = abierto;
+                abierto = new Registro(numLinea, texto, fila);
+                abierto.grupo = grupo;
+                if (anterior != null) {
+                    return anterior;
+                }
+            }
+        }
+    }
+
+    /**
+     * Campos de una línea CSV. Admite campos entre comillas dobles con el separador dentro
+     * y comillas escapadas duplicándolas ("")
+     */
+    static String[] partirCsv(String linea, char separador) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c != '"') {
+                    actual.append(c);
+                } else if (i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    actual.append('"');
+                    i++;
+                } else {
+                    entreComillas = false;
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == separador) {
+                campos.add(actual.toString());
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+        if (entreComillas) {
+            throw new IllegalArgumentException("Comillas sin cerrar");
+        }
+        campos.add(actual.toString());
+        return campos.toArray(new String[0]);
+    }
+
+    private static String citar(String texto) {
+        return '"' + texto.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Fila CSV con acceso por nombre de columna; los campos vacíos o ausentes se leen como null
+     */
+    private static final class FilaCsv {
+        private final Map<String, Integer> columnas;
+        private final String[] valores;
+
+        FilaCsv(Map<String, Integer> columnas, String[] valores) {
+            this.columnas = columnas;
+            this.valores = valores;
+        }
+
+        String valor(int indice) {
+            if (indice >= valores.length) {
+                return null;
+            }
+            String v = valores[indice].trim();
+            return v.isEmpty() ? null : v;
+        }
+
+        String texto(String columna) {
+            Integer indice = columnas.get(columna);
+            return indice != null ? valor(indice) : null;
+        }
+
+        Integer entero(String columna) {
+            String v = texto(columna);
+            if (v == null) {
+                return null;
+            }
+            try {
+                return Integer.valueOf(v);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Valor no numérico en " + columna + ": '" + v + "'");
+            }
+        }
+
+        long centimos(String columna) {
+            String v = texto(columna);
+            if (v == null) {
+                throw new IllegalArgumentException("Falta " + columna);
+            }
+            try {
+                return NumberParser.parseCentimos(v);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(columna + ": " + e.getMessage());
+            }
+        }
+
+        Boolean booleano(String columna) {
+            String v = texto(columna);
+            if (v == null) {
+                return true;
+            }
+            switch (v.toLowerCase(Locale.ROOT)) {
+                case "1": case "true": case "si": case "sí": case "s":
+                    return true;
+                case "0": case "false": case "no": case "n":
+                    return false;
+                default:
+                    throw new IllegalArgumentException("Valor no válido en " + columna + ": '" + v + "'");
+            }
+        }
+    }
+
+    // ==================== RESULTADO ====================
+
+    /**
+     * Resumen de una ejecución; los totales incluyen las ejecuciones anteriores del mismo archivo
+     */
+    public static final class Resultado {
+        private final Tipo tipo;
+        private final Path archivo;
+        private final long importados;
+        private final long rechazados;
+        private final long omitidos;
+        private final long totalImportados;
+        private final long totalRechazados;
+        private final Path archivoErrores;
+        private final double segundos;
+
+        Resultado(Tipo tipo, Path archivo, long importados, long rechazados, long omitidos, long totalImportados,
+                  long totalRechazados, Path archivoErrores, double segundos) {
+            this.tipo = tipo;
+            this.archivo = archivo;
+            this.importados = importados;
+            this.rechazados = rechazados;
+            this.omitidos = omitidos;
+            this.totalImportados = totalImportados;
+            this.totalRechazados = totalRechazados;
+            this.archivoErrores = archivoErrores;
+            this.segundos = segundos;
+        }
+
+        public Tipo getTipo() {
+            return tipo;
+        }
+
+        public long getImportados() {
+            return importados;
+        }
+
+        public long getRechazados() {
+            return rechazados;
+        }
+
+        /**
+         * Registros saltados por estar ya importados (o rechazados) en una ejecución anterior
+         */
+        public long getOmitidos() {
+            return omitidos;
+        }
+
+        public long getTotalImportados() {
+            return totalImportados;
+        }
+
+        public long getTotalRechazados() {
+            return totalRechazados;
+        }
+
+        /**
+         * Archivo con los registros rechazados, o null si no hay ninguno
+         */
+        public Path getArchivoErrores() {
+            return archivoErrores;
+        }
+
+        public double getSegundos() {
+            return segundos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Importación de %s (%s): %d importados, %d rechazados en %.1f s (%.0f registros/s)",
+                    tipo.name().toLowerCase(Locale.ROOT), archivo.getFileName(), importados, rechazados, segundos,
+                    segundos > 0 ? (importados + rechazados) / segundos : 0.0));
+            if (omitidos > 0) {
+                sb.append(String.format("; %d ya importados antes (total %d importados, %d rechazados)",
+                        omitidos, totalImportados, totalRechazados));
+            }
+            if (archivoErrores != null) {
+                sb.append("; rechazados en ").append(archivoErrores);
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -1,19 +1,28 @@
 package com.remus.service;
 
+import com.remus.connection.DetectorNMasUno;
 import com.remus.dao.*;
 import com.remus.dao.interfaces.*;
 import com.remus.modelo.*;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
 /**
  * Servicio de negocio para gestionar ventas con validaciones y transacciones
  */
 public class VentaService {
 
     private final IVentaDAO ventaDAO = new VentaDAOImpl();
-    private final IProductoDAO productoDAO = new ProductoDAOImpl();
-    private final IClienteDAO clienteDAO = new ClienteDAOImpl();
+    private final ProductoDAOCache productoDAO = ProductoDAOCache.compartido();
+    private final IClienteDAO clienteDAO = ClienteDAOCache.compartido();
+    // null salvo con -Dremus.ventas.agrupadas=true
+    private final ColaVentasAgrupadas colaVentas = ColaVentasAgrupadas.activada() ? ColaVentasAgrupadas.compartida() : null;
 
-    private static final double RANGO_PRECIO = 0.20;
 
     public void validarClienteExistente(int idCliente) throws IllegalArgumentException {
         Cliente cliente = clienteDAO.obtenerPorCod(idCliente);
@@ -36,7 +45,10 @@ public class VentaService {
     }
 
     public void validarStock(int idProducto, int cantidad) throws IllegalArgumentException {
-        Producto producto = productoDAO.obtenerPorId(idProducto);
+        validarStock(obtenerConStockActual(idProducto), cantidad);
+    }
+
+    private void validarStock(Producto producto, int cantidad) throws IllegalArgumentException {
         if (producto == null) {
             throw new IllegalArgumentException("Producto no encontrado");
         }
@@ -48,23 +60,25 @@ public class VentaService {
     }
 
     public void validarPrecioVenta(int idProducto, double precioVenta) throws IllegalArgumentException {
-        Producto producto = productoDAO.obtenerPorId(idProducto);
+        validarPrecioVenta(productoDAO.obtenerPorId(idProducto), Dinero.deEuros(precioVenta));
+    }
+
+    /**
+     * Comprueba el precio en céntimos contra el rango del producto (±20% del recomendado)
+     */
+    private void validarPrecioVenta(Producto producto, long precioVenta) throws IllegalArgumentException {
         if (producto == null) {
             throw new IllegalArgumentException("Producto no encontrado");
         }
 
-        if (producto.getPrecioRecomendado() == null) {
+        if (producto.precioRecomendadoCentimos() <= 0) {
             throw new IllegalArgumentException("El producto no tiene un precio recomendado definido");
         }
 
-        double precioRecomendado = producto.getPrecioRecomendado();
-        double minimo = precioRecomendado * (1 - RANGO_PRECIO);
-        double maximo = precioRecomendado * (1 + RANGO_PRECIO);
-
-        if (precioVenta < minimo || precioVenta > maximo) {
+        if (!producto.validarPrecioVentaCentimos(precioVenta)) {
             throw new IllegalArgumentException(
                     String.format("Precio fuera de rango. Rango permitido: %.2f€ - %.2f€ (±20%% de %.2f€)",
-                            minimo, maximo, precioRecomendado));
+                            producto.getPrecioMinimo(), producto.getPrecioMaximo(), producto.getPrecioRecomendado()));
         }
     }
 
@@ -75,15 +89,67 @@ public class VentaService {
     }
 
     public double calcularImporteLinea(int cantidad, double precioVenta, int descuento) {
-        double subtotal = cantidad * precioVenta;
-        double descuentoAplicado = subtotal * (descuento / 100.0);
-        return subtotal - descuentoAplicado;
+        return Dinero.aEuros(calcularImporteLineaCentimos(cantidad, Dinero.deEuros(precioVenta), descuento));
+    }
+
+    /**
+     * Cantidad × precio menos el descuento de línea, redondeado al céntimo igual que al guardar la venta
+     */
+    public long calcularImporteLineaCentimos(int cantidad, long precioVenta, int descuento) {
+        return Dinero.aplicarDescuento(Dinero.multiplicar(precioVenta, cantidad), descuento);
     }
 
     /**
-     * Inserta una venta completa con sus líneas (VALIDACIONES EN SERVICE, SQL EN DAO)
+     * Inserta una venta completa con sus líneas (VALIDACIONES EN SERVICE, SQL EN DAO).
+     * Con la escritura agrupada activada espera a que se confirme el lote en que va la venta.
      */
+    @SuppressWarnings("try")
     public int insertarVentaConTransaccion(Venta venta) throws Exception {
+        if (colaVentas != null) {
+            try {
+                return enviarVenta(venta).get();
+            } catch (ExecutionException e) {
+                Throwable causa = e.getCause();
+                throw causa instanceof Exception ? (Exception) causa : new Exception(causa.getMessage(), causa);
+            }
+        }
+        try (DetectorNMasUno.UnidadTrabajo ignored = DetectorNMasUno.abrir("VentaService.insertarVentaConTransaccion")) {
+            validarVenta(venta);
+
+            // Delegar la inserción transaccional al DAO (que realiza INSERT venta + líneas y retorna id)
+            int idGenerado = ventaDAO.insertarConLineas(venta);
+            ventaRegistrada(venta, idGenerado);
+            return idGenerado;
+        }
+    }
+
+    /**
+     * Valida la venta en el hilo del llamador (las validaciones fallidas se lanzan aquí) y la registra.
+     * El futuro se completa con el id_venta cuando la venta queda confirmada. Con la escritura agrupada
+     * ({@link ColaVentasAgrupadas}) se confirma junto con otras ventas en un hilo aparte; si no, se inserta
+     * aquí mismo y el futuro se devuelve ya completado.
+     */
+    @SuppressWarnings("try")
+    public CompletableFuture<Integer> enviarVenta(Venta venta) throws IllegalArgumentException {
+        if (colaVentas == null) {
+            try {
+                return CompletableFuture.completedFuture(insertarVentaConTransaccion(venta));
+            } catch (IllegalArgumentException e) {
+                throw e;
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        try (DetectorNMasUno.UnidadTrabajo ignored = DetectorNMasUno.abrir("VentaService.enviarVenta")) {
+            validarVenta(venta);
+        }
+        return colaVentas.enviar(venta).thenApply(idGenerado -> {
+            ventaRegistrada(venta, idGenerado);
+            return idGenerado;
+        });
+    }
+
+    private void validarVenta(Venta venta) throws IllegalArgumentException {
         // Validaciones de negocio
         validarClienteExistente(venta.getCliente().getIdCliente());
 
@@ -91,18 +157,88 @@ public class VentaService {
             throw new IllegalArgumentException("La venta debe contener al menos una línea");
         }
 
+        validarLineas(venta);
+    }
+
+    private void ventaRegistrada(Venta venta, int idGenerado) {
+        // La venta ha descontado stock: las entradas cacheadas de esos productos ya no valen
+        productoDAO.invalidar(cantidadesPorProducto(venta).keySet());
+        System.out.println("✓ Venta registrada con ID: " + idGenerado);
+    }
+
+    /**
+     * Valida todas las líneas contra una instantánea de los productos cargada en una sola consulta
+     * por lotes. El stock se comprueba con la cantidad total pedida de cada producto, por si
+     * aparece en varias líneas.
+     */
+    private void validarLineas(Venta venta) throws IllegalArgumentException {
         for (LineaVenta linea : venta.getLineasVenta()) {
-            validarProductoExistente(linea.getIdProducto());
             validarCantidad(linea.getCantidad());
-            validarStock(linea.getIdProducto(), linea.getCantidad());
-            validarPrecioVenta(linea.getIdProducto(), linea.getPrecioVenta());
             validarDescuento(linea.getDescuento());
         }
+        Map<Integer, Integer> cantidadPorProducto = cantidadesPorProducto(venta);
 
-        // Delegar la inserción transaccional al DAO (que realiza INSERT venta + líneas y retorna id)
-        int idGenerado = ventaDAO.insertarConLineas(venta);
-        System.out.println("✓ Venta registrada con ID: " + idGenerado);
-        return idGenerado;
+        Map<Integer, Producto> instantanea = productoDAO.obtenerPorIds(cantidadPorProducto.keySet());
+
+        validarProductos(venta, instantanea, true);
+        for (Map.Entry<Integer, Integer> pedido : cantidadPorProducto.entrySet()) {
+            validarStock(instantanea.get(pedido.getKey()), pedido.getValue());
+        }
+    }
+
+    private void validarProductos(Venta venta, Map<Integer, Producto> productos, boolean comprobarPrecio)
+            throws IllegalArgumentException {
+        for (LineaVenta linea : venta.getLineasVenta()) {
+            Producto producto = productos.get(linea.getIdProducto());
+            if (producto == null) {
+                throw new IllegalArgumentException("El producto con ID " + linea.getIdProducto() + " no existe");
+            }
+            if (comprobarPrecio) {
+                validarPrecioVenta(producto, linea.precioVentaCentimos());
+            }
+        }
+    }
+
+    /**
+     * Valida una venta de una importación masiva con las mismas reglas que insertarVentaConTransaccion,
+     * pero contra clientes y productos ya cargados por lotes y sin comprobar el stock (las ventas
+     * históricas no lo descuentan). {@code comprobarPrecio} permite aceptar precios que hoy estarían
+     * fuera del rango del producto.
+     */
+    public void validarVentaImportada(Venta venta, Set<Integer> clientesExistentes, Map<Integer, Producto> productos,
+                                      boolean comprobarPrecio) throws IllegalArgumentException {
+        if (venta.getCliente() == null || venta.getCliente().getIdCliente() == null) {
+            throw new IllegalArgumentException("La venta no indica el cliente");
+        }
+        if (!clientesExistentes.contains(venta.getCliente().getIdCliente())) {
+            throw new IllegalArgumentException("El cliente con ID " + venta.getCliente().getIdCliente() + " no existe");
+        }
+        if (venta.getLineasVenta() == null || venta.getLineasVenta().isEmpty()) {
+            throw new IllegalArgumentException("La venta debe contener al menos una línea");
+        }
+        for (LineaVenta linea : venta.getLineasVenta()) {
+            if (linea.getIdProducto() == null || linea.getCantidad() == null || linea.getDescuento() == null) {
+                throw new IllegalArgumentException("Línea incompleta: producto, cantidad y descuento son obligatorios");
+            }
+            validarCantidad(linea.getCantidad());
+            validarDescuento(linea.getDescuento());
+        }
+        validarProductos(venta, productos, comprobarPrecio);
+    }
+
+    private Map<Integer, Integer> cantidadesPorProducto(Venta venta) {
+        Map<Integer, Integer> cantidadPorProducto = new LinkedHashMap<>();
+        for (LineaVenta linea : venta.getLineasVenta()) {
+            cantidadPorProducto.merge(linea.getIdProducto(), linea.getCantidad(), Integer::sum);
+        }
+        return cantidadPorProducto;
+    }
+
+    /**
+     * Lee el producto de la BD sin pasar por la caché, para trabajar con el stock real
+     */
+    private Producto obtenerConStockActual(int idProducto) {
+        return productoDAO.obtenerPorIds(Collections.singleton(idProducto)).get(idProducto);
     }
 
     public double obtenerPrecioRecomendado(int idProducto) {
@@ -111,18 +247,14 @@ public class VentaService {
     }
 
     public int obtenerStockProducto(int idProducto) {
-        Producto p = productoDAO.obtenerPorId(idProducto);
+        Producto p = obtenerConStockActual(idProducto);
         return p != null ? p.getStock() : 0;
     }
 
     public double[] obtenerRangoPrecio(int idProducto) {
         Producto p = productoDAO.obtenerPorId(idProducto);
         if (p != null) {
-            double recomendado = p.getPrecioRecomendado();
-            return new double[]{
-                    recomendado * (1 - RANGO_PRECIO),
-                    recomendado * (1 + RANGO_PRECIO)
-            };
+            return new double[]{p.getPrecioMinimo(), p.getPrecioMaximo()};
         }
         return new double[]{0, 0};
     }
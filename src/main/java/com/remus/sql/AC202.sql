@@ -75,6 +75,9 @@ CREATE TABLE `VENTAS` (
     ON UPDATE CASCADE
 );
 
+-- Índice para la paginación por clave (fecha_venta, id_venta) del listado de ventas
+CREATE INDEX `idx_VENTAS_fecha_id` ON `VENTAS` (`fecha_venta`, `id_venta`);
+
 -- Tabla `LINEAS_VENTA`
 CREATE TABLE `LINEAS_VENTA` (
   `id_linea` INT NOT NULL AUTO_INCREMENT,
@@ -110,6 +113,45 @@ CREATE TABLE `EMPRESA` (
   PRIMARY KEY (`id`)
 );
 
+-- Resúmenes diarios de VENTAS para los reportes por rango de fechas.
+-- Los mantiene la aplicación (ResumenVentasDiarias) al insertar, modificar o eliminar ventas;
+-- si no cuadran con VENTAS (ventas cargadas por fuera), se reconstruyen antes del primer uso.
+-- Cada día se reparte en varias filas (`franja`) que se suman al leer: las ventas simultáneas del
+-- mismo día actualizan filas distintas y no esperan todas al bloqueo de una sola.
+CREATE TABLE `RESUMEN_VENTAS_DIA` (
+  `fecha` DATE NOT NULL,
+  `franja` TINYINT NOT NULL DEFAULT 0,
+  `num_ventas` INT NOT NULL DEFAULT 0,
+  `importe_total` DECIMAL(14,2) NOT NULL DEFAULT 0.00,
+  `importe_min` DECIMAL(10,2) NULL,
+  `importe_max` DECIMAL(10,2) NULL,
+  PRIMARY KEY (`fecha`, `franja`)
+);
+
+CREATE TABLE `RESUMEN_VENTAS_DIA_CLIENTE` (
+  `fecha` DATE NOT NULL,
+  `id_cliente` INT NOT NULL,
+  `num_ventas` INT NOT NULL DEFAULT 0,
+  `importe_total` DECIMAL(14,2) NOT NULL DEFAULT 0.00,
+  `importe_min` DECIMAL(10,2) NULL,
+  `importe_max` DECIMAL(10,2) NULL,
+  PRIMARY KEY (`fecha`, `id_cliente`)
+);
+
+-- Puntos de control de las importaciones masivas (ImportadorMasivo): última línea del archivo
+-- importada, guardada en la misma transacción que sus filas para poder reanudar sin duplicar.
+-- clave: tipo y ruta absoluta del archivo (700 caracteres caben en un índice InnoDB con utf8mb4).
+CREATE TABLE `IMPORTACIONES` (
+  `clave` VARCHAR(700) NOT NULL,
+  `tamanio_archivo` BIGINT NOT NULL,
+  `linea` BIGINT NOT NULL DEFAULT 0,
+  `importados` BIGINT NOT NULL DEFAULT 0,
+  `rechazados` BIGINT NOT NULL DEFAULT 0,
+  `bytes_errores` BIGINT NOT NULL DEFAULT 0,
+  `actualizado` TIMESTAMP NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`clave`)
+);
+
 -- -----------------------------------------------------
 -- PARTE 3: INSERCIÓN DE DATOS DE EJEMPLO
 -- -----------------------------------------------------
@@ -168,5 +210,13 @@ VALUES
 (2, 4, 2, 89.90, 0, (2 * 89.90)),
 (2, 5, 2, 75.00, 0, (2 * 75.00));
 
+-- Resúmenes diarios de las ventas de ejemplo
+INSERT INTO `RESUMEN_VENTAS_DIA` (`fecha`, `num_ventas`, `importe_total`, `importe_min`, `importe_max`)
+SELECT `fecha_venta`, COUNT(*), SUM(`importe_total`), MIN(`importe_total`), MAX(`importe_total`)
+FROM `VENTAS` WHERE `fecha_venta` IS NOT NULL GROUP BY `fecha_venta`;
+INSERT INTO `RESUMEN_VENTAS_DIA_CLIENTE` (`fecha`, `id_cliente`, `num_ventas`, `importe_total`, `importe_min`, `importe_max`)
+SELECT `fecha_venta`, `id_cliente`, COUNT(*), SUM(`importe_total`), MIN(`importe_total`), MAX(`importe_total`)
+FROM `VENTAS` WHERE `fecha_venta` IS NOT NULL GROUP BY `fecha_venta`, `id_cliente`;
+
 -- VENTA 3: (Cliente 10: Elena Vázquez)
 INSERT INTO `VENTAS` (`id_venta
@@ -0,0 +1,155 @@
+package com.remus.utility;
+
+import com.remus.connection.DetectorNMasUno;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Carga datos fuera del Event Dispatch Thread y entrega el resultado (o el error) de vuelta en el EDT.
+ * Cada carga tiene una clave: si se lanza otra con la misma clave antes de que termine la anterior,
+ * la anterior se cancela y su resultado se descarta. Mientras haya cargas en curso el componente
+ * muestra el cursor de espera (y el indicador de progreso, si se ha asignado).
+ * Cada tarea se ejecuta como una unidad de trabajo de {@link DetectorNMasUno} (Panel.clave).
+ * Los métodos públicos deben llamarse desde el EDT.
+ */
+public class CargadorAsincrono {
+
+    private static final int HILOS_POR_DEFECTO = 4;
+    private static final ExecutorService COMPARTIDO = crearEjecutor(HILOS_POR_DEFECTO, "carga-datos");
+
+    private final Component componente;
+    private final ExecutorService ejecutor;
+    private final Map<String, Carga> enCurso = new HashMap<>();
+    private JProgressBar indicador;
+
+    /**
+     * Usa el ejecutor común a todos los paneles
+     */
+    public CargadorAsincrono(Component componente) {
+        this(componente, COMPARTIDO);
+    }
+
+    public CargadorAsincrono(Component componente, ExecutorService ejecutor) {
+        this.componente = componente;
+        this.ejecutor = ejecutor;
+    }
+
+    /**
+     * Ejecutor de hilos demonio con nombre, para cargadores que necesiten su propio límite de paralelismo
+     */
+    public static ExecutorService crearEjecutor(int hilos, String nombre) {
+        AtomicInteger contador = new AtomicInteger();
+        return Executors.newFixedThreadPool(hilos, r -> {
+            Thread t = new Thread(r, nombre + "-" + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Barra que se muestra (en modo indeterminado) mientras haya cargas en curso
+     */
+    public void setIndicador(JProgressBar indicador) {
+        this.indicador = indicador;
+        indicador.setIndeterminate(true);
+        actualizarIndicador();
+    }
+
+    /**
+     * Ejecuta {@code tarea} en segundo plano; {@code alCompletar} o {@code alFallar} se llaman en el EDT,
+     * salvo que entretanto se haya lanzado otra carga con la misma clave o se haya cancelado.
+     */
+    @SuppressWarnings("try")
+    public <T> void cargar(String clave, Callable<T> tarea, Consumer<? super T> alCompletar,
+                           Consumer<? super Exception> alFallar) {
+        Carga carga = new Carga();
+        Carga anterior = enCurso.put(clave, carga);
+        if (anterior != null) {
+            anterior.cancelar(); // obsoleta
+        }
+        actualizarIndicador();
+
+        String unidad = componente.getClass().getSimpleName() + "." + clave;
+        carga.futuro = ejecutor.submit(() -> {
+            try (DetectorNMasUno.UnidadTrabajo ignored = DetectorNMasUno.abrir(unidad)) {
+                T resultado = tarea.call();
+                SwingUtilities.invokeLater(() -> {
+                    if (terminar(clave, carga)) {
+                        alCompletar.accept(resultado);
+                    }
+                });
+            } catch (Exception e) {
+                SwingUtilities.invokeLater(() -> {
+                    if (terminar(clave, carga)) {
+                        alFallar.accept(e);
+                    }
+                });
+            }
+        });
+    }
+
+    public void cancelar(String clave) {
+        Carga carga = enCurso.remove(clave);
+        if (carga != null) {
+            carga.cancelar();
+        }
+        actualizarIndicador();
+    }
+
+    public void cancelarTodo() {
+        for (Carga carga : new ArrayList<>(enCurso.values())) {
+            carga.cancelar();
+        }
+        enCurso.clear();
+        actualizarIndicador();
+    }
+
+    public boolean isOcupado() {
+        return !enCurso.isEmpty();
+    }
+
+    // ==================== INTERNOS ====================
+
+    /**
+     * Retira la carga si sigue siendo la vigente para su clave; false si quedó obsoleta
+     */
+    private boolean terminar(String clave, Carga carga) {
+        if (carga.cancelada || enCurso.get(clave) != carga) {
+            return false;
+        }
+        enCurso.remove(clave);
+        actualizarIndicador();
+        return true;
+    }
+
+    private void actualizarIndicador() {
+        boolean ocupado = !enCurso.isEmpty();
+        componente.setCursor(ocupado ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+        if (indicador != null) {
+            indicador.setVisible(ocupado);
+        }
+    }
+
+    private static final class Carga {
+        volatile Future<?> futuro;
+        volatile boolean cancelada = false;
+
+        void cancelar() {
+            cancelada = true;
+            Future<?> f = futuro;
+            if (f != null) {
+                f.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.remus.utility;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de valores enteros no negativos (p. ej. latencias en microsegundos) con cubetas
+ * logarítmico-lineales al estilo HDR: los valores menores que 128 se guardan exactos y, por encima,
+ * cada potencia de dos se divide en 64 cubetas, con un error relativo por debajo del 1,6 %.
+ * Ocupa siempre lo mismo (unas 3700 cubetas) y se puede registrar desde varios hilos sin bloqueos.
+ */
+public class Histograma {
+
+    private static final int BITS_SUBCUBETA = 6;
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    private static final int NUM_CUBETAS = (64 - BITS_SUBCUBETA) * SUBCUBETAS;
+
+    private final AtomicLongArray cubetas = new AtomicLongArray(NUM_CUBETAS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder suma = new LongAdder();
+    private final AtomicLong minimo = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maximo = new AtomicLong(0);
+
+    public void registrar(long valor) {
+        if (valor < 0) {
+            valor = 0;
+        }
+        cubetas.incrementAndGet(indice(valor));
+        total.increment();
+        suma.add(valor);
+        minimo.accumulateAndGet(valor, Math::min);
+        maximo.accumulateAndGet(valor, Math::max);
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    public long getSuma() {
+        return suma.sum();
+    }
+
+    public double getMedia() {
+        long n = getTotal();
+        return n == 0 ? 0.0 : (double) getSuma() / n;
+    }
+
+    public long getMinimo() {
+        return getTotal() == 0 ? 0 : minimo.get();
+    }
+
+    public long getMaximo() {
+        return maximo.get();
+    }
+
+    /**
+     * Valor por debajo del cual queda el {@code percentil} % de los registros (límite superior de su cubeta,
+     * acotado por el máximo visto)
+     *
+     * @param percentil entre 0 y 100, p. ej. 99.9
+     */
+    public long percentil(double percentil) {
+        long n = getTotal();
+        if (n == 0) {
+            return 0;
+        }
+        long objetivo = Math.max(1, (long) Math.ceil(n * Math.min(percentil, 100.0) / 100.0));
+        long acumulado = 0;
+        for (int i = 0; i < NUM_CUBETAS; i++) {
+            acumulado += cubetas.get(i);
+            if (acumulado >= objetivo) {
+                return Math.min(limiteSuperior(i), getMaximo());
+            }
+        }
+        return getMaximo();
+    }
+
+    /**
+     * Copia independiente del estado actual (para publicar una instantánea mientras se sigue registrando)
+     */
+    public Histograma copiar() {
+        Histograma copia = new Histograma();
+        copia.sumar(this);
+        return copia;
+    }
+
+    /**
+     * Acumula en este histograma los registros de otro
+     */
+    public void sumar(Histograma otro) {
+        for (int i = 0; i < NUM_CUBETAS; i++) {
+            long c = otro.cubetas.get(i);
+            if (c != 0) {
+                cubetas.addAndGet(i, c);
+            }
+        }
+        total.add(otro.getTotal());
+        suma.add(otro.getSuma());
+        if (otro.getTotal() > 0) {
+            minimo.accumulateAndGet(otro.minimo.get(), Math::min);
+            maximo.accumulateAndGet(otro.maximo.get(), Math::max);
+        }
+    }
+
+    public void reiniciar() {
+        for (int i = 0; i < NUM_CUBETAS; i++) {
+            cubetas.set(i, 0);
+        }
+        total.reset();
+        suma.reset();
+        minimo.set(Long.MAX_VALUE);
+        maximo.set(0);
+    }
+
+    // ==================== CUBETAS ====================
+
+    /**
+     * Desplazamiento que deja el valor con 7 bits significativos (0 para los valores menores que 128)
+     */
+    private static int desplazamiento(long valor) {
+        return Math.max(0, (64 - Long.numberOfLeadingZeros(valor)) - (BITS_SUBCUBETA + 1));
+    }
+
+    static int indice(long valor) {
+        int d = desplazamiento(valor);
+        return d * SUBCUBETAS + (int) (valor >>> d);
+    }
+
+    static long limiteSuperior(int indice) {
+        if (indice < 2 * SUBCUBETAS) {
+            return indice;
+        }
+        int d = indice / SUBCUBETAS - 1;
+        long base = indice - (long) d * SUBCUBETAS;
+        return ((base + 1) << d) - 1;
+    }
+}
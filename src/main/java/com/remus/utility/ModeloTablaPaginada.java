@@ -0,0 +1,250 @@
+package com.remus.utility;
+
+import com.remus.connection.ConexionBD;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * TableModel de solo lectura que carga el resultado de un SELECT por ventanas.
+ * La consulta se ejecuta en un hilo aparte con un cursor de solo avance; se pide la primera
+ * ventana en cuanto se abre y las siguientes cuando la tabla se acerca al final de lo cargado
+ * (al desplazarse). Como mucho se cargan {@code maxFilas}. La conexión se mantiene mientras
+ * quedan filas por leer y se devuelve al agotarse el cursor, al llegar al límite o al cancelar.
+ */
+public class ModeloTablaPaginada extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOGGER = Logger.getLogger(ModeloTablaPaginada.class.getName());
+
+    private final String sql;
+    private final int tamanioVentana;
+    private final int maxFilas;
+    // Recibe (en el EDT) el texto de estado de la carga
+    private final Consumer<String> estado;
+
+    private final ExecutorService lector;
+
+    // Solo se modifican en el EDT
+    private final List<Object[]> filas = new ArrayList<>();
+    private String[] columnas = new String[0];
+    private boolean cargando = false;
+    private boolean agotado = false;
+
+    // Recursos JDBC: solo los usa el hilo lector, salvo cancel()
+    private Connection conn;
+    private volatile PreparedStatement pstmt;
+    private ResultSet rs;
+    private volatile boolean cancelado = false;
+
+    public ModeloTablaPaginada(String sql, int tamanioVentana, int maxFilas, Consumer<String> estado) {
+        this.sql = sql;
+        this.tamanioVentana = tamanioVentana;
+        this.maxFilas = maxFilas;
+        this.estado = estado;
+        this.lector = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "consulta-sql-paginada");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Lanza la consulta en segundo plano y carga la primera ventana. Debe llamarse desde el EDT.
+     */
+    public void iniciar() {
+        cargando = true;
+        estado.accept(" Ejecutando consulta...");
+        lector.execute(() -> {
+            try {
+                conn = ConexionBD.getConexion();
+                pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                pstmt.setFetchSize(tamanioVentana);
+                pstmt.setMaxRows(maxFilas);
+                rs = pstmt.executeQuery();
+
+                ResultSetMetaData metaData = rs.getMetaData();
+                String[] nombres = new String[metaData.getColumnCount()];
+                for (int i = 0; i < nombres.length; i++) {
+                    nombres[i] = metaData.getColumnLabel(i + 1);
+                }
+                SwingUtilities.invokeLater(() -> {
+                    columnas = nombres;
+                    fireTableStructureChanged();
+                });
+                leerVentana();
+            } catch (SQLException e) {
+                fallar(e);
+            }
+        });
+    }
+
+    /**
+     * Aborta la consulta en curso (Statement.cancel) y libera la conexión. Puede llamarse desde cualquier hilo.
+     */
+    public void cancelar() {
+        if (cancelado) {
+            return;
+        }
+        cancelado = true;
+        PreparedStatement enCurso = pstmt;
+        if (enCurso != null) {
+            try {
+                enCurso.cancel();
+            } catch (SQLException e) {
+                LOGGER.log(Level.FINE, "No se pudo cancelar la consulta", e);
+            }
+        }
+        liberar();
+    }
+
+    public boolean isCargando() {
+        return cargando;
+    }
+
+    public boolean isCompleto() {
+        return agotado;
+    }
+
+    @Override
+    public int getRowCount() {
+        return filas.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnas.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnas[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        // La tabla solo pinta las filas visibles: si se acerca al final de lo cargado, pedir la siguiente ventana
+        if (rowIndex >= filas.size() - tamanioVentana / 2) {
+            pedirMas();
+        }
+        return filas.get(rowIndex)[columnIndex];
+    }
+
+    @Override
+    public boolean isCellEditable(int rowIndex, int columnIndex) {
+        return false;
+    }
+
+    // ==================== INTERNOS ====================
+
+    private void pedirMas() {
+        if (cargando || agotado || cancelado) {
+            return;
+        }
+        cargando = true;
+        lector.execute(this::leerVentana);
+    }
+
+    /**
+     * Lee hasta {@code tamanioVentana} filas del cursor (hilo lector) y las publica en el EDT
+     */
+    private void leerVentana() {
+        if (cancelado || rs == null) {
+            return;
+        }
+        List<Object[]> ventana = new ArrayList<>(tamanioVentana);
+        boolean fin = false;
+        try {
+            int columnCount = rs.getMetaData().getColumnCount();
+            while (ventana.size() < tamanioVentana) {
+                if (!rs.next()) {
+                    fin = true;
+                    break;
+                }
+                Object[] fila = new Object[columnCount];
+                for (int i = 0; i < columnCount; i++) {
+                    fila[i] = rs.getObject(i + 1);
+                }
+                ventana.add(fila);
+            }
+        } catch (SQLException e) {
+            fallar(e);
+            return;
+        }
+        if (fin) {
+            cerrarRecursos();
+        }
+
+        boolean agotadoAhora = fin;
+        SwingUtilities.invokeLater(() -> {
+            if (cancelado) {
+                return;
+            }
+            int desde = filas.size();
+            filas.addAll(ventana);
+            agotado = agotadoAhora || filas.size() >= maxFilas;
+            cargando = false;
+            if (!ventana.isEmpty()) {
+                fireTableRowsInserted(desde, filas.size() - 1);
+            }
+            if (agotado) {
+                liberar();
+            }
+            estado.accept(textoEstado());
+        });
+    }
+
+    private String textoEstado() {
+        if (!agotado) {
+            return " Consulta SELECT ejecutada correctamente.\nFilas cargadas: " + filas.size()
+                    + " (se cargan más al desplazarse)";
+        }
+        if (filas.size() >= maxFilas) {
+            return " Consulta SELECT ejecutada correctamente.\nFilas obtenidas: " + filas.size()
+                    + " (límite de " + maxFilas + " filas alcanzado)";
+        }
+        return " Consulta SELECT ejecutada correctamente.\nFilas obtenidas: " + filas.size();
+    }
+
+    /**
+     * Cierra los recursos en el hilo lector (detrás de cualquier lectura pendiente) y lo detiene
+     */
+    private synchronized void liberar() {
+        if (lector.isShutdown()) {
+            return;
+        }
+        lector.execute(this::cerrarRecursos);
+        lector.shutdown();
+    }
+
+    private void fallar(SQLException e) {
+        cerrarRecursos();
+        if (cancelado) {
+            return; // el error es la propia cancelación
+        }
+        LOGGER.log(Level.SEVERE, "Error al ejecutar consulta SQL", e);
+        SwingUtilities.invokeLater(() -> {
+            cargando = false;
+            agotado = true;
+            estado.accept(" ERROR SQL: " + e.getMessage());
+        });
+    }
+
+    private void cerrarRecursos() {
+        ConexionBD.cerrarResultSet(rs);
+        ConexionBD.cerrarPreparedStatement(pstmt);
+        ConexionBD.cerrarConexion(conn);
+        rs = null;
+        pstmt = null;
+        conn = null;
+    }
+}
@@ -1,49 +1,203 @@
 package com.remus.utility;
 
+import com.remus.modelo.Dinero;
+
+import java.math.BigDecimal;
+import java.util.List;
+
 /**
  * Utilidad para parsear números con coma o punto y separadores de miles.
+ * <p>
+ * Se recorre la entrada una sola vez, sin expresiones regulares ni cadenas intermedias: se descartan los
+ * caracteres que no sean dígitos, coma, punto o signo menos (símbolos de moneda, espacios...), el último
+ * separador que aparece es el decimal y el otro se toma como separador de miles.
  */
 public class NumberParser {
 
+    // Resultado de escanear: signo en el bit 63, mantisa en los bits 5..62 y número de decimales en los bits 0..4
+    private static final int BITS_DECIMALES = 5;
+    private static final long MASCARA_DECIMALES = (1L << BITS_DECIMALES) - 1;
+    // Por encima, mantisa / 10^decimales ya no es exacto en double: se delega en Double.parseDouble
+    private static final long MAX_MANTISA = 1L << 53;
+    private static final int MAX_DECIMALES = 22;
+    private static final long SIN_VIA_RAPIDA = -1L;
+
+    private static final double[] POTENCIAS_10 = new double[MAX_DECIMALES + 1];
+    private static final long[] POTENCIAS_10_LONG = new long[19];
+
+    static {
+        POTENCIAS_10[0] = 1;
+        for (int i = 1; i < POTENCIAS_10.length; i++) {
+            POTENCIAS_10[i] = POTENCIAS_10[i - 1] * 10;
+        }
+        POTENCIAS_10_LONG[0] = 1;
+        for (int i = 1; i < POTENCIAS_10_LONG.length; i++) {
+            POTENCIAS_10_LONG[i] = POTENCIAS_10_LONG[i - 1] * 10;
+        }
+    }
+
     /**
      * Parsea un string de precio aceptando formatos como "1.234,56", "1234.56", "12,34", "1 234,56" y símbolos de moneda.
      * Devuelve un double con el valor normalizado. Lanza NumberFormatException con mensaje claro si no se puede parsear.
      */
-    public static double parsePrecio(String input) throws NumberFormatException {
+    public static double parsePrecio(CharSequence input) throws NumberFormatException {
         if (input == null) throw new NumberFormatException("Precio vacío");
-        String s = input.trim();
-        // Eliminar símbolos de moneda y espacios
-        s = s.replaceAll("[€$\\s]", "");
-        // Mantener solo dígitos, comas, puntos y signo negativo
-        s = s.replaceAll("[^0-9,.-]", "");
-        if (s.isEmpty()) throw new NumberFormatException("Precio vacío");
-
-        int lastDot = s.lastIndexOf('.');
-        int lastComma = s.lastIndexOf(',');
-
-        if (lastComma > -1 && lastDot > -1) {
-            // Aparecen ambos. Determinar cuál es el separador decimal mirando cuál aparece más a la derecha
-            if (lastComma > lastDot) {
-                // La coma es decimal: eliminar puntos (miles) y convertir coma a punto
-                s = s.replace(".", "");
-                s = s.replace(',', '.');
-            } else {
-                // El punto es decimal: eliminar comas (miles)
-                s = s.replace(",", "");
+        return parsePrecio(input, 0, input.length());
+    }
+
+    /**
+     * Igual que {@link #parsePrecio(CharSequence)} sobre el tramo [inicio, fin) de la entrada
+     * (p. ej. un campo de una línea CSV, sin crear la subcadena)
+     */
+    public static double parsePrecio(CharSequence input, int inicio, int fin) throws NumberFormatException {
+        long lectura = escanear(input, inicio, fin);
+        if (lectura == SIN_VIA_RAPIDA) {
+            try {
+                return Double.parseDouble(normalizar(input, inicio, fin));
+            } catch (NumberFormatException e) {
+                throw formatoNoValido(input, inicio, fin);
             }
-        } else if (lastComma > -1) {
-            // Solo coma presente -> decimal
-            s = s.replace(',', '.');
+        }
+        long mantisa = (lectura & Long.MAX_VALUE) >>> BITS_DECIMALES;
+        // Mantisa y potencia de 10 exactas en double: la división redondea igual que Double.parseDouble
+        double valor = mantisa / POTENCIAS_10[(int) (lectura & MASCARA_DECIMALES)];
+        return lectura < 0 ? -valor : valor;
+    }
+
+    /**
+     * Parsea un precio con las mismas reglas que {@link #parsePrecio(CharSequence)} y lo devuelve en céntimos,
+     * redondeando la mitad hacia arriba como {@link Dinero#deEuros(double)} pero sin pasar por double
+     */
+    public static long parseCentimos(CharSequence input) throws NumberFormatException {
+        if (input == null) throw new NumberFormatException("Precio vacío");
+        return parseCentimos(input, 0, input.length());
+    }
+
+    public static long parseCentimos(CharSequence input, int inicio, int fin) throws NumberFormatException {
+        long lectura = escanear(input, inicio, fin);
+        int decimales = (int) (lectura & MASCARA_DECIMALES);
+        if (lectura == SIN_VIA_RAPIDA || decimales - 2 >= POTENCIAS_10_LONG.length) {
+            try {
+                return Dinero.deEuros(new BigDecimal(normalizar(input, inicio, fin)));
+            } catch (NumberFormatException | ArithmeticException e) {
+                throw formatoNoValido(input, inicio, fin);
+            }
+        }
+        long mantisa = (lectura & Long.MAX_VALUE) >>> BITS_DECIMALES;
+        long centimos;
+        if (decimales <= 2) {
+            centimos = mantisa * POTENCIAS_10_LONG[2 - decimales];
         } else {
-            // Solo punto o ninguno -> eliminar comas por si acaso
-            s = s.replace(",", "");
+            long divisor = POTENCIAS_10_LONG[decimales - 2];
+            centimos = mantisa / divisor + (mantisa % divisor * 2 >= divisor ? 1 : 0);
+        }
+        return lectura < 0 ? -centimos : centimos;
+    }
+
+    /**
+     * Parsea una columna de precios (p. ej. la de una importación CSV) en {@code destino}, que debe tener al menos
+     * tantas posiciones como valores. Los valores vacíos o no válidos quedan como NaN, sin interrumpir el resto.
+     *
+     * @return número de valores no válidos
+     */
+    public static int parsePrecios(List<? extends CharSequence> valores, double[] destino) {
+        if (destino.length < valores.size()) {
+            throw new IllegalArgumentException("El destino tiene " + destino.length + " posiciones para "
+                    + valores.size() + " valores");
         }
+        int invalidos = 0;
+        for (int i = 0, n = valores.size(); i < n; i++) {
+            CharSequence valor = valores.get(i);
+            try {
+                destino[i] = valor == null ? Double.NaN : parsePrecio(valor, 0, valor.length());
+            } catch (NumberFormatException e) {
+                destino[i] = Double.NaN;
+            }
+            if (Double.isNaN(destino[i])) {
+                invalidos++;
+            }
+        }
+        return invalidos;
+    }
 
-        try {
-            return Double.parseDouble(s);
-        } catch (NumberFormatException e) {
-            throw new NumberFormatException("Formato no válido: '" + input + "'");
+    /**
+     * Valida el tramo y devuelve signo, mantisa y número de decimales empaquetados en un long,
+     * o {@link #SIN_VIA_RAPIDA} si el número no cabe en la mantisa
+     */
+    private static long escanear(CharSequence s, int inicio, int fin) {
+        long mantisa = 0;
+        boolean desbordado = false;
+        boolean negativo = false;
+        boolean hayCaracteres = false;
+        int comasAntesSigno = 0;
+        int puntosAntesSigno = 0;
+        int digitos = 0;
+        int digitosAntesSeparador = 0;
+        char ultimoSeparador = 0;
+        int comas = 0;
+        int puntos = 0;
+
+        for (int i = inicio; i < fin; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (mantisa <= (MAX_MANTISA - (c - '0')) / 10) {
+                    mantisa = mantisa * 10 + (c - '0');
+                } else {
+                    desbordado = true;
+                }
+                digitos++;
+            } else if (c == ',' || c == '.') {
+                if (c == ',') comas++; else puntos++;
+                ultimoSeparador = c;
+                digitosAntesSeparador = digitos;
+            } else if (c == '-') {
+                // Un solo signo y delante de los dígitos (el separador decimal se comprueba al final)
+                if (negativo || digitos > 0) throw formatoNoValido(s, inicio, fin);
+                negativo = true;
+                comasAntesSigno = comas;
+                puntosAntesSigno = puntos;
+            } else {
+                continue;   // moneda, espacios y demás caracteres se ignoran
+            }
+            hayCaracteres = true;
         }
+
+        if (!hayCaracteres) throw new NumberFormatException("Precio vacío");
+        // El último separador es el decimal, no puede repetirse ("1.2.3", "1,2,3") ni ir antes del signo
+        boolean decimalEsComa = ultimoSeparador == ',';
+        if (digitos == 0 || (decimalEsComa ? comas : puntos) > 1
+                || (decimalEsComa ? comasAntesSigno : puntosAntesSigno) > 0) {
+            throw formatoNoValido(s, inicio, fin);
+        }
+        int decimales = ultimoSeparador == 0 ? 0 : digitos - digitosAntesSeparador;
+        if (desbordado || decimales > MAX_DECIMALES) {
+            return SIN_VIA_RAPIDA;
+        }
+        long lectura = mantisa << BITS_DECIMALES | decimales;
+        return negativo ? lectura | Long.MIN_VALUE : lectura;
+    }
+
+    /**
+     * Texto equivalente en formato Java ("-1234.56"), solo para los números que no caben en la vía rápida
+     */
+    private static String normalizar(CharSequence s, int inicio, int fin) {
+        char decimal = 0;
+        for (int i = fin - 1; i >= inicio && decimal == 0; i--) {
+            if (s.charAt(i) == ',' || s.charAt(i) == '.') decimal = s.charAt(i);
+        }
+        StringBuilder sb = new StringBuilder(fin - inicio);
+        for (int i = inicio; i < fin; i++) {
+            char c = s.charAt(i);
+            if (c == decimal) {
+                sb.append('.');
+            } else if ((c >= '0' && c <= '9') || c == '-') {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
     }
-}
 
+    private static NumberFormatException formatoNoValido(CharSequence s, int inicio, int fin) {
+        return new NumberFormatException("Formato no válido: '" + s.subSequence(inicio, fin) + "'");
+    }
+}
@@ -4,10 +4,10 @@ import com.remus.connection.ConexionBD;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Vector;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
 import java.awt.*;
 import java.sql.*;
 import java.util.logging.Level;
@@ -23,6 +23,13 @@ public class PanelConsultasSQL extends JPanel {
     private final JTable tablaResultado;
     private static final Logger LOGGER = Logger.getLogger(PanelConsultasSQL.class.getName());
 
+    // Filas que se piden por cada ventana y máximo que se llega a cargar de un SELECT
+    private static final int FILAS_POR_VENTANA = 200;
+    private static final int MAX_FILAS = 100_000;
+
+    // Resultado del último SELECT (null si no hay ninguno cargándose o mostrado)
+    private ModeloTablaPaginada modeloActual;
+
     public PanelConsultasSQL() {
         setLayout(new BorderLayout(10, 10));
         setBorder(new EmptyBorder(10, 10, 10, 10));
@@ -37,12 +44,16 @@ public class PanelConsultasSQL extends JPanel {
         JButton btnEjecutar = new JButton("▶ Ejecutar SQL");
         btnEjecutar.addActionListener(e -> ejecutarConsulta());
 
+        JButton btnCancelar = new JButton("■ Cancelar");
+        btnCancelar.addActionListener(e -> cancelarConsulta());
+
         // Área de exportación
         JButton btnExportar = new JButton("Exportar Datos Visibles (JSON)");
         btnExportar.addActionListener(e -> exportarDatosVisibles());
 
         JPanel btnPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         btnPanel.add(btnEjecutar);
+        btnPanel.add(btnCancelar);
         btnPanel.add(btnExportar);
 
         panelInput.add(btnPanel, BorderLayout.SOUTH);
@@ -74,19 +85,17 @@ public class PanelConsultasSQL extends JPanel {
 
         limpiarResultados();
 
+        if (sql.toUpperCase().startsWith("SELECT")) {
+            // Ejecutar consulta (DQL) en segundo plano, cargando filas por ventanas
+            mostrarResultadoTabla(sql);
+            return;
+        }
+
         try (Connection conn = ConexionBD.getConexion();
              Statement stmt = conn.createStatement()) {
-
-            if (sql.toUpperCase().startsWith("SELECT")) {
-                // Ejecutar consulta (DQL)
-                try (ResultSet rs = stmt.executeQuery(sql)) {
-                    mostrarResultadoTabla(rs);
-                }
-            } else {
-                // Ejecutar actualización (DML/DDL)
-                int filasAfectadas = stmt.executeUpdate(sql);
-                txtResultado.setText(" Comando ejecutado correctamente.\nFilas afectadas: " + filasAfectadas);
-            }
+            // Ejecutar actualización (DML/DDL)
+            int filasAfectadas = stmt.executeUpdate(sql);
+            txtResultado.setText(" Comando ejecutado correctamente.\nFilas afectadas: " + filasAfectadas);
         } catch (SQLException e) {
             txtResultado.setText(" ERROR SQL: " + e.getMessage());
             LOGGER.log(Level.SEVERE, "Error al ejecutar consulta SQL", e);
@@ -96,38 +105,21 @@ public class PanelConsultasSQL extends JPanel {
         }
     }
 
-    private void mostrarResultadoTabla(ResultSet rs) throws SQLException {
-        ResultSetMetaData metaData = rs.getMetaData();
-        int columnCount = metaData.getColumnCount();
-
-        // Nombres de las columnas
-        Vector<String> columnNames = new Vector<>();
-        for (int i = 1; i <= columnCount; i++) {
-            columnNames.add(metaData.getColumnName(i));
-        }
+    private void mostrarResultadoTabla(String sql) {
+        modeloActual = new ModeloTablaPaginada(sql, FILAS_POR_VENTANA, MAX_FILAS, txtResultado::setText);
+        tablaResultado.setModel(modeloActual);
+        modeloActual.iniciar();
+    }
 
-        // Datos de las filas
-        Vector<Vector<Object>> data = new Vector<>();
-        while (rs.next()) {
-            Vector<Object> row = new Vector<>();
-            for (int i = 1; i <= columnCount; i++) {
-                row.add(rs.getObject(i));
-            }
-            data.add(row);
+    private void cancelarConsulta() {
+        if (modeloActual != null && !modeloActual.isCompleto()) {
+            modeloActual.cancelar();
+            txtResultado.setText(" Consulta cancelada. Filas cargadas: " + modeloActual.getRowCount());
         }
-
-        DefaultTableModel modelo = new DefaultTableModel(data, columnNames) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
-        tablaResultado.setModel(modelo);
-        txtResultado.setText(" Consulta SELECT ejecutada correctamente.\nFilas obtenidas: " + data.size());
     }
 
     private void exportarDatosVisibles() {
-        DefaultTableModel model = (DefaultTableModel) tablaResultado.getModel();
+        TableModel model = tablaResultado.getModel();
         if (model.getRowCount() == 0) {
             JOptionPane.showMessageDialog(this, "No hay datos en la tabla para exportar.", "Aviso", JOptionPane.WARNING_MESSAGE);
             return;
@@ -164,7 +156,20 @@ public class PanelConsultasSQL extends JPanel {
     }
 
     private void limpiarResultados() {
+        if (modeloActual != null) {
+            modeloActual.cancelar();
+            modeloActual = null;
+        }
         txtResultado.setText("");
         tablaResultado.setModel(new DefaultTableModel());
     }
-}
\ No newline at end of file
+
+    @Override
+    public void removeNotify() {
+        // Al cerrar la ventana, no dejar la consulta abierta reteniendo una conexión del pool
+        if (modeloActual != null) {
+            modeloActual.cancelar();
+        }
+        super.removeNotify();
+    }
+}
@@ -12,6 +12,7 @@ import java.awt.*;
 import java.time.LocalDate;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CompletionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -20,13 +21,16 @@ import java.util.logging.Logger;
  */
 public class PanelGestionVentas extends JPanel {
 
-    private final IClienteDAO clienteDAO = new ClienteDAOImpl();
-    private final IProductoDAO productoDAO = new ProductoDAOImpl();
+    private final IClienteDAO clienteDAO = ClienteDAOCache.compartido();
+    private final IProductoDAO productoDAO = ProductoDAOCache.compartido();
     private final IVentaDAO ventaDAO = new VentaDAOImpl();
     private final VentaService ventaService = new VentaService();
 
     private static final Logger LOGGER = Logger.getLogger(PanelGestionVentas.class.getName());
 
+    // Carga de los combos fuera del EDT
+    private final CargadorAsincrono cargador = new CargadorAsincrono(this);
+
     // Componentes principales
     private JComboBox<Cliente> cmbCliente;
     private JComboBox<Producto> cmbProducto;
@@ -290,35 +294,33 @@ public class PanelGestionVentas extends JPanel {
     // ==================== MÉTODOS DE LÓGICA ====================
 
     private void cargarClientes() {
-        try {
+        cargador.cargar("clientes", clienteDAO::obtenerTodos, clientes -> {
             cmbCliente.removeAllItems();
-            List<Cliente> clientes = clienteDAO.obtenerTodos();
             if (clientes != null) {
                 for (Cliente c : clientes) {
                     cmbCliente.addItem(c);
                 }
             }
-        } catch (Exception e) {
+        }, e -> {
             JOptionPane.showMessageDialog(this, "Error al cargar clientes: " + e.getMessage(),
                     "Error", JOptionPane.ERROR_MESSAGE);
             LOGGER.log(Level.SEVERE, "Error cargando clientes", e);
-        }
+        });
     }
 
     private void cargarProductos() {
-        try {
+        cargador.cargar("productos", productoDAO::obtenerActivos, productos -> {
             cmbProducto.removeAllItems();
-            List<Producto> productos = productoDAO.obtenerActivos();
             if (productos != null) {
                 for (Producto p : productos) {
                     cmbProducto.addItem(p);
                 }
             }
-        } catch (Exception e) {
+        }, e -> {
             JOptionPane.showMessageDialog(this, "Error al cargar productos: " + e.getMessage(),
                     "Error", JOptionPane.ERROR_MESSAGE);
             LOGGER.log(Level.SEVERE, "Error cargando productos", e);
-        }
+        });
     }
 
     /**
@@ -384,8 +386,8 @@ public class PanelGestionVentas extends JPanel {
             linea.setCantidad(cantidad);
             linea.setPrecioVenta(precioVenta);
             linea.setDescuento(descuento);
-            double importe = ventaService.calcularImporteLinea(cantidad, precioVenta, descuento);
-            linea.setImporteLinea(importe);
+            linea.setImporteLineaCentimos(ventaService.calcularImporteLineaCentimos(
+                    cantidad, linea.precioVentaCentimos(), descuento));
 
             lineasActuales.add(linea);
 
@@ -396,7 +398,7 @@ public class PanelGestionVentas extends JPanel {
                     cantidad,
                     String.format("%.2f €", precioVenta),
                     descuento + "%",
-                    String.format("%.2f €", importe)
+                    String.format("%.2f €", linea.getImporteLinea())
             });
 
             actualizarTotales();
@@ -435,18 +437,19 @@ public class PanelGestionVentas extends JPanel {
     }
 
     private void actualizarTotales() {
-        double totalBruto = 0;
+        // En céntimos y con el mismo redondeo que al guardar la venta
+        long totalBruto = 0;
         for (LineaVenta linea : lineasActuales) {
-            totalBruto += linea.getImporteLinea();
+            totalBruto += linea.importeLineaCentimos();
         }
 
         double descuentoGlobal = (Double) spnDescuentoGlobal.getValue();
-        double descuentoAplicado = totalBruto * (descuentoGlobal / 100.0);
-        double totalFinal = totalBruto - descuentoAplicado;
+        long descuentoAplicado = Dinero.porcentajePb(totalBruto, Dinero.puntosBasicos(descuentoGlobal));
+        long totalFinal = totalBruto - descuentoAplicado;
 
-        lblTotalBruto.setText(String.format("%.2f €", totalBruto));
-        lblDescuentoGlobal.setText(String.format("%.2f €", descuentoAplicado));
-        lblTotalFinal.setText(String.format("%.2f €", totalFinal));
+        lblTotalBruto.setText(String.format("%.2f €", Dinero.aEuros(totalBruto)));
+        lblDescuentoGlobal.setText(String.format("%.2f €", Dinero.aEuros(descuentoAplicado)));
+        lblTotalFinal.setText(String.format("%.2f €", Dinero.aEuros(totalFinal)));
     }
 
     private void confirmarVenta() {
@@ -468,26 +471,73 @@ public class PanelGestionVentas extends JPanel {
             venta.setFechaVenta(LocalDate.now());
             venta.setDescuentoGlobal((Double) spnDescuentoGlobal.getValue());
             venta.setEstado("COMPLETADA");
-            venta.setLineasVenta(new ArrayList<>(lineasActuales));
-
-            // Insertar con transacción
-            int idVenta = ventaService.insertarVentaConTransaccion(venta);
-
-            JOptionPane.showMessageDialog(this,
-                    "✓ Venta #" + idVenta + " registrada exitosamente",
-                    "Éxito",
-                    JOptionPane.INFORMATION_MESSAGE);
+            // Copias: el hilo que registra la venta les asigna id de venta e importe mientras el panel sigue vivo
+            List<LineaVenta> lineas = new ArrayList<>(lineasActuales.size());
+            for (LineaVenta lv : lineasActuales) {
+                lineas.add(copiarLinea(lv));
+            }
+            venta.setLineasVenta(lineas);
+
+            // Insertar con transacción (con la escritura agrupada, el resultado llega al confirmarse el lote).
+            // El formulario queda bloqueado hasta entonces, así limpiarlo al terminar no borra nada nuevo.
+            habilitarEdicion(false);
+            ventaService.enviarVenta(venta).whenComplete((idVenta, error) -> SwingUtilities.invokeLater(() -> {
+                habilitarEdicion(true);
+                if (error != null) {
+                    mostrarErrorVenta(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                    return;
+                }
+                JOptionPane.showMessageDialog(this,
+                        "✓ Venta #" + idVenta + " registrada exitosamente",
+                        "Éxito",
+                        JOptionPane.INFORMATION_MESSAGE);
 
-            limpiarFormulario();
+                limpiarFormulario();
+            }));
 
         } catch (IllegalArgumentException e) {
+            habilitarEdicion(true);
             JOptionPane.showMessageDialog(this, e.getMessage(), "Validación", JOptionPane.WARNING_MESSAGE);
         } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Error al registrar venta:\n" + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-            LOGGER.log(Level.SEVERE, "Error al confirmar venta", e);
+            habilitarEdicion(true);
+            mostrarErrorVenta(e);
         }
     }
 
+    private static LineaVenta copiarLinea(LineaVenta lv) {
+        LineaVenta copia = new LineaVenta();
+        copia.setIdLinea(lv.getIdLinea());
+        copia.setIdVenta(lv.getIdVenta());
+        copia.setIdProducto(lv.getIdProducto());
+        copia.setCantidad(lv.getCantidad());
+        copia.setDescuento(lv.getDescuento());
+        copia.setPrecioVentaCentimos(lv.precioVentaCentimos());
+        copia.setImporteLineaCentimos(lv.importeLineaCentimos());
+        return copia;
+    }
+
+    /**
+     * Bloquea o libera todo el formulario mientras hay una venta enviada pendiente de confirmar
+     */
+    private void habilitarEdicion(boolean habilitar) {
+        cmbCliente.setEnabled(habilitar);
+        cmbProducto.setEnabled(habilitar);
+        spnCantidad.setEnabled(habilitar);
+        txtPrecioVenta.setEnabled(habilitar);
+        spnDescuento.setEnabled(habilitar);
+        spnDescuentoGlobal.setEnabled(habilitar);
+        tablaLineas.setEnabled(habilitar);
+        btnAgregarLinea.setEnabled(habilitar);
+        btnEliminarLinea.setEnabled(habilitar);
+        btnConfirmarVenta.setEnabled(habilitar);
+        btnCancelar.setEnabled(habilitar);
+    }
+
+    private void mostrarErrorVenta(Throwable e) {
+        JOptionPane.showMessageDialog(this, "Error al registrar venta:\n" + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        LOGGER.log(Level.SEVERE, "Error al confirmar venta", e);
+    }
+
     private void cancelarVenta() {
         int respuesta = JOptionPane.showConfirmDialog(this,
                 "¿Estás seguro de que deseas cancelar la venta?",
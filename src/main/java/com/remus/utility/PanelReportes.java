@@ -1,13 +1,20 @@
 package com.remus.utility;
 
+import com.remus.modelo.TablaResultados;
+import com.remus.modelo.VentaDetallada;
 import com.remus.service.ConsultasService;
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.time.LocalDate;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -19,6 +26,18 @@ public class PanelReportes extends JPanel {
     private final ConsultasService consultasService = new ConsultasService();
     private static final Logger LOGGER = Logger.getLogger(PanelReportes.class.getName());
 
+    // Reportes que se consultan a la vez como máximo (cada uno ocupa una conexión del pool)
+    private static final int PARALELISMO_POR_DEFECTO = 3;
+    // Ventas que se formatean antes de volcarlas al área de texto
+    private static final int VENTAS_POR_BLOQUE = 50;
+
+    // Las consultas de los reportes se ejecutan fuera del EDT, con su propio límite de paralelismo
+    private final CargadorAsincrono cargador;
+    // Carga vigente del reporte de ventas detalladas (solo EDT): descarta bloques de cargas obsoletas
+    private int generacionDetalle = 0;
+    // Duración de la última ejecución de cada reporte (ms)
+    private final Map<String, Long> ultimosTiemposMs = new ConcurrentHashMap<>();
+
     private JTabbedPane tabReportes;
     private JTable tablaClientesReporte;
     private JTable tablaProductosReporte;
@@ -27,6 +46,15 @@ public class PanelReportes extends JPanel {
     private JTextArea areaResumenVentas;
 
     public PanelReportes() {
+        this(PARALELISMO_POR_DEFECTO);
+    }
+
+    /**
+     * @param paralelismo número máximo de reportes que se consultan simultáneamente
+     */
+    public PanelReportes(int paralelismo) {
+        cargador = new CargadorAsincrono(this, CargadorAsincrono.crearEjecutor(paralelismo, "reportes"));
+
         setLayout(new BorderLayout(10, 10));
         setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
@@ -52,7 +80,13 @@ public class PanelReportes extends JPanel {
         JButton btnActualizar = new JButton("🔄 Actualizar Todo");
         btnActualizar.addActionListener(e -> actualizarTodosLosReportes());
 
+        JProgressBar barraCarga = new JProgressBar();
+        barraCarga.setString("Consultando...");
+        barraCarga.setStringPainted(true);
+
         panel.add(btnActualizar);
+        panel.add(barraCarga);
+        cargador.setIndicador(barraCarga);
 
         return panel;
     }
@@ -67,21 +101,20 @@ public class PanelReportes extends JPanel {
         panel.add(scroll, BorderLayout.CENTER);
 
         JButton btnCargar = new JButton("Cargar Clientes");
-        btnCargar.addActionListener(e -> cargarReporteClientes());
+        btnCargar.addActionListener(e -> cargarReporteClientes(null));
         panel.add(btnCargar, BorderLayout.SOUTH);
 
         return panel;
     }
 
-    private void cargarReporteClientes() {
-        try {
-            List<Map<String, Object>> datos = consultasService.consultaCLIENTESOrdenados();
+    private void cargarReporteClientes(Refresco refresco) {
+        cargador.cargar("clientes", medir("Clientes", consultasService::consultaCLIENTESOrdenados), datos -> {
             mostrarEnTabla(tablaClientesReporte, datos);
-            mostrarMensaje("Se cargaron " + datos.size() + " clientes");
-        } catch (Exception e) {
-            mostrarError("Error al cargar clientes: " + e.getMessage());
+            avisar(refresco, "Clientes", "Se cargaron " + datos.getNumFilas() + " clientes");
+        }, e -> {
             LOGGER.log(Level.SEVERE, "Error en reporte clientes", e);
-        }
+            avisarError(refresco, "Clientes", "Error al cargar clientes: " + e.getMessage());
+        });
     }
 
     // ==================== REPORTE 2: PRODUCTOS ====================
@@ -94,21 +127,20 @@ public class PanelReportes extends JPanel {
         panel.add(scroll, BorderLayout.CENTER);
 
         JButton btnCargar = new JButton("Cargar Productos");
-        btnCargar.addActionListener(e -> cargarReporteProductos());
+        btnCargar.addActionListener(e -> cargarReporteProductos(null));
         panel.add(btnCargar, BorderLayout.SOUTH);
 
         return panel;
     }
 
-    private void cargarReporteProductos() {
-        try {
-            List<Map<String, Object>> datos = consultasService.consultaPRODUCTOSOrdenados();
+    private void cargarReporteProductos(Refresco refresco) {
+        cargador.cargar("productos", medir("Productos", consultasService::consultaPRODUCTOSOrdenados), datos -> {
             mostrarEnTabla(tablaProductosReporte, datos);
-            mostrarMensaje("Se cargaron " + datos.size() + " productos");
-        } catch (Exception e) {
-            mostrarError("Error al cargar productos: " + e.getMessage());
+            avisar(refresco, "Productos", "Se cargaron " + datos.getNumFilas() + " productos");
+        }, e -> {
             LOGGER.log(Level.SEVERE, "Error en reporte productos", e);
-        }
+            avisarError(refresco, "Productos", "Error al cargar productos: " + e.getMessage());
+        });
     }
 
     // ==================== REPORTE 3: VENTAS DETALLADAS ====================
@@ -123,65 +155,90 @@ public class PanelReportes extends JPanel {
         panel.add(scroll, BorderLayout.CENTER);
 
         JButton btnCargar = new JButton("Cargar Ventas Detalladas");
-        btnCargar.addActionListener(e -> cargarReporteVentasDetalladas());
+        btnCargar.addActionListener(e -> cargarReporteVentasDetalladas(null));
         panel.add(btnCargar, BorderLayout.SOUTH);
 
         return panel;
     }
 
-    private void cargarReporteVentasDetalladas() {
-        try {
-            Map<Integer, Map<String, Object>> ventas = consultasService.consultaVENTASConLineas();
+    /**
+     * Las ventas se pintan por bloques según llegan del cursor, sin esperar a tener el reporte completo
+     */
+    private void cargarReporteVentasDetalladas(Refresco refresco) {
+        int generacion = ++generacionDetalle;
+        areaVentasDetalladas.setText("\n════════════════════════════════════════════════════════════\n"
+                + "REPORTE: VENTAS CON LÍNEAS DETALLADAS\n"
+                + "════════════════════════════════════════════════════════════\n\n");
+
+        cargador.cargar("ventasDetalladas", medir("Ventas Detalladas", () -> {
+            int[] total = {0};
+            StringBuilder bloque = new StringBuilder();
+            consultasService.recorrerVENTASConLineas(venta -> {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException(); // carga sustituida por otra: cerrar el cursor
+                }
+                formatearVentaDetallada(bloque, venta);
+                if (++total[0] % VENTAS_POR_BLOQUE == 0) {
+                    publicarDetalle(generacion, bloque.toString());
+                    bloque.setLength(0);
+                }
+            });
+            publicarDetalle(generacion, bloque.toString());
+            return total[0];
+        }), total -> {
             StringBuilder sb = new StringBuilder();
-            sb.append("\n════════════════════════════════════════════════════════════\n");
-            sb.append("REPORTE: VENTAS CON LÍNEAS DETALLADAS\n");
-            sb.append("════════════════════════════════════════════════════════════\n\n");
-
-            if (ventas.isEmpty()) {
+            if (total == 0) {
                 sb.append("Sin ventas registradas.\n");
-            } else {
-                for (Map<String, Object> venta : ventas.values()) {
-                    sb.append("─────────────────────────────────────────────────────────────\n");
-                    sb.append(String.format("ID Venta: %s | Fecha: %s | Cliente: %s\n",
-                            venta.get("ID Venta"), venta.get("Fecha"), venta.get("Cliente")));
-                    sb.append(String.format("Descuento Global: %s | Total: %s\n\n",
-                            venta.get("Descuento Global"), venta.get("Importe Total")));
-
-                    @SuppressWarnings("unchecked")
-                    List<Map<String, Object>> lineas = (List<Map<String, Object>>) venta.get("Líneas");
-
-                    sb.append("LÍNEAS DE VENTA:\n");
-                    sb.append(String.format("%-15s %-30s %-10s %-12s %-12s %-15s\n",
-                            "Código", "Descripción", "Cantidad", "Precio U.", "Desc. %", "Importe"));
-                    sb.append("─".repeat(95)).append("\n");
-
-                    if (lineas != null && !lineas.isEmpty()) {
-                        for (Map<String, Object> linea : lineas) {
-                            sb.append(String.format("%-15s %-30s %-10s %-12s %-12s %-15s\n",
-                                    linea.get("Código") != null ? linea.get("Código") : "N/A",
-                                    linea.get("Descripción") != null ? linea.get("Descripción") : "N/A",
-                                    linea.get("Cantidad") != null ? linea.get("Cantidad") : "0",
-                                    linea.get("Precio Unit.") != null ? linea.get("Precio Unit.") : "0.00 €",
-                                    linea.get("Descuento") != null ? linea.get("Descuento") : "0%",
-                                    linea.get("Importe Línea") != null ? linea.get("Importe Línea") : "0.00 €"));
-                        }
-                    } else {
-                        sb.append("(Sin líneas de venta)\n");
-                    }
-                    sb.append("\n");
-                }
             }
-
             sb.append("════════════════════════════════════════════════════════════\n");
-            sb.append("Total de ventas: ").append(ventas.size()).append("\n");
+            sb.append("Total de ventas: ").append(total).append("\n");
 
-            areaVentasDetalladas.setText(sb.toString());
+            areaVentasDetalladas.append(sb.toString());
             areaVentasDetalladas.setCaretPosition(0);
-            mostrarMensaje("Se cargaron " + ventas.size() + " ventas");
-        } catch (Exception e) {
-            mostrarError("Error al cargar ventas: " + e.getMessage());
+            avisar(refresco, "Ventas Detalladas", "Se cargaron " + total + " ventas");
+        }, e -> {
             LOGGER.log(Level.SEVERE, "Error en reporte ventas detalladas", e);
+            avisarError(refresco, "Ventas Detalladas", "Error al cargar ventas: " + e.getMessage());
+        });
+    }
+
+    private void publicarDetalle(int generacion, String texto) {
+        if (texto.isEmpty()) {
+            return;
         }
+        SwingUtilities.invokeLater(() -> {
+            if (generacion == generacionDetalle) {
+                areaVentasDetalladas.append(texto);
+            }
+        });
+    }
+
+    private static void formatearVentaDetallada(StringBuilder sb, VentaDetallada venta) {
+        sb.append("─────────────────────────────────────────────────────────────\n");
+        sb.append(String.format("ID Venta: %d | Fecha: %s | Cliente: %s\n",
+                venta.getIdVenta(), venta.getFecha(), venta.getCliente()));
+        sb.append(String.format("Descuento Global: %.1f%% | Total: %.2f €\n\n",
+                venta.getDescuentoGlobal(), venta.getImporteTotal()));
+
+        sb.append("LÍNEAS DE VENTA:\n");
+        sb.append(String.format("%-15s %-30s %-10s %-12s %-12s %-15s\n",
+                "Código", "Descripción", "Cantidad", "Precio U.", "Desc. %", "Importe"));
+        sb.append("─".repeat(95)).append("\n");
+
+        if (!venta.getLineas().isEmpty()) {
+            for (VentaDetallada.Linea linea : venta.getLineas()) {
+                sb.append(String.format("%-15s %-30s %-10d %-12s %-12s %-15s\n",
+                        linea.getCodigo() != null ? linea.getCodigo() : "N/A",
+                        linea.getDescripcion() != null ? linea.getDescripcion() : "N/A",
+                        linea.getCantidad(),
+                        TablaResultados.formatear(TablaResultados.Tipo.MONEDA, linea.getPrecioUnitario()),
+                        linea.getDescuento() + "%",
+                        TablaResultados.formatear(TablaResultados.Tipo.MONEDA, linea.getImporte())));
+            }
+        } else {
+            sb.append("(Sin líneas de venta)\n");
+        }
+        sb.append("\n");
     }
 
     // ==================== REPORTE 4: RESUMEN VENTAS ====================
@@ -218,7 +275,7 @@ public class PanelReportes extends JPanel {
             try {
                 LocalDate inicio = LocalDate.parse(txtFechaInicio.getText().trim());
                 LocalDate fin = LocalDate.parse(txtFechaFin.getText().trim());
-                cargarReporteResumenVentas(inicio, fin);
+                cargarReporteResumenVentas(inicio, fin, null);
             } catch (Exception ex) {
                 mostrarError("Formato de fecha inválido (usar YYYY-MM-DD): " + ex.getMessage());
             }
@@ -237,16 +294,15 @@ public class PanelReportes extends JPanel {
         return panel;
     }
 
-    private void cargarReporteResumenVentas(LocalDate inicio, LocalDate fin) {
-        try {
-            Map<String, Object> datos = consultasService.consultaResumenVENTAS(inicio, fin);
+    private void cargarReporteResumenVentas(LocalDate inicio, LocalDate fin, Refresco refresco) {
+        cargador.cargar("resumenVentas", medir("Resumen Ventas", () -> consultasService.consultaResumenVENTAS(inicio, fin)), datos -> {
             areaResumenVentas.setText(consultasService.formatearResumen("RESUMEN DE VENTAS", datos));
             areaResumenVentas.setCaretPosition(0);
-            mostrarMensaje("Reporte generado exitosamente");
-        } catch (Exception e) {
-            mostrarError("Error al generar resumen: " + e.getMessage());
+            avisar(refresco, "Resumen Ventas", "Reporte generado exitosamente");
+        }, e -> {
             LOGGER.log(Level.SEVERE, "Error en resumen ventas", e);
-        }
+            avisarError(refresco, "Resumen Ventas", "Error al generar resumen: " + e.getMessage());
+        });
     }
 
     // ==================== REPORTE 5: VENTAS POR CLIENTE ====================
@@ -283,7 +339,7 @@ public class PanelReportes extends JPanel {
             try {
                 LocalDate inicio = LocalDate.parse(txtFechaInicio.getText().trim());
                 LocalDate fin = LocalDate.parse(txtFechaFin.getText().trim());
-                cargarReporteVentasPorCliente(inicio, fin);
+                cargarReporteVentasPorCliente(inicio, fin, null);
             } catch (Exception ex) {
                 mostrarError("Formato de fecha inválido (usar YYYY-MM-DD): " + ex.getMessage());
             }
@@ -300,61 +356,149 @@ public class PanelReportes extends JPanel {
         return panel;
     }
 
-    private void cargarReporteVentasPorCliente(LocalDate inicio, LocalDate fin) {
-        try {
-            List<Map<String, Object>> datos = consultasService.consultaVENTASPorCliente(inicio, fin);
+    private void cargarReporteVentasPorCliente(LocalDate inicio, LocalDate fin, Refresco refresco) {
+        cargador.cargar("ventasPorCliente", medir("Ventas por Cliente", () -> consultasService.consultaVENTASPorCliente(inicio, fin)), datos -> {
             mostrarEnTabla(tablaVentasClienteReporte, datos);
-            mostrarMensaje("Se cargaron " + datos.size() + " clientes con ventas");
-        } catch (Exception e) {
-            mostrarError("Error al cargar reporte: " + e.getMessage());
+            avisar(refresco, "Ventas por Cliente", "Se cargaron " + datos.getNumFilas() + " clientes con ventas");
+        }, e -> {
             LOGGER.log(Level.SEVERE, "Error en ventas por cliente", e);
-        }
+            avisarError(refresco, "Ventas por Cliente", "Error al cargar reporte: " + e.getMessage());
+        });
     }
 
     // ==================== MÉTODOS AUXILIARES ====================
 
-    private void mostrarEnTabla(JTable tabla, List<Map<String, Object>> datos) {
+    /**
+     * Muestra la tabla de resultados sin copiarla: el modelo lee de las columnas y devuelve valores
+     * sin formatear (así se ordenan bien los números); el texto se genera al pintar cada celda.
+     */
+    private void mostrarEnTabla(JTable tabla, TablaResultados datos) {
         if (datos == null || datos.isEmpty()) {
             tabla.setModel(new DefaultTableModel());
             return;
         }
 
-        Map<String, Object> primeraFila = datos.get(0);
-        String[] columnas = primeraFila.keySet().toArray(new String[0]);
+        tabla.setModel(new AbstractTableModel() {
+            @Override
+            public int getRowCount() {
+                return datos.getNumFilas();
+            }
+
+            @Override
+            public int getColumnCount() {
+                return datos.getNumColumnas();
+            }
 
-        Object[][] filas = new Object[datos.size()][columnas.length];
-        for (int i = 0; i < datos.size(); i++) {
-            Map<String, Object> fila = datos.get(i);
-            for (int j = 0; j < columnas.length; j++) {
-                filas[i][j] = fila.get(columnas[j]);
+            @Override
+            public String getColumnName(int column) {
+                return datos.getNombre(column);
             }
-        }
 
-        DefaultTableModel modelo = new DefaultTableModel(filas, columnas) {
             @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Solo lectura
+            public Class<?> getColumnClass(int columnIndex) {
+                return datos.getClaseColumna(columnIndex);
             }
-        };
-        tabla.setModel(modelo);
 
-        // Ajustar ancho de columnas
-        for (int i = 0; i < columnas.length; i++) {
+            @Override
+            public Object getValueAt(int rowIndex, int columnIndex) {
+                return datos.getValor(rowIndex, columnIndex);
+            }
+        });
+        tabla.setAutoCreateRowSorter(true);
+
+        // Ajustar ancho de columnas y formatear al pintar según el tipo
+        for (int i = 0; i < datos.getNumColumnas(); i++) {
+            TablaResultados.Tipo tipo = datos.getTipo(i);
             tabla.getColumnModel().getColumn(i).setPreferredWidth(150);
+            tabla.getColumnModel().getColumn(i).setCellRenderer(new DefaultTableCellRenderer() {
+                @Override
+                protected void setValue(Object value) {
+                    setText(TablaResultados.formatear(tipo, value));
+                }
+            });
         }
     }
 
+    /**
+     * Lanza los cinco reportes a la vez (hasta el límite de paralelismo); cada uno se pinta en cuanto
+     * termina y al final se muestra un resumen con lo que ha tardado cada consulta.
+     */
     private void actualizarTodosLosReportes() {
-        try {
-            cargarReporteClientes();
-            cargarReporteProductos();
-            cargarReporteVentasDetalladas();
-            cargarReporteResumenVentas(LocalDate.now().minusMonths(1), LocalDate.now());
-            cargarReporteVentasPorCliente(LocalDate.now().minusMonths(1), LocalDate.now());
-            mostrarMensaje("Todos los reportes actualizados");
-        } catch (Exception e) {
-            mostrarError("Error al actualizar: " + e.getMessage());
-            LOGGER.log(Level.SEVERE, "Error actualizando reportes", e);
+        Refresco refresco = new Refresco(5);
+        cargarReporteClientes(refresco);
+        cargarReporteProductos(refresco);
+        cargarReporteVentasDetalladas(refresco);
+        cargarReporteResumenVentas(LocalDate.now().minusMonths(1), LocalDate.now(), refresco);
+        cargarReporteVentasPorCliente(LocalDate.now().minusMonths(1), LocalDate.now(), refresco);
+    }
+
+    /**
+     * Envuelve la consulta de un reporte para registrar cuánto tarda (se ejecuta en el hilo de carga)
+     */
+    private <T> Callable<T> medir(String reporte, Callable<T> consulta) {
+        return () -> {
+            long inicio = System.nanoTime();
+            try {
+                return consulta.call();
+            } finally {
+                long ms = (System.nanoTime() - inicio) / 1_000_000;
+                ultimosTiemposMs.put(reporte, ms);
+                LOGGER.log(Level.INFO, "Reporte {0}: {1} ms", new Object[]{reporte, ms});
+            }
+        };
+    }
+
+    /**
+     * Carga suelta (refresco == null): aviso inmediato. Dentro de "Actualizar Todo": se anota en el resumen.
+     */
+    private void avisar(Refresco refresco, String reporte, String mensaje) {
+        if (refresco == null) {
+            mostrarMensaje(mensaje);
+        } else {
+            refresco.terminado(reporte, null);
+        }
+    }
+
+    private void avisarError(Refresco refresco, String reporte, String mensaje) {
+        if (refresco == null) {
+            mostrarError(mensaje);
+        } else {
+            refresco.terminado(reporte, mensaje);
+        }
+    }
+
+    /**
+     * Seguimiento de un "Actualizar Todo" (solo se usa en el EDT)
+     */
+    private final class Refresco {
+        private final long inicio = System.nanoTime();
+        private final StringBuilder detalle = new StringBuilder();
+        private int pendientes;
+        private int errores = 0;
+
+        Refresco(int reportes) {
+            this.pendientes = reportes;
+        }
+
+        void terminado(String reporte, String error) {
+            Long ms = ultimosTiemposMs.get(reporte);
+            detalle.append(String.format("%n  %-20s %6s ms", reporte, ms != null ? ms : "?"));
+            if (error != null) {
+                errores++;
+                detalle.append("  ✗ ").append(error);
+            }
+            if (--pendientes > 0) {
+                return;
+            }
+            long totalMs = (System.nanoTime() - inicio) / 1_000_000;
+            String texto = (errores == 0 ? "Todos los reportes actualizados" : errores + " reporte(s) con error")
+                    + " en " + totalMs + " ms:" + detalle;
+            LOGGER.info(texto);
+            if (errores == 0) {
+                mostrarMensaje(texto);
+            } else {
+                mostrarError(texto);
+            }
         }
     }
 
@@ -1,15 +1,25 @@
 package com.remus.utility;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule; // Necesario para LocalDateTime
+import com.remus.dao.interfaces.IVentaDAO;
 import com.remus.modelo.Cliente;
 import com.remus.modelo.Producto;
 import com.remus.modelo.Venta;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -28,6 +38,17 @@ public class UtilidadExportar {
             // Ignorar errores al manejar fechas/propiedades
             .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
 
+    // Escritor fila a fila: sin vaciar el buffer tras cada objeto (con gzip sería muy costoso)
+    private static final ObjectWriter escritorFilas = mapper.writer()
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    // NDJSON: un objeto por línea, sin sangrado
+    private static final ObjectWriter escritorNdjson = escritorFilas
+            .without(SerializationFeature.INDENT_OUTPUT)
+            .withRootValueSeparator("\n");
+
+    private static final int TAMANIO_BUFFER = 64 * 1024;
+
     /**
      * Exporta una lista de objetos a un archivo JSON.
      * @param data Lista de objetos.
@@ -57,6 +78,66 @@ public class UtilidadExportar {
         }
     }
 
+    /**
+     * Exporta en streaming: las filas se escriben según se leen, sin tener la lista completa en memoria.
+     * El formato se elige por el nombre del archivo: {@code .ndjson} escribe un objeto por línea
+     * (si no, un array JSON) y un sufijo {@code .gz} comprime la salida con gzip
+     * (ej: ventas.json, ventas.ndjson, ventas.ndjson.gz).
+     * El stream no se cierra aquí; lo cierra quien lo abrió.
+     * @return true si la exportación fue exitosa, false en caso contrario.
+     */
+    public static boolean exportarEnStreaming(Stream<?> filas, String fileName) {
+        File file = new File(fileName);
+        String nombre = file.getName().toLowerCase();
+        boolean gzip = nombre.endsWith(".gz");
+        boolean ndjson = nombre.endsWith(".ndjson") || nombre.endsWith(".ndjson.gz");
+
+        // Asegurar que la carpeta de exportación existe si usa un path relativo
+        if (file.getParentFile() != null && !file.getParentFile().exists()) {
+            file.getParentFile().mkdirs();
+        }
+
+        long inicio = System.nanoTime();
+        long escritas = 0;
+        try (OutputStream salida = abrirSalida(file, gzip);
+             JsonGenerator gen = mapper.getFactory().createGenerator(salida, JsonEncoding.UTF8)) {
+            Iterator<?> it = filas.iterator();
+            if (ndjson) {
+                while (it.hasNext()) {
+                    escritorNdjson.writeValue(gen, it.next());
+                    escritas++;
+                }
+                if (escritas > 0) {
+                    gen.writeRaw('\n');
+                }
+            } else {
+                gen.useDefaultPrettyPrinter();
+                gen.writeStartArray();
+                while (it.hasNext()) {
+                    escritorFilas.writeValue(gen, it.next());
+                    escritas++;
+                }
+                gen.writeEndArray();
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Error al exportar a JSON: " + fileName, e);
+            return false;
+        }
+
+        double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+        LOGGER.log(Level.INFO, String.format("Datos exportados a JSON: %s (%d filas en %.2f s, %.0f filas/s)",
+                file.getAbsolutePath(), escritas, segundos, segundos > 0 ? escritas / segundos : 0.0));
+        return true;
+    }
+
+    private static OutputStream abrirSalida(File file, boolean gzip) throws IOException {
+        OutputStream salida = new FileOutputStream(file);
+        if (gzip) {
+            return new GZIPOutputStream(salida, TAMANIO_BUFFER);
+        }
+        return new BufferedOutputStream(salida, TAMANIO_BUFFER);
+    }
+
     // Métodos específicos (AHORA ACEPTAN EL NOMBRE DEL ARCHIVO)
     public static boolean exportarClientes(List<Cliente> clientes, String fileName) {
         return exportarAJson(clientes, fileName);
@@ -69,4 +150,13 @@ public class UtilidadExportar {
     public static boolean exportarVentas(List<Venta> ventas, String fileName) {
         return exportarAJson(ventas, fileName);
     }
+
+    /**
+     * Exporta todas las ventas recorriéndolas con el cursor del DAO (memoria constante)
+     */
+    public static boolean exportarVentas(IVentaDAO ventaDAO, String fileName) {
+        try (Stream<Venta> ventas = ventaDAO.streamTodas()) {
+            return exportarEnStreaming(ventas, fileName);
+        }
+    }
 }
\ No newline at end of file
@@ -1,8 +1,10 @@
 package com.remus.vista;
 
-import com.remus.dao.ClienteDAOImpl;
+import com.remus.connection.ConexionBD;
+import com.remus.dao.ClienteDAOCache;
+import com.remus.dao.ColaVentasAgrupadas;
 import com.remus.dao.EmpresaDAOImpl;
-import com.remus.dao.ProductoDAOImpl;
+import com.remus.dao.ProductoDAOCache;
 import com.remus.dao.VentaDAOImpl;
 import com.remus.dao.interfaces.IClienteDAO;
 import com.remus.dao.interfaces.IEmpresaDAO;
@@ -11,17 +13,20 @@ import com.remus.dao.interfaces.IVentaDAO;
 import com.remus.modelo.Cliente;
 import com.remus.modelo.Empresa;
 import com.remus.modelo.Producto;
-import com.remus.modelo.Venta;
+import com.remus.service.ImportadorMasivo;
 import com.remus.utility.NumberParser;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Scanner;
 
 public class MainConsole {
     private static final Scanner sc = new Scanner(System.in);
-    private static final IClienteDAO clienteDAO = new ClienteDAOImpl();
+    private static final IClienteDAO clienteDAO = ClienteDAOCache.compartido();
     private static final IEmpresaDAO empresaDAO = new EmpresaDAOImpl();
-    private static final IProductoDAO productoDAO = new ProductoDAOImpl();
+    private static final IProductoDAO productoDAO = ProductoDAOCache.compartido();
     private static final IVentaDAO ventaDAO = new VentaDAOImpl();
 
     public static void main(String[] args) {
@@ -51,8 +56,13 @@ public class MainConsole {
                 case 7:
                     listarVentas();
                     break;
+                case 8:
+                    importarDatos();
+                    break;
                 case 0:
                     System.out.println("Saliendo del programa...");
+                    ColaVentasAgrupadas.cerrarCompartida();
+                    ConexionBD.cerrarPool();
                     break;
                 default:
                     System.out.println("Opción no válida.");
@@ -70,6 +80,7 @@ public class MainConsole {
         System.out.println("5. Listar productos");
         System.out.println("6. Insertar producto");
         System.out.println("7. Listar ventas");
+        System.out.println("8. Importar datos (CSV/NDJSON)");
         System.out.println("0. Salir");
         System.out.println("============================");
     }
@@ -149,9 +160,32 @@ public class MainConsole {
 
     // ---------------- VENTAS ----------------
     private static void listarVentas() {
-        List<Venta> ventas = ventaDAO.obtenerTodas();
-        if (ventas == null || ventas.isEmpty()) System.out.println("No hay ventas registradas.");
-        else ventas.forEach(Venta::mostrar);
+        // Recorrido por cursor: no se cargan todas las ventas en memoria
+        int[] total = {0};
+        ventaDAO.recorrerTodas(v -> {
+            v.mostrar();
+            total[0]++;
+        });
+        if (total[0] == 0) System.out.println("No hay ventas registradas.");
+    }
+
+    // ---------------- IMPORTACIÓN ----------------
+    private static void importarDatos() {
+        int tipo = leerInt("Tipo (1. Clientes, 2. Productos, 3. Ventas): ");
+        if (tipo < 1 || tipo > 3) {
+            System.out.println("Opción no válida.");
+            return;
+        }
+        Path archivo = Paths.get(leerTexto("Ruta del archivo: "));
+        try {
+            ImportadorMasivo.Resultado resultado = new ImportadorMasivo()
+                    .importar(ImportadorMasivo.Tipo.values()[tipo - 1], archivo);
+            System.out.println("✅ " + resultado);
+        } catch (IOException e) {
+            System.out.println("❌ No se pudo leer el archivo: " + e.getMessage());
+        } catch (RuntimeException e) {
+            System.out.println("❌ " + e.getMessage());
+        }
     }
 
     // ---------------- MÉTODOS AUXILIARES ----------------
@@ -1,8 +1,8 @@
 package com.remus.vista;
 
-import com.remus.dao.ClienteDAOImpl;
+import com.remus.dao.ClienteDAOCache;
 import com.remus.dao.EmpresaDAOImpl;
-import com.remus.dao.ProductoDAOImpl;
+import com.remus.dao.ProductoDAOCache;
 import com.remus.dao.VentaDAOImpl;
 import com.remus.dao.interfaces.IClienteDAO;
 import com.remus.dao.interfaces.IEmpresaDAO;
@@ -12,6 +12,7 @@ import com.remus.modelo.Cliente;
 import com.remus.modelo.Empresa;
 import com.remus.modelo.Producto;
 import com.remus.modelo.Venta;
+import com.remus.utility.CargadorAsincrono;
 import com.remus.utility.PanelGestionVentas;
 import com.remus.utility.PanelReportes;
 import com.remus.utility.NumberParser;
@@ -29,9 +30,9 @@ import java.util.logging.Logger;
 
 public class muestraGestionEmpresa extends JFrame {
 
-    private final IClienteDAO clienteDAO = new ClienteDAOImpl();
+    private final IClienteDAO clienteDAO = ClienteDAOCache.compartido();
     private final IEmpresaDAO empresaDAO = new EmpresaDAOImpl();
-    private final IProductoDAO productoDAO = new ProductoDAOImpl();
+    private final IProductoDAO productoDAO = ProductoDAOCache.compartido();
     private final IVentaDAO ventaDAO = new VentaDAOImpl();
 
     // 'tabs' se usa solo en el constructor, lo creamos como variable local allí
@@ -58,6 +59,9 @@ public class muestraGestionEmpresa extends JFrame {
     // Referencia al frame principal (si es necesario)
     private JFrame mainFrame;
 
+    // Cargas de las listas fuera del EDT
+    private final CargadorAsincrono cargador = new CargadorAsincrono(this);
+
     private static final Logger LOGGER = Logger.getLogger(muestraGestionEmpresa.class.getName());
 
     public muestraGestionEmpresa() {
@@ -78,6 +82,12 @@ public class muestraGestionEmpresa extends JFrame {
 
         add(tabs);
 
+        JProgressBar barraCarga = new JProgressBar();
+        barraCarga.setString("Cargando datos...");
+        barraCarga.setStringPainted(true);
+        add(barraCarga, BorderLayout.SOUTH);
+        cargador.setIndicador(barraCarga);
+
         // Cargar datos iniciales
         recargarClientes();
         recargarEmpresas();
@@ -118,9 +128,9 @@ public class muestraGestionEmpresa extends JFrame {
         // Botón Exportar Ventas
         JButton btnExportVentas = new JButton("Exportar Ventas");
         btnExportVentas.addActionListener(e -> {
-            String fileName = JOptionPane.showInputDialog(mainFrame, "Introduce el nombre del archivo (ej: ventas.json):", "ventas.json");
+            String fileName = JOptionPane.showInputDialog(mainFrame, "Introduce el nombre del archivo (ej: ventas.json, ventas.ndjson.gz):", "ventas.json");
             if (fileName != null && !fileName.trim().isEmpty()) {
-                boolean ok = UtilidadExportar.exportarVentas(ventaDAO.obtenerTodas(), fileName.trim());
+                boolean ok = UtilidadExportar.exportarVentas(ventaDAO, fileName.trim());
                 mostrarResultadoExportacion(ok, fileName.trim());
             }
         });
@@ -547,47 +557,43 @@ public class muestraGestionEmpresa extends JFrame {
 
     // ---------------- RECARGA DATOS ----------------
     private void recargarClientes() {
-        try {
+        cargador.cargar("clientes", clienteDAO::obtenerTodos, list -> {
             clientesListModel.clear();
-            List<Cliente> list = clienteDAO.obtenerTodos();
             if (list != null) list.forEach(clientesListModel::addElement);
-        } catch (Exception e) {
+        }, e -> {
             JOptionPane.showMessageDialog(this, "Error al cargar clientes: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             LOGGER.log(Level.SEVERE, "Error al cargar clientes", e);
-        }
+        });
     }
 
     private void recargarEmpresas() {
-        try {
+        cargador.cargar("empresas", empresaDAO::obtenerTodas, list -> {
             empresasListModel.clear();
-            List<Empresa> list = empresaDAO.obtenerTodas();
             if (list != null) list.forEach(empresasListModel::addElement);
-        } catch (Exception e) {
+        }, e -> {
             JOptionPane.showMessageDialog(this, "Error al cargar empresas: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             LOGGER.log(Level.SEVERE, "Error al cargar empresas", e);
-        }
+        });
     }
 
     private void recargarProductos() {
-        try {
+        cargador.cargar("productos", productoDAO::obtenerTodos, list -> {
             productosListModel.clear();
-            List<Producto> list = productoDAO.obtenerTodos();
             if (list != null) list.forEach(productosListModel::addElement);
-        } catch (Exception e) {
+        }, e -> {
             JOptionPane.showMessageDialog(this, "Error al cargar productos: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             LOGGER.log(Level.SEVERE, "Error al cargar productos", e);
-        }
+        });
     }
 
     private void recargarVentas() {
-        try {
+        cargador.cargar("ventas", ventaDAO::obtenerTodas, list -> {
             ventasListModel.clear();
-            List<Venta> list = ventaDAO.obtenerTodas();
             if (list != null) list.forEach(ventasListModel::addElement);
-        } catch (Exception e) {
+        }, e -> {
             JOptionPane.showMessageDialog(this, "Error al cargar ventas: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             LOGGER.log(Level.SEVERE, "Error al cargar ventas", e);
-        }
+        });
     }
 
     // ---------------- MAIN ----------------